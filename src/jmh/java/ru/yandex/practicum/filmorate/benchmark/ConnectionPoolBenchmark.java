@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(64)
+public class ConnectionPoolBenchmark {
+    private static int next() {
+        return ThreadLocalRandom.current().nextInt(DatabaseState.SAMPLES_COUNT);
+    }
+
+    @Benchmark
+    public Optional<Film> findFilm(DatabaseState state) {
+        return state.filmStorage.findFilm(state.filmIds[next()]);
+    }
+
+    @Benchmark
+    public Collection<User> getFriends(DatabaseState state) {
+        return state.userStorage.getFriends(state.userIds[next()]);
+    }
+
+    @Benchmark
+    public boolean addAndDeleteLike(DatabaseState state) {
+        int i = next();
+        state.filmStorage.addLike(state.filmIds[i], state.otherUserIds[i]);
+        return state.filmStorage.deleteLike(state.filmIds[i], state.otherUserIds[i]);
+    }
+}
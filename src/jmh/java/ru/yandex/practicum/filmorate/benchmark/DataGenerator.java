@@ -0,0 +1,177 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+@Slf4j
+public class DataGenerator {
+    static final String[] TITLE_WORDS = {"star", "night", "love", "war", "city", "dream", "river", "ghost", "king",
+            "road", "winter", "secret", "island", "fire", "shadow", "garden"};
+    private static final int BATCH_SIZE = 1000;
+    private static final int GENRES_COUNT = 6;
+    private static final int RATINGS_COUNT = 5;
+    private static final int FIRST_RELEASE_YEAR = 1950;
+    private static final int RELEASE_YEARS = 74;
+
+    private final int filmsCount;
+    private final int usersCount;
+    private final int directorsCount;
+    private final int likesPerUser;
+    private final int friendsPerUser;
+    private final int maxGenresPerFilm;
+    private final ZipfDistribution filmPopularity;
+    private final ZipfDistribution userPopularity;
+    private final ZipfDistribution directorPopularity;
+    private final Random random;
+
+    public DataGenerator(int filmsCount, int usersCount, int directorsCount, int likesPerUser, int friendsPerUser,
+                         int maxGenresPerFilm, double zipfExponent, long seed) {
+        this.filmsCount = filmsCount;
+        this.usersCount = usersCount;
+        this.directorsCount = directorsCount;
+        this.likesPerUser = Math.min(likesPerUser, filmsCount);
+        this.friendsPerUser = Math.min(friendsPerUser, usersCount - 1);
+        this.maxGenresPerFilm = Math.min(maxGenresPerFilm, GENRES_COUNT);
+        this.filmPopularity = new ZipfDistribution(filmsCount, zipfExponent);
+        this.userPopularity = new ZipfDistribution(usersCount, zipfExponent);
+        this.directorPopularity = new ZipfDistribution(directorsCount, zipfExponent);
+        this.random = new Random(seed);
+    }
+
+    public void generate(JdbcTemplate jdbcTemplate) {
+        long start = System.nanoTime();
+
+        List<Object[]> likes = generateLikes();
+        int[] likeCounts = new int[filmsCount + 1];
+        for (Object[] like : likes) {
+            likeCounts[(int) like[0]]++;
+        }
+
+        insertDirectors(jdbcTemplate);
+        insertFilms(jdbcTemplate, likeCounts);
+        insertUsers(jdbcTemplate);
+        batchInsert(jdbcTemplate, "INSERT INTO likes (film_id, user_id) VALUES (?, ?);", likes);
+        batchInsert(jdbcTemplate, "INSERT INTO friends (friend_1_id, friend_2_id, status_id) VALUES (?, ?, ?);",
+                generateFriends());
+
+        jdbcTemplate.execute("ALTER TABLE films ALTER COLUMN id RESTART WITH " + (filmsCount + 1));
+        jdbcTemplate.execute("ALTER TABLE users ALTER COLUMN id RESTART WITH " + (usersCount + 1));
+        jdbcTemplate.execute("ALTER TABLE director ALTER COLUMN director_id RESTART WITH " + (directorsCount + 1));
+
+        log.warn("Сгенерированы данные для бенчмарков: фильмов {}, пользователей {}, лайков {} за {} мс",
+                filmsCount, usersCount, likes.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public int sampleFilmId() {
+        return filmPopularity.sample(random) + 1;
+    }
+
+    public int sampleUserId() {
+        return userPopularity.sample(random) + 1;
+    }
+
+    public String sampleTitleWord() {
+        return TITLE_WORDS[random.nextInt(TITLE_WORDS.length)];
+    }
+
+    public int sampleGenreId() {
+        return random.nextInt(GENRES_COUNT) + 1;
+    }
+
+    public int sampleReleaseYear() {
+        return FIRST_RELEASE_YEAR + random.nextInt(RELEASE_YEARS);
+    }
+
+    private List<Object[]> generateLikes() {
+        List<Object[]> likes = new ArrayList<>(usersCount * likesPerUser);
+        Set<Integer> likedFilms = new HashSet<>();
+        for (int userId = 1; userId <= usersCount; userId++) {
+            likedFilms.clear();
+            while (likedFilms.size() < likesPerUser) {
+                int filmId = sampleFilmId();
+                if (likedFilms.add(filmId)) {
+                    likes.add(new Object[]{filmId, userId});
+                }
+            }
+        }
+        return likes;
+    }
+
+    private List<Object[]> generateFriends() {
+        List<Object[]> friends = new ArrayList<>(usersCount * friendsPerUser);
+        Set<Integer> userFriends = new HashSet<>();
+        for (int userId = 1; userId <= usersCount; userId++) {
+            userFriends.clear();
+            while (userFriends.size() < friendsPerUser) {
+                int friendId = sampleUserId();
+                if (friendId != userId && userFriends.add(friendId)) {
+                    friends.add(new Object[]{userId, friendId, random.nextBoolean() ? 1 : 2});
+                }
+            }
+        }
+        return friends;
+    }
+
+    private void insertDirectors(JdbcTemplate jdbcTemplate) {
+        List<Object[]> directors = new ArrayList<>(directorsCount);
+        for (int directorId = 1; directorId <= directorsCount; directorId++) {
+            directors.add(new Object[]{directorId, "Director " + directorId});
+        }
+        batchInsert(jdbcTemplate, "INSERT INTO director (director_id, director_name) VALUES (?, ?);", directors);
+    }
+
+    private void insertFilms(JdbcTemplate jdbcTemplate, int[] likeCounts) {
+        List<Object[]> films = new ArrayList<>(filmsCount);
+        List<Object[]> filmGenres = new ArrayList<>(filmsCount * maxGenresPerFilm);
+        List<Object[]> filmDirectors = new ArrayList<>(filmsCount);
+        Set<Integer> genres = new HashSet<>();
+
+        for (int filmId = 1; filmId <= filmsCount; filmId++) {
+            String name = sampleTitleWord() + " " + sampleTitleWord() + " " + filmId;
+            LocalDate releaseDate = LocalDate.of(sampleReleaseYear(), random.nextInt(12) + 1,
+                    random.nextInt(28) + 1);
+            films.add(new Object[]{filmId, name, "Description of film " + filmId, Date.valueOf(releaseDate),
+                    random.nextInt(180) + 60, random.nextInt(RATINGS_COUNT) + 1, likeCounts[filmId]});
+
+            genres.clear();
+            int genresCount = random.nextInt(maxGenresPerFilm + 1);
+            while (genres.size() < genresCount) {
+                int genreId = sampleGenreId();
+                if (genres.add(genreId)) {
+                    filmGenres.add(new Object[]{filmId, genreId});
+                }
+            }
+
+            filmDirectors.add(new Object[]{directorPopularity.sample(random) + 1, filmId});
+        }
+
+        batchInsert(jdbcTemplate, "INSERT INTO films (id, name, description, release_date, duration, rating_id, " +
+                "like_count) VALUES (?, ?, ?, ?, ?, ?, ?);", films);
+        batchInsert(jdbcTemplate, "INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?);", filmGenres);
+        batchInsert(jdbcTemplate, "INSERT INTO film_director (director_id, film_id) VALUES (?, ?);", filmDirectors);
+    }
+
+    private void insertUsers(JdbcTemplate jdbcTemplate) {
+        List<Object[]> users = new ArrayList<>(usersCount);
+        for (int userId = 1; userId <= usersCount; userId++) {
+            users.add(new Object[]{userId, "user" + userId + "@mail.ru", "user" + userId, "User " + userId,
+                    Date.valueOf(LocalDate.of(1970, 1, 1).plusDays(random.nextInt(15_000)))});
+        }
+        batchInsert(jdbcTemplate, "INSERT INTO users (id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?);",
+                users);
+    }
+
+    private void batchInsert(JdbcTemplate jdbcTemplate, String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(from + BATCH_SIZE, rows.size())));
+        }
+    }
+}
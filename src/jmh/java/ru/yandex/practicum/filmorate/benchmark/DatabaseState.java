@@ -0,0 +1,277 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.util.PropertyElf;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.config.PerformanceProfileConfiguration;
+import ru.yandex.practicum.filmorate.config.SchemaMigrator;
+import ru.yandex.practicum.filmorate.mapper.FilmMapper;
+import ru.yandex.practicum.filmorate.mapper.GenreMapper;
+import ru.yandex.practicum.filmorate.mapper.MpaMapper;
+import ru.yandex.practicum.filmorate.mapper.UserMapper;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.reference.ReferenceDataRegistry;
+import ru.yandex.practicum.filmorate.storage.DirectorDbStorage;
+import ru.yandex.practicum.filmorate.storage.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryDirectorStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryGenreStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryMpaStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryStatusStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.StatusDbStorage;
+import ru.yandex.practicum.filmorate.storage.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+public class DatabaseState {
+    static final int SAMPLES_COUNT = 1024;
+    private static final String HIKARI_PREFIX = "spring.datasource.hikari.";
+    private static final String[] SCHEMA_INDEXES = {"uq_likes_film_user", "idx_likes_user",
+            "uq_film_genre_film_genre", "idx_film_genre_genre", "idx_film_director_film",
+            "uq_friends_friend_1_friend_2", "idx_friends_friend_2", "idx_events_user_event", "idx_events_timestamp",
+            "idx_reviews_film_useful", "idx_reviews_useful_id"};
+
+    @Param("10000")
+    private int films;
+
+    @Param("5000")
+    private int users;
+
+    @Param("200")
+    int directors;
+
+    @Param("20")
+    private int likesPerUser;
+
+    @Param("10")
+    private int friendsPerUser;
+
+    @Param("3")
+    private int genresPerFilm;
+
+    @Param("1.0")
+    private double zipfExponent;
+
+    @Param("true")
+    private boolean indexes;
+
+    @Param("memory")
+    private String database;
+
+    @Param("jdbc")
+    private String storage;
+
+    private HikariDataSource dataSource;
+    private Path databaseDirectory;
+    FilmStorage filmStorage;
+    UserStorage userStorage;
+    DirectorStorage directorStorage;
+    JdbcTemplate jdbcTemplate;
+    final int[] filmIds = new int[SAMPLES_COUNT];
+    final int[] userIds = new int[SAMPLES_COUNT];
+    final int[] otherUserIds = new int[SAMPLES_COUNT];
+    final String[] titleWords = new String[SAMPLES_COUNT];
+    final int[] genreIds = new int[SAMPLES_COUNT];
+    final int[] years = new int[SAMPLES_COUNT];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = createDataSource();
+
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource("schema.sql"),
+                new ClassPathResource("data.sql"));
+        populator.setSqlScriptEncoding("UTF-8");
+        populator.execute(dataSource);
+        new SchemaMigrator(dataSource).migrate();
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        if (!indexes) {
+            for (String index : SCHEMA_INDEXES) {
+                jdbcTemplate.execute("DROP INDEX IF EXISTS " + index);
+            }
+        }
+
+        DataGenerator generator = new DataGenerator(films, users, directors, likesPerUser, friendsPerUser,
+                genresPerFilm, zipfExponent, 42);
+        generator.generate(jdbcTemplate);
+        jdbcTemplate.execute("ANALYZE");
+
+        ReferenceDataRegistry referenceData = new ReferenceDataRegistry(
+                new GenreDbStorage(jdbcTemplate, new GenreMapper()), new MpaDbStorage(jdbcTemplate, new MpaMapper()),
+                new StatusDbStorage(jdbcTemplate));
+        referenceData.refresh();
+        filmStorage = new FilmDbStorage(jdbcTemplate, new NamedParameterJdbcTemplate(jdbcTemplate),
+                new FilmMapper(), referenceData);
+        userStorage = new UserDbStorage(jdbcTemplate, new NamedParameterJdbcTemplate(jdbcTemplate), new UserMapper(),
+                referenceData);
+        directorStorage = new DirectorDbStorage(jdbcTemplate);
+
+        for (int i = 0; i < SAMPLES_COUNT; i++) {
+            filmIds[i] = generator.sampleFilmId();
+            userIds[i] = generator.sampleUserId();
+            otherUserIds[i] = generator.sampleUserId();
+            titleWords[i] = generator.sampleTitleWord();
+            genreIds[i] = generator.sampleGenreId();
+            years[i] = generator.sampleReleaseYear();
+        }
+
+        switch (storage) {
+            case "jdbc":
+                break;
+            case "memory":
+                copyToMemory();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown storage: " + storage);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        new JdbcTemplate(dataSource).execute("SHUTDOWN");
+        dataSource.close();
+        if (databaseDirectory != null) {
+            try (Stream<Path> files = Files.walk(databaseDirectory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private void copyToMemory() {
+        InMemoryDirectorStorage memoryDirectors = new InMemoryDirectorStorage();
+        Map<Long, Long> directorIdsMap = new HashMap<>();
+        directorStorage.getAllDirectors().stream()
+                .sorted(Comparator.comparingLong(Director::getId))
+                .forEach(director -> directorIdsMap.put(director.getId(),
+                        memoryDirectors.addDirector(new Director(0, director.getName())).getId()));
+
+        ReferenceDataRegistry referenceData = new ReferenceDataRegistry(new InMemoryGenreStorage(),
+                new InMemoryMpaStorage(), new InMemoryStatusStorage());
+        referenceData.refresh();
+
+        InMemoryUserStorage memoryUsers = new InMemoryUserStorage();
+        Map<Integer, Integer> userIdsMap = new HashMap<>();
+        for (User user : userStorage.getAll()) {
+            userIdsMap.put(user.getId(), memoryUsers.add(user));
+        }
+        userStorage.forEachFriendship((userId, friendId, status) ->
+                memoryUsers.addFriend(userIdsMap.get(userId), userIdsMap.get(friendId), status));
+
+        InMemoryFilmStorage memoryFilms = new InMemoryFilmStorage(memoryUsers, memoryDirectors, referenceData);
+        Map<Integer, Integer> filmIdsMap = new HashMap<>();
+        filmStorage.forEachFilm(film -> {
+            Set<Director> directors = new HashSet<>();
+            for (Director director : film.getDirectors()) {
+                directors.add(new Director(directorIdsMap.get(director.getId()), director.getName()));
+            }
+            film.setDirectors(directors);
+            filmIdsMap.put(film.getId(), memoryFilms.add(film));
+        });
+        filmStorage.forEachLike((userId, filmId) -> memoryFilms.addLike(filmIdsMap.get(filmId), userIdsMap.get(userId)));
+
+        for (int i = 0; i < SAMPLES_COUNT; i++) {
+            filmIds[i] = filmIdsMap.get(filmIds[i]);
+            userIds[i] = userIdsMap.get(userIds[i]);
+            otherUserIds[i] = userIdsMap.get(otherUserIds[i]);
+        }
+        filmStorage = memoryFilms;
+        userStorage = memoryUsers;
+        directorStorage = memoryDirectors;
+    }
+
+    private HikariDataSource createDataSource() {
+        HikariConfig config = new HikariConfig();
+        config.setUsername("sa");
+        switch (database) {
+            case "memory":
+                config.setJdbcUrl("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+                break;
+            case "file-default":
+                config.setJdbcUrl("jdbc:h2:file:" + createDatabaseDirectory().resolve("filmorate"));
+                break;
+            case "file-tuned":
+                applyPerformanceProfile(config);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown database: " + database);
+        }
+        return new HikariDataSource(config);
+    }
+
+    private void applyPerformanceProfile(HikariConfig config) {
+        Properties properties;
+        try {
+            properties = PropertiesLoaderUtils.loadProperties(new ClassPathResource("application-perf.properties"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        String url = properties.getProperty("spring.datasource.url");
+        config.setJdbcUrl("jdbc:h2:file:" + createDatabaseDirectory().resolve("filmorate")
+                + url.substring(url.indexOf(';')));
+        Properties hikari = new Properties();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(HIKARI_PREFIX)) {
+                hikari.setProperty(toCamelCase(name.substring(HIKARI_PREFIX.length())), properties.getProperty(name));
+            }
+        }
+        PropertyElf.setTargetFromProperties(config, hikari);
+        int size = PerformanceProfileConfiguration.poolSize(Runtime.getRuntime().availableProcessors(),
+                Integer.parseInt(properties.getProperty("filmorate.datasource.connections-per-core")));
+        config.setMaximumPoolSize(size);
+        config.setMinimumIdle(size);
+    }
+
+    private Path createDatabaseDirectory() {
+        try {
+            databaseDirectory = Files.createTempDirectory("filmorate-jmh");
+            return databaseDirectory;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String toCamelCase(String name) {
+        StringBuilder result = new StringBuilder(name.length());
+        boolean upper = false;
+        for (char c : name.toCharArray()) {
+            if (c == '-') {
+                upper = true;
+            } else {
+                result.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return result.toString();
+    }
+}
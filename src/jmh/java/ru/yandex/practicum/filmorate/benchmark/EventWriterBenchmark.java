@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.yandex.practicum.filmorate.event.EventWriter;
+import ru.yandex.practicum.filmorate.event.OverflowPolicy;
+import ru.yandex.practicum.filmorate.mapper.EventMapper;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventTypeStatus;
+import ru.yandex.practicum.filmorate.model.OperationStatus;
+import ru.yandex.practicum.filmorate.storage.EventDbStorage;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventWriterBenchmark {
+    @Param("500")
+    private int batchSize;
+
+    private EventDbStorage eventStorage;
+    private EventWriter eventWriter;
+    private int eventIds;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void startWriter(DatabaseState state) {
+        eventStorage = new EventDbStorage(state.jdbcTemplate, new NamedParameterJdbcTemplate(state.jdbcTemplate),
+                new EventMapper());
+        eventWriter = new EventWriter(eventStorage, 10000, batchSize, Duration.ofMillis(50), OverflowPolicy.BLOCK, 1);
+        eventWriter.start();
+        eventIds = 1_000_000_000;
+    }
+
+    @TearDown(Level.Iteration)
+    public void flushWriter() {
+        eventWriter.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopWriter() throws InterruptedException {
+        eventWriter.shutdown();
+    }
+
+    private Event nextEvent(DatabaseState state) {
+        cursor = (cursor + 1) % DatabaseState.SAMPLES_COUNT;
+        return Event.builder()
+                .timestamp(System.currentTimeMillis())
+                .userId(state.userIds[cursor])
+                .entityId(state.otherUserIds[cursor])
+                .eventType(EventTypeStatus.FRIEND)
+                .operation(OperationStatus.ADD)
+                .build();
+    }
+
+    @Benchmark
+    public void addSynchronously(DatabaseState state) {
+        Event event = nextEvent(state);
+        event.setEventId(++eventIds);
+        eventStorage.add(event);
+    }
+
+    @Benchmark
+    public boolean writeToQueue(DatabaseState state) {
+        return eventWriter.write(nextEvent(state));
+    }
+}
@@ -0,0 +1,122 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.yandex.practicum.filmorate.event.EventWriter;
+import ru.yandex.practicum.filmorate.event.OverflowPolicy;
+import ru.yandex.practicum.filmorate.index.FriendsFeedIndex;
+import ru.yandex.practicum.filmorate.mapper.EventMapper;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventTypeStatus;
+import ru.yandex.practicum.filmorate.model.OperationStatus;
+import ru.yandex.practicum.filmorate.storage.EventDbStorage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeedBenchmark {
+    @Param("20000")
+    private int eventsPerUser;
+
+    @Param("100")
+    private int limit;
+
+    @Param("50")
+    private int eventsPerFriend;
+
+    private JdbcTemplate jdbcTemplate;
+    private EventDbStorage eventStorage;
+    private EventMapper eventMapper;
+    private int hotUserId;
+    private int archivedUserId;
+    private FriendsFeedIndex friendsFeedIndex;
+    private int[] readerIds;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void generateEvents(DatabaseState state) {
+        jdbcTemplate = state.jdbcTemplate;
+        eventMapper = new EventMapper();
+        eventStorage = new EventDbStorage(jdbcTemplate, new NamedParameterJdbcTemplate(jdbcTemplate), eventMapper);
+        hotUserId = state.userIds[0];
+        archivedUserId = hotUserId == state.userIds[1] ? state.otherUserIds[0] : state.userIds[1];
+
+        int eventId = eventStorage.getMaxEventId();
+        List<Event> events = new ArrayList<>(eventsPerUser * 2);
+        for (int i = 0; i < eventsPerUser; i++) {
+            events.add(new Event(++eventId, (long) i, archivedUserId, i, EventTypeStatus.LIKE, OperationStatus.ADD));
+            events.add(new Event(++eventId, (long) i + eventsPerUser, hotUserId, i, EventTypeStatus.FRIEND,
+                    OperationStatus.ADD));
+        }
+        eventStorage.addAll(events);
+        eventStorage.archiveEventsBefore(eventsPerUser, Integer.MAX_VALUE);
+
+        List<Integer> userIds = jdbcTemplate.queryForList("SELECT id FROM users", Integer.class);
+        events.clear();
+        for (int i = 0; i < eventsPerFriend; i++) {
+            for (int userId : userIds) {
+                events.add(new Event(++eventId, 3L * eventsPerUser + eventId, userId, i, EventTypeStatus.LIKE,
+                        OperationStatus.ADD));
+            }
+        }
+        eventStorage.addAll(events);
+
+        readerIds = state.otherUserIds;
+        friendsFeedIndex = new FriendsFeedIndex(state.userStorage, eventStorage,
+                new EventWriter(eventStorage, 1, 1, Duration.ofSeconds(1), OverflowPolicy.BLOCK, 1), limit);
+    }
+
+    private int nextReaderId() {
+        cursor = (cursor + 1) % DatabaseState.SAMPLES_COUNT;
+        return readerIds[cursor];
+    }
+
+    @Benchmark
+    public List<Event> fullFeed() {
+        return jdbcTemplate.query("SELECT * FROM events WHERE user_id = ? ORDER BY event_id", eventMapper,
+                hotUserId);
+    }
+
+    @Benchmark
+    public List<Event> latestPage() {
+        return eventStorage.findLatestEventsByUserId(hotUserId, Integer.MAX_VALUE, Long.MIN_VALUE, limit);
+    }
+
+    @Benchmark
+    public List<Event> friendsFeedBySql() {
+        return jdbcTemplate.query("SELECT e.* FROM events AS e " +
+                "WHERE e.user_id IN (SELECT friend_2_id FROM friends WHERE friend_1_id = ?) " +
+                "ORDER BY e.event_id DESC LIMIT ?", eventMapper, nextReaderId(), limit);
+    }
+
+    @Benchmark
+    public List<Event> friendsFeedFromRingBuffers() {
+        return friendsFeedIndex.getLatestEvents(nextReaderId(), limit);
+    }
+
+    @Benchmark
+    public List<Event> latestArchivedPage() {
+        return eventStorage.findLatestArchivedEventsByUserId(archivedUserId, Integer.MAX_VALUE, Long.MIN_VALUE,
+                limit);
+    }
+}
@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(FilmIngestionBenchmark.BATCH_SIZE)
+public class FilmIngestionBenchmark {
+    static final int BATCH_SIZE = 1000;
+
+    private final Random random = new Random(42);
+    private int sequence;
+    private List<Film> films;
+
+    @Setup(Level.Invocation)
+    public void createFilms(DatabaseState state) {
+        films = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Film film = new Film("ingested " + sequence++, "Description of ingested film",
+                    LocalDate.of(state.years[i], 1, 1), 90 + random.nextInt(60), new Mpa(random.nextInt(5) + 1, null));
+            film.addGenre(new Genre(state.genreIds[i], null));
+            film.addGenre(new Genre(state.genreIds[(i + 1) % DatabaseState.SAMPLES_COUNT], null));
+            film.addDirector(new Director(random.nextInt(state.directors) + 1, null));
+            films.add(film);
+        }
+    }
+
+    @Benchmark
+    public void addEachFilm(DatabaseState state, Blackhole blackhole) {
+        for (Film film : films) {
+            blackhole.consume(state.filmStorage.add(film));
+        }
+    }
+
+    @Benchmark
+    public List<Integer> addAllFilms(DatabaseState state) {
+        return state.filmStorage.addAll(films);
+    }
+}
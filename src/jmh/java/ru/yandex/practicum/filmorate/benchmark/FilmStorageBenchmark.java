@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmStorageBenchmark {
+    private static final int COUNT = 10;
+
+    private int cursor;
+
+    private int next() {
+        cursor = (cursor + 1) % DatabaseState.SAMPLES_COUNT;
+        return cursor;
+    }
+
+    @Benchmark
+    public Collection<Film> getBestFilms(DatabaseState state) {
+        return state.filmStorage.getBestFilms(COUNT);
+    }
+
+    @Benchmark
+    public List<Film> getFilteredBestFilmsByGenre(DatabaseState state) {
+        return state.filmStorage.getFilteredBestFilms(COUNT, state.genreIds[next()], null);
+    }
+
+    @Benchmark
+    public List<Film> getFilteredBestFilmsByYear(DatabaseState state) {
+        return state.filmStorage.getFilteredBestFilms(COUNT, null, state.years[next()]);
+    }
+
+    @Benchmark
+    public List<Film> getFilteredBestFilmsByGenreAndYear(DatabaseState state) {
+        int i = next();
+        return state.filmStorage.getFilteredBestFilms(COUNT, state.genreIds[i], state.years[i]);
+    }
+
+    @Benchmark
+    public List<Film> getSortedFilmByTitle(DatabaseState state) {
+        return state.filmStorage.getSortedFilmByQuery(state.titleWords[next()], "title");
+    }
+
+    @Benchmark
+    public List<Film> getSortedFilmByTitleAndDirector(DatabaseState state) {
+        return state.filmStorage.getSortedFilmByQuery(state.titleWords[next()], "title,director");
+    }
+
+    @Benchmark
+    public Collection<Film> getCommonFilms(DatabaseState state) {
+        int i = next();
+        return state.filmStorage.getCommonFilms(state.userIds[i], state.otherUserIds[i]);
+    }
+
+    @Benchmark
+    public Collection<Film> getRecommendations(DatabaseState state) {
+        return state.filmStorage.getRecommendations(state.userIds[next()]);
+    }
+}
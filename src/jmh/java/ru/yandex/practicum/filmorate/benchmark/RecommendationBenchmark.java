@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.index.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecommendationBenchmark {
+    private static final int MAX_RESULTS = 20;
+
+    private FilmSimilarityIndex similarityIndex;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void buildIndex(DatabaseState state) {
+        similarityIndex = new FilmSimilarityIndex(state.filmStorage, 50, 10000, Duration.ZERO);
+        similarityIndex.rebuild();
+    }
+
+    private int next() {
+        cursor = (cursor + 1) % DatabaseState.SAMPLES_COUNT;
+        return cursor;
+    }
+
+    @Benchmark
+    public Collection<Film> getRecommendationsBySql(DatabaseState state) {
+        return state.filmStorage.getRecommendations(state.userIds[next()]);
+    }
+
+    @Benchmark
+    public List<Integer> getRecommendedFilmIds(DatabaseState state) {
+        return similarityIndex.getRecommendedFilmIds(state.userIds[next()], MAX_RESULTS);
+    }
+
+    @Benchmark
+    public Collection<Film> getRecommendationsByIndex(DatabaseState state) {
+        return state.filmStorage.getFilmsByIds(similarityIndex.getRecommendedFilmIds(state.userIds[next()],
+                MAX_RESULTS));
+    }
+}
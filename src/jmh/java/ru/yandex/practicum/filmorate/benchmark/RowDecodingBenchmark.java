@@ -0,0 +1,168 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Status;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowDecodingBenchmark {
+    private static final int ROWS_COUNT = 100;
+    private static final int CHILDREN_PER_ROW = 10;
+    private static final String[] GENRE_NAMES = {"Комедия", "Драма", "Мультфильм", "Триллер", "Документальный",
+            "Боевик"};
+    private static final Map<String, Status> STATUSES_BY_NAME = Map.of(
+            "Confirmed", Status.CONFIRMED,
+            "Unconfirmed", Status.UNCONFIRMED);
+
+    private SimpleResultSet aggregatedFriends;
+    private SimpleResultSet friendRows;
+    private SimpleResultSet aggregatedGenres;
+    private SimpleResultSet genreRows;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        aggregatedFriends = createResultSet("friends_data");
+        friendRows = createResultSet("friend_1_id", "friend_2_id", "status_name");
+        aggregatedGenres = createResultSet("genres_data");
+        genreRows = createResultSet("film_id", "id", "name");
+
+        for (int id = 1; id <= ROWS_COUNT; id++) {
+            Object[] friendsData = new Object[CHILDREN_PER_ROW];
+            Object[] genresData = new Object[CHILDREN_PER_ROW];
+            for (int i = 0; i < CHILDREN_PER_ROW; i++) {
+                int friendId = id * CHILDREN_PER_ROW + i;
+                String statusName = i % 2 == 0 ? "Confirmed" : "Unconfirmed";
+                int genreId = i % GENRE_NAMES.length + 1;
+
+                friendsData[i] = friendId + " " + statusName;
+                friendRows.addRow(id, friendId, statusName);
+                genresData[i] = genreId + " " + GENRE_NAMES[genreId - 1];
+                genreRows.addRow(id, genreId, GENRE_NAMES[genreId - 1]);
+            }
+            aggregatedFriends.addRow((Object) friendsData);
+            aggregatedGenres.addRow((Object) genresData);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_COUNT)
+    public List<User> friendsFromSplitStrings() throws SQLException {
+        aggregatedFriends.beforeFirst();
+        List<User> users = new ArrayList<>(ROWS_COUNT);
+        int id = 0;
+        while (aggregatedFriends.next()) {
+            User user = new User(++id, null, null, null, null);
+            ResultSet friendsDataResultSet = arrayResultSet(aggregatedFriends.getObject("friends_data"));
+            while (friendsDataResultSet.next()) {
+                String[] data = friendsDataResultSet.getString(2).split(" ");
+                user.addFriend(Integer.parseInt(data[0]), Status.valueOf(data[1].toUpperCase()));
+            }
+            friendsDataResultSet.close();
+            users.add(user);
+        }
+        return users;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_COUNT)
+    public Map<Integer, User> friendsFromChildRows() throws SQLException {
+        friendRows.beforeFirst();
+        Map<Integer, User> usersById = new HashMap<>();
+        for (int id = 1; id <= ROWS_COUNT; id++) {
+            usersById.put(id, new User(id, null, null, null, null));
+        }
+        while (friendRows.next()) {
+            usersById.get(friendRows.getInt("friend_1_id")).addFriend(friendRows.getInt("friend_2_id"),
+                    STATUSES_BY_NAME.get(friendRows.getString("status_name")));
+        }
+        return usersById;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_COUNT)
+    public List<Film> genresFromSplitStrings() throws SQLException {
+        aggregatedGenres.beforeFirst();
+        List<Film> films = new ArrayList<>(ROWS_COUNT);
+        int id = 0;
+        while (aggregatedGenres.next()) {
+            Film film = createFilm(++id);
+            ResultSet genresDataResultSet = arrayResultSet(aggregatedGenres.getObject("genres_data"));
+            while (genresDataResultSet.next()) {
+                String[] data = genresDataResultSet.getString(2).split(" ");
+                film.addGenre(new Genre(Integer.parseInt(data[0]), data[1]));
+            }
+            genresDataResultSet.close();
+            films.add(film);
+        }
+        return films;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_COUNT)
+    public Map<Integer, Film> genresFromChildRows() throws SQLException {
+        genreRows.beforeFirst();
+        Map<Integer, Film> filmsById = new HashMap<>();
+        for (int id = 1; id <= ROWS_COUNT; id++) {
+            filmsById.put(id, createFilm(id));
+        }
+        while (genreRows.next()) {
+            filmsById.get(genreRows.getInt("film_id"))
+                    .addGenre(new Genre(genreRows.getInt("id"), genreRows.getString("name")));
+        }
+        return filmsById;
+    }
+
+    private static ResultSet arrayResultSet(Object array) {
+        SimpleResultSet resultSet = new SimpleResultSet();
+        resultSet.addColumn("INDEX", Types.BIGINT, 0, 0);
+        resultSet.addColumn("VALUE", Types.VARCHAR, 0, 0);
+        Object[] values = (Object[]) array;
+        for (int i = 0; i < values.length; i++) {
+            resultSet.addRow((long) i + 1, values[i]);
+        }
+        return resultSet;
+    }
+
+    private static Film createFilm(int id) {
+        return new Film(id, null, null, null, 0, new Mpa(1, null));
+    }
+
+    private static SimpleResultSet createResultSet(String... columns) {
+        SimpleResultSet resultSet = new SimpleResultSet();
+        resultSet.setAutoClose(false);
+        for (String column : columns) {
+            resultSet.addColumn(column, column.endsWith("_data") ? Types.ARRAY
+                    : column.endsWith("name") ? Types.VARCHAR : Types.INTEGER, 0, 0);
+        }
+        return resultSet;
+    }
+}
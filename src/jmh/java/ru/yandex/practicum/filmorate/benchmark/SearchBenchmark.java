@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FilmSuggestionIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+    @Param("100")
+    private int limit;
+
+    private FilmSearchIndex searchIndex;
+    private FilmSuggestionIndex suggestionIndex;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void buildIndex(DatabaseState state) {
+        FilmPopularityIndex popularityIndex = new FilmPopularityIndex(state.filmStorage);
+        popularityIndex.load();
+        searchIndex = new FilmSearchIndex(state.filmStorage, state.directorStorage,
+                popularityIndex);
+        searchIndex.load();
+        suggestionIndex = new FilmSuggestionIndex(state.filmStorage, state.directorStorage);
+        suggestionIndex.load();
+    }
+
+    private String nextQuery(DatabaseState state) {
+        cursor = (cursor + 1) % DatabaseState.SAMPLES_COUNT;
+        String word = state.titleWords[cursor];
+        return word.substring(0, Math.min(word.length(), 4 + cursor % 3));
+    }
+
+    @Benchmark
+    public List<Film> searchBySql(DatabaseState state) {
+        return state.filmStorage.getSortedFilmByQuery(nextQuery(state), "title,director");
+    }
+
+    @Benchmark
+    public List<Integer> searchFilmIds(DatabaseState state) {
+        return searchIndex.search(nextQuery(state), true, true, limit);
+    }
+
+    @Benchmark
+    public List<Film> searchByIndex(DatabaseState state) {
+        return state.filmStorage.getFilmsByIds(searchIndex.search(nextQuery(state), true, true, limit));
+    }
+
+    @Benchmark
+    public List<Suggestion> suggest(DatabaseState state) {
+        cursor = (cursor + 1) % DatabaseState.SAMPLES_COUNT;
+        String word = state.titleWords[cursor];
+        return suggestionIndex.suggest(word.substring(0, Math.min(word.length(), 1 + cursor % 4)));
+    }
+}
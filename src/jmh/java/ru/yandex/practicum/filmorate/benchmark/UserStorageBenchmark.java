@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.index.FriendshipGraph;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserStorageBenchmark {
+    private FriendshipGraph friendshipGraph;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void loadGraph(DatabaseState state) {
+        friendshipGraph = new FriendshipGraph(state.userStorage);
+        friendshipGraph.load();
+    }
+
+    private int next() {
+        cursor = (cursor + 1) % DatabaseState.SAMPLES_COUNT;
+        return cursor;
+    }
+
+    @Benchmark
+    public Collection<User> getFriends(DatabaseState state) {
+        return state.userStorage.getFriends(state.userIds[next()]);
+    }
+
+    @Benchmark
+    public Collection<User> getCommonFriends(DatabaseState state) {
+        int i = next();
+        return state.userStorage.getCommonFriends(state.userIds[i], state.otherUserIds[i]);
+    }
+
+    @Benchmark
+    public Collection<User> getFriendsFromGraph(DatabaseState state) {
+        return hydrate(state, friendshipGraph.getFriendIds(state.userIds[next()]));
+    }
+
+    @Benchmark
+    public Collection<User> getCommonFriendsFromGraph(DatabaseState state) {
+        int i = next();
+        return hydrate(state, friendshipGraph.getCommonFriendIds(state.userIds[i], state.otherUserIds[i]));
+    }
+
+    @Benchmark
+    public int[] getCommonFriendIdsFromGraph(DatabaseState state) {
+        int i = next();
+        return friendshipGraph.getCommonFriendIds(state.userIds[i], state.otherUserIds[i]);
+    }
+
+    private Collection<User> hydrate(DatabaseState state, int[] userIds) {
+        return state.userStorage.getUsers(Arrays.stream(userIds).boxed().collect(Collectors.toList()));
+    }
+}
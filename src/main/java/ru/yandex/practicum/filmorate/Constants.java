@@ -15,7 +15,10 @@ public class Constants {
             "всех данных запроса";
     public static final String FILM_ALREADY_EXISTS_MESSAGE = "Фильм с такими именем, описанием, датой релиза и" +
             " длительностью уже существует";
+    public static final String DUPLICATE_ENTRY_MESSAGE = "Такая запись уже существует";
     public static final String REVIEW_NOT_FOUND_MESSAGE = "Отзыв с идентификатором %d не найден";
+    public static final String EMPTY_SEARCH_QUERY_MESSAGE = "Строка поиска не может быть пустой";
+    public static final String INVALID_PAGE_CURSOR_MESSAGE = "Некорректный курсор страницы: %s";
     public static final String DIRECTOR_NOT_FOUND = "Режиссер с идентификатором %d не найден";
     public static final String USER_ALREADY_LEFT_REVIEW_FOR_FILM_MESSAGE = "Пользователь с id = %d уже оставлял ревью " +
             "фильму с id = %d";
@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+@Component
+@Profile(PerformanceProfileConfiguration.PROFILE)
+@Slf4j
+public class DataSourceSelfCheck {
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public DataSourceSelfCheck(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void check() {
+        if (dataSource instanceof HikariDataSource) {
+            HikariDataSource hikari = (HikariDataSource) dataSource;
+            log.info("Пул соединений {}: url = {}, maximumPoolSize = {}, minimumIdle = {}, connectionTimeout = {} мс, " +
+                            "validationTimeout = {} мс, keepaliveTime = {} мс, leakDetectionThreshold = {} мс",
+                    hikari.getPoolName(), hikari.getJdbcUrl(), hikari.getMaximumPoolSize(), hikari.getMinimumIdle(),
+                    hikari.getConnectionTimeout(), hikari.getValidationTimeout(), hikari.getKeepaliveTime(),
+                    hikari.getLeakDetectionThreshold());
+
+            if (hikari.getMaximumPoolSize() < Runtime.getRuntime().availableProcessors()) {
+                log.warn("Размер пула соединений {} меньше числа ядер {}", hikari.getMaximumPoolSize(),
+                        Runtime.getRuntime().availableProcessors());
+            }
+            if (hikari.getLeakDetectionThreshold() == 0) {
+                log.warn("Обнаружение утечек соединений в пуле {} выключено", hikari.getPoolName());
+            }
+        } else {
+            log.warn("Источник данных {} не является пулом HikariCP, настройки пула не применены",
+                    dataSource.getClass().getName());
+        }
+
+        jdbcTemplate.query(
+                "SELECT setting_name, setting_value " +
+                        "FROM information_schema.settings " +
+                        "WHERE setting_name LIKE '%CACHE%' " +
+                        "   OR setting_name LIKE '%LOCK%' " +
+                        "   OR setting_name LIKE '%PAGE%' " +
+                        "ORDER BY setting_name;",
+                (RowCallbackHandler) rs -> log.info("Настройка H2 {} = {}", rs.getString(1), rs.getString(2)));
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+@Configuration
+@Profile(PerformanceProfileConfiguration.PROFILE)
+@Slf4j
+public class PerformanceProfileConfiguration {
+    public static final String PROFILE = "perf";
+
+    public static int poolSize(int cores, int connectionsPerCore) {
+        return Math.max(2, cores * connectionsPerCore + 1);
+    }
+
+    @Bean
+    public static BeanPostProcessor hikariPoolSizer(
+            @Value("${filmorate.datasource.connections-per-core:2}") int connectionsPerCore) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource) {
+                    HikariDataSource dataSource = (HikariDataSource) bean;
+                    int cores = Runtime.getRuntime().availableProcessors();
+                    int size = poolSize(cores, connectionsPerCore);
+                    dataSource.setMaximumPoolSize(size);
+                    dataSource.setMinimumIdle(size);
+                    log.info("Размер пула соединений {} рассчитан по числу ядер: {}", size, cores);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.StorageProfiles;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@Profile(StorageProfiles.DATABASE)
+@DependsOnDatabaseInitialization
+@Slf4j
+public class SchemaMigrator {
+    private static final List<String> MIGRATIONS = List.of("db/migration/V1__deduplicate_links.sql");
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public SchemaMigrator(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @PostConstruct
+    public void migrate() {
+        for (int i = 0; i < MIGRATIONS.size(); i++) {
+            int version = i + 1;
+            Integer applied = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM schema_migrations WHERE version = ?;", Integer.class, version);
+            if (applied != null && applied > 0) {
+                continue;
+            }
+
+            long start = System.nanoTime();
+            ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource(MIGRATIONS.get(i)));
+            populator.setSqlScriptEncoding("UTF-8");
+            populator.execute(dataSource);
+            jdbcTemplate.update("INSERT INTO schema_migrations (version) VALUES (?);", version);
+            log.info("Применена миграция схемы {} ({}) за {} мс", version, MIGRATIONS.get(i),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.cache.CacheStats;
+import ru.yandex.practicum.filmorate.storage.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.StorageProfiles;
+
+@RestController
+@Profile(StorageProfiles.DATABASE)
+@Slf4j
+@RequestMapping("/cache")
+@ConditionalOnProperty(value = "filmorate.cache.films.enabled", havingValue = "true")
+public class CacheController {
+    private final CachingFilmStorage cachingFilmStorage;
+
+    public CacheController(CachingFilmStorage cachingFilmStorage) {
+        this.cachingFilmStorage = cachingFilmStorage;
+    }
+
+    @GetMapping("/films")
+    public CacheStats getFilmCacheStats() {
+        log.info("Попытка получить статистику кэша фильмов");
+        return cachingFilmStorage.getStats();
+    }
+}
@@ -13,7 +13,7 @@ import ru.yandex.practicum.filmorate.model.ErrorResponse;
 
 import javax.validation.ValidationException;
 
-import static ru.yandex.practicum.filmorate.Constants.FILM_ALREADY_EXISTS_MESSAGE;
+import static ru.yandex.practicum.filmorate.Constants.DUPLICATE_ENTRY_MESSAGE;
 import static ru.yandex.practicum.filmorate.Constants.UNKNOWN_ERROR_MESSAGE;
 
 @RestControllerAdvice
@@ -29,9 +29,8 @@ public class ErrorHandler {
     @ExceptionHandler
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleValidationException(DuplicateKeyException e) {
-        log.warn("Выполнена попытка создать фильм, имя, описание, дата релиза и длительность которого совпадают с " +
-                "фильмом из бд. {}", e.getMessage());
-        return new ErrorResponse(FILM_ALREADY_EXISTS_MESSAGE);
+        log.warn("Выполнена попытка добавить запись, нарушающую уникальность данных в бд. {}", e.getMessage());
+        return new ErrorResponse(DUPLICATE_ENTRY_MESSAGE);
     }
 
     @ExceptionHandler
@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.event.EventWriterStats;
+import ru.yandex.practicum.filmorate.service.EventService;
+
+@RestController
+@Slf4j
+@RequestMapping("/events")
+public class EventController {
+    private final EventService eventService;
+
+    public EventController(EventService eventService) {
+        this.eventService = eventService;
+    }
+
+    @GetMapping("/writer")
+    public EventWriterStats getWriterStats() {
+        log.info("Попытка получить статистику записи истории действий");
+        return eventService.getWriterStats();
+    }
+}
@@ -1,6 +1,12 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,11 +18,20 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.Positive;
-import java.util.Collection;
+import javax.validation.constraints.PositiveOrZero;
+import javax.validation.constraints.Size;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -25,16 +40,47 @@ import java.util.List;
 @Validated
 public class FilmController {
     private static final String DEFAULT_BEST_FILMS_COUNT = "10";
+    private static final String DEFAULT_LIKES_OFFSET = "0";
+    private static final String DEFAULT_LIKES_LIMIT = "100";
+    private static final String FILMS_CURSOR = "films";
+    private static final int MAX_BATCH_FILMS_COUNT = 10000;
     private final FilmService filmService;
+    private final ObjectWriter filmWriter;
 
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, ObjectMapper objectMapper) {
         this.filmService = filmService;
+        this.filmWriter = objectMapper.writerFor(Film.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     @GetMapping
-    public Collection<Film> getAll() {
-        log.info("Попытка получить список фильмов");
-        return filmService.getAll();
+    public ResponseEntity<List<Film>> getAll(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = PageCursor.DEFAULT_PAGE_LIMIT)
+            @Positive @Max(PageCursor.MAX_PAGE_LIMIT) int limit) {
+        log.info("Попытка получить список фильмов, after = {}, limit = {}", after, limit);
+        int afterId = PageCursor.decode(after, FILMS_CURSOR, 0)[0];
+        return PageCursor.page(filmService.getFilmsPage(afterId, limit + 1), limit, FILMS_CURSOR,
+                film -> new int[]{film.getId()});
+    }
+
+    @GetMapping("/export")
+    public void export(HttpServletResponse response) throws IOException {
+        log.info("Попытка выгрузить каталог фильмов");
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        OutputStream out = response.getOutputStream();
+        filmService.forEachFilm(film -> {
+            try {
+                filmWriter.writeValue(out, film);
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
     }
 
     @PostMapping
@@ -43,6 +89,12 @@ public class FilmController {
         return filmService.createFilm(film);
     }
 
+    @PostMapping("/batch")
+    public List<Integer> createAll(@RequestBody @NotEmpty @Size(max = MAX_BATCH_FILMS_COUNT) List<@Valid Film> films) {
+        log.info("Попытка создать фильмов: {}", films.size());
+        return filmService.createFilms(films);
+    }
+
     @PutMapping
     public Film update(@Valid @RequestBody Film film) {
         log.info("Попытка обновить информацию о фильме: {}", film);
@@ -73,6 +125,14 @@ public class FilmController {
         filmService.deleteLike(filmId, userId);
     }
 
+    @GetMapping("/{filmId}/likes")
+    public List<Integer> getLikes(@PathVariable int filmId,
+                                  @RequestParam(defaultValue = DEFAULT_LIKES_OFFSET) @PositiveOrZero int offset,
+                                  @RequestParam(defaultValue = DEFAULT_LIKES_LIMIT) @Positive int limit) {
+        log.info("Попытка получить лайки фильма с id = {}, offset = {}, limit = {}", filmId, offset, limit);
+        return filmService.getFilmLikes(filmId, offset, limit);
+    }
+
     @GetMapping("/popular")
     public List<Film> getFilteredBestFilms(
             @RequestParam(defaultValue = DEFAULT_BEST_FILMS_COUNT)
@@ -97,12 +157,20 @@ public class FilmController {
 
     @GetMapping("/search")
     public List<Film> getSortedFilmByQuery(@RequestParam(value = "query", required = false) String query,
-                                           @RequestParam(value = "by", required = false) String by) {
+                                           @RequestParam(value = "by", required = false) String by,
+                                           @RequestParam(defaultValue = PageCursor.DEFAULT_PAGE_LIMIT)
+                                           @Positive @Max(PageCursor.MAX_PAGE_LIMIT) int limit) {
         if (query == null && by == null) {
             log.info("Попытка получить топ 10 фильмов по популярности");
             return filmService.getBestFilmsList(10);
         }
         log.info("Попытка получить фильмы, отсортированных по {}, имеющих подстроку {}", by, query);
-        return filmService.getSortedFilmByQuery(query, by);
+        return filmService.getSortedFilmByQuery(query, by, limit);
+    }
+
+    @GetMapping("/search/suggest")
+    public List<Suggestion> getSuggestions(@RequestParam String prefix) {
+        log.debug("Попытка получить подсказки для поиска по префиксу {}", prefix);
+        return filmService.getSuggestions(prefix);
     }
 }
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.ResponseEntity;
+
+import javax.validation.ValidationException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import static ru.yandex.practicum.filmorate.Constants.INVALID_PAGE_CURSOR_MESSAGE;
+
+final class PageCursor {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String DEFAULT_PAGE_LIMIT = "1000";
+    static final long MAX_PAGE_LIMIT = 1000;
+    private static final String SEPARATOR = ":";
+
+    private PageCursor() {
+    }
+
+    static int[] decode(String cursor, String resource, int... defaultKeys) {
+        if (cursor == null) {
+            return defaultKeys;
+        }
+
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split(SEPARATOR);
+            if (parts.length != defaultKeys.length + 1 || !parts[0].equals(resource)) {
+                throw new ValidationException(String.format(INVALID_PAGE_CURSOR_MESSAGE, cursor));
+            }
+
+            int[] keys = new int[defaultKeys.length];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = Integer.parseInt(parts[i + 1]);
+            }
+            return keys;
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException(String.format(INVALID_PAGE_CURSOR_MESSAGE, cursor));
+        }
+    }
+
+    static String encode(String resource, int... keys) {
+        StringBuilder cursor = new StringBuilder(resource);
+        for (int key : keys) {
+            cursor.append(SEPARATOR).append(key);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(cursor.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static <T> ResponseEntity<List<T>> page(List<T> items, int limit, String resource, Function<T, int[]> keys) {
+        if (items.size() <= limit) {
+            return ResponseEntity.ok(items);
+        }
+
+        List<T> page = items.subList(0, limit);
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, encode(resource, keys.apply(page.get(limit - 1))))
+                .body(page);
+    }
+}
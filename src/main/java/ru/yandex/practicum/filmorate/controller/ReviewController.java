@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -15,6 +16,7 @@ import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.service.ReviewService;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.Positive;
 import java.util.List;
 
@@ -24,6 +26,7 @@ import java.util.List;
 @Validated
 public class ReviewController {
     private static final String DEFAULT_REVIEWS_COUNT = "10";
+    private static final String REVIEWS_CURSOR = "reviews";
     private final ReviewService reviewService;
 
     @PostMapping
@@ -47,13 +50,18 @@ public class ReviewController {
     }
 
     @GetMapping
-    public List<Review> getReviewsByFilmIdOrGetAll(
+    public ResponseEntity<List<Review>> getReviewsByFilmIdOrGetAll(
             @RequestParam(value = "filmId", required = false) Integer filmId,
-            @RequestParam(value = "count", defaultValue = DEFAULT_REVIEWS_COUNT) @Positive Integer count) {
+            @RequestParam(value = "count", defaultValue = DEFAULT_REVIEWS_COUNT) @Positive Integer count,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", defaultValue = PageCursor.DEFAULT_PAGE_LIMIT)
+            @Positive @Max(PageCursor.MAX_PAGE_LIMIT) int limit) {
         if (filmId == null) {
-            return reviewService.getAllReviews();
+            int[] afterKeys = PageCursor.decode(after, REVIEWS_CURSOR, Integer.MAX_VALUE, 0);
+            return PageCursor.page(reviewService.getReviewsPage(afterKeys[0], afterKeys[1], limit + 1), limit,
+                    REVIEWS_CURSOR, review -> new int[]{review.getUseful(), review.getReviewId()});
         }
-        return reviewService.getReviewsByFilmId(filmId, count);
+        return ResponseEntity.ok(reviewService.getReviewsByFilmId(filmId, count));
     }
 
     @PutMapping("/{id}/like/{userId}")
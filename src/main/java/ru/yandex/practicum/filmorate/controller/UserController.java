@@ -1,6 +1,8 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.User;
@@ -8,13 +10,19 @@ import ru.yandex.practicum.filmorate.service.EventService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Positive;
 import java.util.Collection;
 import java.util.List;
 
 @RestController
 @Slf4j
 @RequestMapping("/users")
+@Validated
 public class UserController {
+    private static final String USERS_CURSOR = "users";
+    private static final String DEFAULT_SUGGESTIONS_LIMIT = "10";
+    private static final long MAX_SUGGESTIONS_LIMIT = 100;
     private final UserService userService;
     private final EventService eventService;
 
@@ -24,9 +32,14 @@ public class UserController {
     }
 
     @GetMapping
-    public Collection<User> getAll() {
-        log.info("Попытка получить список пользователей");
-        return userService.getAll();
+    public ResponseEntity<List<User>> getAll(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = PageCursor.DEFAULT_PAGE_LIMIT)
+            @Positive @Max(PageCursor.MAX_PAGE_LIMIT) int limit) {
+        log.info("Попытка получить список пользователей, after = {}, limit = {}", after, limit);
+        int afterId = PageCursor.decode(after, USERS_CURSOR, 0)[0];
+        return PageCursor.page(userService.getUsersPage(afterId, limit + 1), limit, USERS_CURSOR,
+                user -> new int[]{user.getId()});
     }
 
     @PostMapping
@@ -77,9 +90,34 @@ public class UserController {
         return userService.getSameFriendsList(userId, otherId);
     }
 
+    @GetMapping("/{userId}/friends/suggestions")
+    public List<User> getFriendSuggestions(
+            @PathVariable int userId,
+            @RequestParam(defaultValue = DEFAULT_SUGGESTIONS_LIMIT)
+            @Positive @Max(MAX_SUGGESTIONS_LIMIT) int limit) {
+        log.info("Попытка получить рекомендации друзей для пользователя с id = {}, limit = {}", userId, limit);
+        return userService.getFriendSuggestions(userId, limit);
+    }
+
     @GetMapping("/{id}/feed")
-    public Collection<Event> getHistoryByUserId(@PathVariable int id) {
-        log.info("Попытка получить историю пользователя с id = {}", id);
-        return eventService.getEvents(id);
+    public Collection<Event> getHistoryByUserId(
+            @PathVariable int id,
+            @RequestParam(required = false) Integer before,
+            @RequestParam(required = false) Long since,
+            @RequestParam(required = false) Integer after,
+            @RequestParam(defaultValue = PageCursor.DEFAULT_PAGE_LIMIT)
+            @Positive @Max(PageCursor.MAX_PAGE_LIMIT) int limit) {
+        log.info("Попытка получить историю пользователя с id = {}, before = {}, since = {}, after = {}, limit = {}",
+                id, before, since, after, limit);
+        return eventService.getEvents(id, before, since, after, limit);
+    }
+
+    @GetMapping("/{id}/feed/friends")
+    public Collection<Event> getFriendsFeed(
+            @PathVariable int id,
+            @RequestParam(defaultValue = PageCursor.DEFAULT_PAGE_LIMIT)
+            @Positive @Max(PageCursor.MAX_PAGE_LIMIT) int limit) {
+        log.info("Попытка получить ленту друзей пользователя с id = {}, limit = {}", id, limit);
+        return eventService.getFriendsEvents(id, limit);
     }
 }
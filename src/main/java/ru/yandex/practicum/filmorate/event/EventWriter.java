@@ -0,0 +1,216 @@
+package ru.yandex.practicum.filmorate.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.storage.EventStorage;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Component
+@Slf4j
+public class EventWriter {
+    private final EventStorage eventStorage;
+    private final BlockingQueue<Event> queue;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final int writerInstances;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicInteger eventIds = new AtomicInteger();
+    private final ConcurrentMap<Integer, Integer> pendingByUser = new ConcurrentHashMap<>();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong writtenSynchronously = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public EventWriter(EventStorage eventStorage,
+                       @Value("${filmorate.events.queue-capacity:10000}") int capacity,
+                       @Value("${filmorate.events.batch-size:500}") int batchSize,
+                       @Value("${filmorate.events.flush-interval:50ms}") Duration flushInterval,
+                       @Value("${filmorate.events.overflow-policy:BLOCK}") OverflowPolicy overflowPolicy,
+                       @Value("${filmorate.events.writer-instances:1}") int writerInstances) {
+        this.eventStorage = eventStorage;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.overflowPolicy = overflowPolicy;
+        this.writerInstances = writerInstances;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (writerInstances != 1) {
+            throw new IllegalStateException(String.format("Идентификаторы событий выдаются счетчиком внутри " +
+                    "приложения, запись событий из %d экземпляров в одну базу приведет к повторяющимся id",
+                    writerInstances));
+        }
+        eventIds.set(eventStorage.getMaxEventId());
+        running = true;
+        writerThread = new Thread(this::run, "event-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("Запущена запись событий пакетами по {} с интервалом {} мс, очередь {}, при переполнении {}",
+                batchSize, TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos), capacity, overflowPolicy);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writerThread);
+        writerThread.join(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) + 5000);
+        flush();
+        log.info("Запись событий остановлена, всего записано {}, потеряно {}", written.get(),
+                dropped.get() + failed.get());
+    }
+
+    public boolean write(Event event) {
+        event.setEventId(eventIds.incrementAndGet());
+        markPending(event);
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    queue.put(event);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    writeSynchronously(event);
+                    return true;
+                }
+                break;
+            case DROP:
+                if (!queue.offer(event)) {
+                    unmarkPending(event);
+                    long droppedCount = dropped.incrementAndGet();
+                    log.warn("Очередь событий переполнена, событие пользователя с id = {} отброшено, всего отброшено {}",
+                            event.getUserId(), droppedCount);
+                    return false;
+                }
+                break;
+            case SYNC:
+                if (!queue.offer(event)) {
+                    writeSynchronously(event);
+                    return true;
+                }
+                break;
+        }
+
+        if (queue.size() >= batchSize) {
+            LockSupport.unpark(writerThread);
+        }
+        return true;
+    }
+
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<Event> batch = new ArrayList<>(Math.min(batchSize, queue.size()));
+            while (queue.drainTo(batch, batchSize) > 0) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public void flushPending(int userId) {
+        if (pendingByUser.containsKey(userId)) {
+            flush();
+        }
+    }
+
+    public void flushPending(Collection<Integer> userIds) {
+        for (Integer userId : userIds) {
+            if (pendingByUser.containsKey(userId)) {
+                flush();
+                return;
+            }
+        }
+    }
+
+    public EventWriterStats getStats() {
+        return new EventWriterStats(overflowPolicy, queue.size(), capacity, written.get(), batches.get(),
+                dropped.get(), writtenSynchronously.get(), failed.get());
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = System.nanoTime() + flushIntervalNanos;
+            long remaining = flushIntervalNanos;
+            while (running && queue.size() < batchSize && remaining > 0) {
+                LockSupport.parkNanos(this, remaining);
+                remaining = deadline - System.nanoTime();
+            }
+
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                log.error("Не удалось записать события: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void writeBatch(List<Event> batch) {
+        try {
+            eventStorage.addAll(batch);
+            written.addAndGet(batch.size());
+            batches.incrementAndGet();
+        } catch (RuntimeException e) {
+            log.error("Не удалось записать пакет из {} событий, события будут записаны по одному: {}",
+                    batch.size(), e.getMessage(), e);
+            batch.forEach(this::writeOne);
+        } finally {
+            batch.forEach(this::unmarkPending);
+        }
+    }
+
+    private void writeOne(Event event) {
+        try {
+            eventStorage.add(event);
+            written.incrementAndGet();
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            log.error("Событие потеряно: id = {}, timestamp = {}, userId = {}, entityId = {}, eventType = {}, " +
+                            "operation = {}: {}", event.getEventId(), event.getTimestamp(), event.getUserId(),
+                    event.getEntityId(), event.getEventType(), event.getOperation(), e.getMessage(), e);
+        }
+    }
+
+    private void writeSynchronously(Event event) {
+        try {
+            eventStorage.add(event);
+        } finally {
+            unmarkPending(event);
+        }
+        written.incrementAndGet();
+        writtenSynchronously.incrementAndGet();
+    }
+
+    private void markPending(Event event) {
+        pendingByUser.merge(event.getUserId(), 1, Integer::sum);
+    }
+
+    private void unmarkPending(Event event) {
+        pendingByUser.computeIfPresent(event.getUserId(), (userId, count) -> count == 1 ? null : count - 1);
+    }
+}
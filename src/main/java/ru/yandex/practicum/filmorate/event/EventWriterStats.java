@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class EventWriterStats {
+    private final OverflowPolicy overflowPolicy;
+    private final int queued;
+    private final int capacity;
+    private final long written;
+    private final long batches;
+    private final long dropped;
+    private final long writtenSynchronously;
+    private final long failed;
+}
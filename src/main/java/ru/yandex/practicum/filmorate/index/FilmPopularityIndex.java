@@ -0,0 +1,273 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Component
+@Slf4j
+public class FilmPopularityIndex {
+    private static final Comparator<Entry> RANKING_ORDER = Comparator.comparingInt(Entry::getLikes).reversed()
+            .thenComparing(Entry::getName)
+            .thenComparingInt(Entry::getFilmId);
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    private final FilmStorage filmStorage;
+    private final ConcurrentMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final NavigableSet<Entry> ranking = new ConcurrentSkipListSet<>(RANKING_ORDER);
+    private final ConcurrentMap<Integer, NavigableSet<Entry>> rankingsByGenre = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, NavigableSet<Entry>> rankingsByYear = new ConcurrentHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Set<Integer> pendingFilmIds = ConcurrentHashMap.newKeySet();
+    private volatile boolean loaded;
+    private boolean loading;
+
+    public FilmPopularityIndex(FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        setLoading(true);
+        try {
+            int afterId = 0;
+            List<Film> films;
+            do {
+                films = filmStorage.getPage(afterId, LOAD_PAGE_SIZE);
+                for (Film film : films) {
+                    replace(film.getId(), film, film.getLikesCount());
+                    afterId = film.getId();
+                }
+            } while (films.size() == LOAD_PAGE_SIZE);
+            int refreshed = refreshPendingFilms();
+
+            loaded = true;
+            log.info("Рейтинг популярности фильмов загружен, фильмов в рейтинге: {}, перечитано после загрузки: {}",
+                    entries.size(), refreshed);
+        } finally {
+            setLoading(false);
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public void put(Film film) {
+        lock.readLock().lock();
+        try {
+            entries.compute(film.getId(), (filmId, oldEntry) -> {
+                unlink(oldEntry);
+                return link(toEntry(film, oldEntry == null ? film.getLikesCount() : oldEntry.getLikes()));
+            });
+            markPending(film.getId());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void remove(int filmId) {
+        lock.readLock().lock();
+        try {
+            removeEntry(filmId);
+            markPending(filmId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void changeLikes(int filmId, int delta) {
+        lock.readLock().lock();
+        try {
+            if (loading) {
+                pendingFilmIds.add(filmId);
+                return;
+            }
+            entries.computeIfPresent(filmId, (id, oldEntry) -> {
+                unlink(oldEntry);
+                return link(oldEntry.withLikes(Math.max(0, oldEntry.getLikes() + delta)));
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getLikes(int filmId) {
+        Entry entry = entries.get(filmId);
+        return entry == null ? 0 : entry.getLikes();
+    }
+
+    public List<Integer> getBestFilmIds(int count, Integer genreId, Integer year) {
+        NavigableSet<Entry> source;
+        if (genreId != null) {
+            source = rankingsByGenre.get(genreId);
+        } else if (year != null) {
+            source = rankingsByYear.get(year);
+        } else {
+            source = ranking;
+        }
+
+        List<Integer> filmIds = new ArrayList<>(Math.min(count, entries.size()));
+        if (source == null) {
+            return filmIds;
+        }
+
+        for (Entry entry : source) {
+            if (filmIds.size() >= count) {
+                break;
+            }
+            if (year == null || year.equals(entry.getYear())) {
+                filmIds.add(entry.getFilmId());
+            }
+        }
+        return filmIds;
+    }
+
+    private int refreshPendingFilms() {
+        int refreshed = 0;
+        while (true) {
+            lock.writeLock().lock();
+            try {
+                if (pendingFilmIds.isEmpty()) {
+                    loading = false;
+                    return refreshed;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Iterator<Integer> iterator = pendingFilmIds.iterator();
+            while (iterator.hasNext()) {
+                int filmId = iterator.next();
+                iterator.remove();
+                filmStorage.findFilm(filmId).ifPresentOrElse(
+                        film -> replace(filmId, film, film.getLikesCount()),
+                        () -> removeEntry(filmId));
+                refreshed++;
+            }
+        }
+    }
+
+    private void markPending(int filmId) {
+        if (loading) {
+            pendingFilmIds.add(filmId);
+        }
+    }
+
+    private void setLoading(boolean loading) {
+        lock.writeLock().lock();
+        try {
+            this.loading = loading;
+            pendingFilmIds.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void replace(int filmId, Film film, int likes) {
+        entries.compute(filmId, (id, oldEntry) -> {
+            unlink(oldEntry);
+            return link(toEntry(film, likes));
+        });
+    }
+
+    private void removeEntry(int filmId) {
+        entries.computeIfPresent(filmId, (id, oldEntry) -> {
+            unlink(oldEntry);
+            return null;
+        });
+    }
+
+    private static Entry toEntry(Film film, int likes) {
+        return new Entry(film.getId(), film.getName(), likes,
+                film.getReleaseDate() == null ? null : film.getReleaseDate().getYear(),
+                film.getGenres().stream().mapToInt(Genre::getId).distinct().toArray());
+    }
+
+    private Entry link(Entry entry) {
+        ranking.add(entry);
+        for (int genreId : entry.getGenreIds()) {
+            rankingsByGenre.computeIfAbsent(genreId, id -> new ConcurrentSkipListSet<>(RANKING_ORDER)).add(entry);
+        }
+        if (entry.getYear() != null) {
+            rankingsByYear.computeIfAbsent(entry.getYear(), y -> new ConcurrentSkipListSet<>(RANKING_ORDER))
+                    .add(entry);
+        }
+        return entry;
+    }
+
+    private void unlink(Entry entry) {
+        if (entry == null) {
+            return;
+        }
+        ranking.remove(entry);
+        for (int genreId : entry.getGenreIds()) {
+            NavigableSet<Entry> genreRanking = rankingsByGenre.get(genreId);
+            if (genreRanking != null) {
+                genreRanking.remove(entry);
+            }
+        }
+        if (entry.getYear() != null) {
+            NavigableSet<Entry> yearRanking = rankingsByYear.get(entry.getYear());
+            if (yearRanking != null) {
+                yearRanking.remove(entry);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final int filmId;
+        private final String name;
+        private final int likes;
+        private final Integer year;
+        private final int[] genreIds;
+
+        private Entry(int filmId, String name, int likes, Integer year, int[] genreIds) {
+            this.filmId = filmId;
+            this.name = name == null ? "" : name;
+            this.likes = likes;
+            this.year = year;
+            this.genreIds = genreIds;
+        }
+
+        private Entry withLikes(int likes) {
+            return new Entry(filmId, name, likes, year, genreIds);
+        }
+
+        private int getFilmId() {
+            return filmId;
+        }
+
+        private String getName() {
+            return name;
+        }
+
+        private int getLikes() {
+            return likes;
+        }
+
+        private Integer getYear() {
+            return year;
+        }
+
+        private int[] getGenreIds() {
+            return genreIds;
+        }
+    }
+}
@@ -0,0 +1,458 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Component
+@Slf4j
+public class FilmSearchIndex {
+    private static final int GRAM_LENGTH = 3;
+    private static final int LOAD_PAGE_SIZE = 1000;
+    private static final int EXACT_MATCH = 0;
+    private static final int PREFIX_MATCH = 1;
+    private static final int WORD_MATCH = 2;
+    private static final int SUBSTRING_MATCH = 3;
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+
+    private final FilmStorage filmStorage;
+    private final DirectorStorage directorStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, FilmEntry> films = new HashMap<>();
+    private final Map<Long, String> directorNames = new HashMap<>();
+    private final Map<Long, Postings> directorFilms = new HashMap<>();
+    private final Map<Long, Postings> titleGrams = new HashMap<>();
+    private final Map<Long, Postings> directorGrams = new HashMap<>();
+    private final Set<Integer> pendingFilmIds = ConcurrentHashMap.newKeySet();
+    private final Queue<Runnable> pendingDirectorChanges = new ConcurrentLinkedQueue<>();
+    private volatile boolean loaded;
+    private boolean loading;
+
+    public FilmSearchIndex(FilmStorage filmStorage, DirectorStorage directorStorage,
+                           FilmPopularityIndex popularityIndex) {
+        this.filmStorage = filmStorage;
+        this.directorStorage = directorStorage;
+        this.popularityIndex = popularityIndex;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        setLoading(true);
+        try {
+            for (Director director : directorStorage.getAllDirectors()) {
+                withWriteLock(() -> putDirectorEntry(director));
+            }
+
+            int afterId = 0;
+            List<Film> page;
+            do {
+                page = filmStorage.getPage(afterId, LOAD_PAGE_SIZE);
+                for (Film film : page) {
+                    withWriteLock(() -> putFilm(film));
+                    afterId = film.getId();
+                }
+            } while (page.size() == LOAD_PAGE_SIZE);
+            int replayed = replayPendingChanges();
+            loaded = true;
+
+            lock.readLock().lock();
+            try {
+                log.info("Поисковый индекс загружен: фильмов {}, режиссёров {}, n-грамм названий {}, n-грамм имён {}, " +
+                                "применено изменений, накопленных во время загрузки: {}",
+                        films.size(), directorNames.size(), titleGrams.size(), directorGrams.size(), replayed);
+            } finally {
+                lock.readLock().unlock();
+            }
+        } finally {
+            setLoading(false);
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public void put(Film film) {
+        lock.writeLock().lock();
+        try {
+            putFilm(film);
+            if (loading) {
+                pendingFilmIds.add(film.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int filmId) {
+        lock.writeLock().lock();
+        try {
+            unlink(filmId, films.remove(filmId));
+            if (loading) {
+                pendingFilmIds.add(filmId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putDirector(Director director) {
+        lock.writeLock().lock();
+        try {
+            putDirectorEntry(director);
+            if (loading) {
+                pendingDirectorChanges.add(() -> putDirectorEntry(director));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeDirector(long directorId) {
+        lock.writeLock().lock();
+        try {
+            removeDirectorEntry(directorId);
+            if (loading) {
+                pendingDirectorChanges.add(() -> removeDirectorEntry(directorId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Integer> search(String query, boolean byTitle, boolean byDirector, int limit) {
+        String normalizedQuery = normalize(query);
+        if (normalizedQuery.isBlank()) {
+            return new ArrayList<>();
+        }
+        Matches matches = new Matches();
+
+        lock.readLock().lock();
+        try {
+            if (byTitle) {
+                for (long filmId : findCandidates(titleGrams, films.keySet(), normalizedQuery)) {
+                    FilmEntry entry = films.get((int) filmId);
+                    if (entry != null) {
+                        matches.add((int) filmId, matchQuality(entry.title, normalizedQuery));
+                    }
+                }
+            }
+            if (byDirector) {
+                for (long directorId : findCandidates(directorGrams, directorNames.keySet(), normalizedQuery)) {
+                    String name = directorNames.get(directorId);
+                    int quality = name == null ? NO_MATCH : matchQuality(name, normalizedQuery);
+                    Postings filmIds = directorFilms.get(directorId);
+                    if (quality == NO_MATCH || filmIds == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < filmIds.size; i++) {
+                        matches.add((int) filmIds.values[i], quality);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return matches.rank(popularityIndex, limit);
+    }
+
+    private int replayPendingChanges() {
+        int replayed = 0;
+        while (true) {
+            lock.writeLock().lock();
+            try {
+                Runnable directorChange;
+                while ((directorChange = pendingDirectorChanges.poll()) != null) {
+                    directorChange.run();
+                    replayed++;
+                }
+                if (pendingFilmIds.isEmpty()) {
+                    loading = false;
+                    return replayed;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Iterator<Integer> iterator = pendingFilmIds.iterator();
+            while (iterator.hasNext()) {
+                int filmId = iterator.next();
+                iterator.remove();
+                Optional<Film> film = filmStorage.findFilm(filmId);
+                withWriteLock(() -> film.ifPresentOrElse(this::putFilm, () -> unlink(filmId, films.remove(filmId))));
+                replayed++;
+            }
+        }
+    }
+
+    private void setLoading(boolean loading) {
+        withWriteLock(() -> {
+            this.loading = loading;
+            pendingFilmIds.clear();
+            pendingDirectorChanges.clear();
+        });
+    }
+
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void putFilm(Film film) {
+        long[] directorIds = film.getDirectors().stream()
+                .mapToLong(Director::getId)
+                .distinct()
+                .toArray();
+        FilmEntry entry = new FilmEntry(normalize(film.getName()), directorIds);
+
+        unlink(film.getId(), films.put(film.getId(), entry));
+        addGrams(titleGrams, entry.title, film.getId());
+        for (long directorId : directorIds) {
+            directorFilms.computeIfAbsent(directorId, id -> new Postings()).add(film.getId());
+        }
+    }
+
+    private void putDirectorEntry(Director director) {
+        String name = normalize(director.getName());
+        String oldName = directorNames.put(director.getId(), name);
+        if (oldName != null) {
+            removeGrams(directorGrams, oldName, director.getId());
+        }
+        addGrams(directorGrams, name, director.getId());
+    }
+
+    private void removeDirectorEntry(long directorId) {
+        String oldName = directorNames.remove(directorId);
+        if (oldName != null) {
+            removeGrams(directorGrams, oldName, directorId);
+        }
+        Postings filmIds = directorFilms.remove(directorId);
+        if (filmIds != null) {
+            for (int i = 0; i < filmIds.size; i++) {
+                FilmEntry entry = films.get((int) filmIds.values[i]);
+                if (entry != null) {
+                    films.put((int) filmIds.values[i], entry.withoutDirector(directorId));
+                }
+            }
+        }
+    }
+
+    private void unlink(int filmId, FilmEntry entry) {
+        if (entry == null) {
+            return;
+        }
+        removeGrams(titleGrams, entry.title, filmId);
+        for (long directorId : entry.directorIds) {
+            Postings filmIds = directorFilms.get(directorId);
+            if (filmIds != null && filmIds.remove(filmId) && filmIds.size == 0) {
+                directorFilms.remove(directorId);
+            }
+        }
+    }
+
+    private static long[] findCandidates(Map<Long, Postings> grams, Collection<? extends Number> allIds,
+                                         String query) {
+        if (query.length() < GRAM_LENGTH) {
+            return allIds.stream().mapToLong(Number::longValue).toArray();
+        }
+
+        long[] queryGrams = grams(query);
+        Postings[] postings = new Postings[queryGrams.length];
+        for (int i = 0; i < queryGrams.length; i++) {
+            postings[i] = grams.get(queryGrams[i]);
+            if (postings[i] == null) {
+                return new long[0];
+            }
+        }
+        Arrays.sort(postings, Comparator.comparingInt(p -> p.size));
+
+        long[] candidates = new long[postings[0].size];
+        int count = 0;
+        for (int i = 0; i < postings[0].size; i++) {
+            long id = postings[0].values[i];
+            boolean matchesAll = true;
+            for (int j = 1; j < postings.length && matchesAll; j++) {
+                matchesAll = postings[j].contains(id);
+            }
+            if (matchesAll) {
+                candidates[count++] = id;
+            }
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    private static int matchQuality(String text, String query) {
+        int index = text.indexOf(query);
+        if (index < 0) {
+            return NO_MATCH;
+        }
+        if (index == 0) {
+            return text.length() == query.length() ? EXACT_MATCH : PREFIX_MATCH;
+        }
+        do {
+            if (!Character.isLetterOrDigit(text.charAt(index - 1))) {
+                return WORD_MATCH;
+            }
+            index = text.indexOf(query, index + 1);
+        } while (index > 0);
+        return SUBSTRING_MATCH;
+    }
+
+    private static void addGrams(Map<Long, Postings> index, String text, long id) {
+        for (long gram : grams(text)) {
+            index.computeIfAbsent(gram, g -> new Postings()).add(id);
+        }
+    }
+
+    private static void removeGrams(Map<Long, Postings> index, String text, long id) {
+        for (long gram : grams(text)) {
+            Postings postings = index.get(gram);
+            if (postings != null && postings.remove(id) && postings.size == 0) {
+                index.remove(gram);
+            }
+        }
+    }
+
+    private static long[] grams(String text) {
+        if (text.length() < GRAM_LENGTH) {
+            return new long[0];
+        }
+        long[] grams = new long[text.length() - GRAM_LENGTH + 1];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = (long) text.charAt(i) << 32 | (long) text.charAt(i + 1) << 16 | text.charAt(i + 2);
+        }
+        Arrays.sort(grams);
+
+        int distinct = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class FilmEntry {
+        private final String title;
+        private final long[] directorIds;
+
+        private FilmEntry(String title, long[] directorIds) {
+            this.title = title;
+            this.directorIds = directorIds;
+        }
+
+        private FilmEntry withoutDirector(long directorId) {
+            return new FilmEntry(title, Arrays.stream(directorIds).filter(id -> id != directorId).toArray());
+        }
+    }
+
+    private static final class Postings {
+        private long[] values = new long[4];
+        private int size;
+
+        private void add(long value) {
+            if (size > 0 && values[size - 1] >= value) {
+                int index = Arrays.binarySearch(values, 0, size, value);
+                if (index >= 0) {
+                    return;
+                }
+                insert(-index - 1, value);
+                return;
+            }
+            insert(size, value);
+        }
+
+        private void insert(int index, long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+        }
+
+        private boolean remove(long value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        private boolean contains(long value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+    }
+
+    private static final class Matches {
+        private static final long FILM_ID_MASK = Integer.MAX_VALUE;
+
+        private long[] keys = new long[16];
+        private int size;
+
+        private void add(int filmId, int quality) {
+            if (quality == NO_MATCH) {
+                return;
+            }
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            keys[size++] = (long) filmId << 2 | quality;
+        }
+
+        private List<Integer> rank(FilmPopularityIndex popularityIndex, int limit) {
+            Arrays.sort(keys, 0, size);
+            int distinct = 0;
+            for (int i = 0; i < size; i++) {
+                int filmId = (int) (keys[i] >>> 2);
+                if (distinct > 0 && (keys[distinct - 1] & FILM_ID_MASK) == filmId) {
+                    continue;
+                }
+                long quality = keys[i] & 3;
+                long likesRank = Integer.MAX_VALUE - popularityIndex.getLikes(filmId);
+                keys[distinct++] = (quality << 62 | likesRank << 31 | filmId) ^ Long.MIN_VALUE;
+            }
+            Arrays.sort(keys, 0, distinct);
+
+            List<Integer> filmIds = new ArrayList<>(Math.min(limit, distinct));
+            for (int i = 0; i < distinct && filmIds.size() < limit; i++) {
+                filmIds.add((int) (keys[i] & FILM_ID_MASK));
+            }
+            return filmIds;
+        }
+    }
+}
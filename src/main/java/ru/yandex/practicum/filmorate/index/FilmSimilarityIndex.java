@@ -0,0 +1,254 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Component
+@Slf4j
+public class FilmSimilarityIndex {
+    private static final int[] NO_FILMS = new int[0];
+    private static final ThreadLocal<ScoreAccumulator> ACCUMULATOR = ThreadLocal.withInitial(ScoreAccumulator::new);
+
+    private final FilmStorage filmStorage;
+    private final int neighboursCount;
+    private final int maxFilmLikes;
+    private final Duration rebuildInterval;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildMonitor = new Object();
+    private final Queue<LikeChange> pendingChanges = new ConcurrentLinkedQueue<>();
+    private volatile ConcurrentMap<Integer, int[]> userLikes = new ConcurrentHashMap<>();
+    private volatile Neighbours neighbours = Neighbours.EMPTY;
+    private volatile boolean loaded;
+    private boolean rebuilding;
+    private ScheduledExecutorService scheduler;
+
+    public FilmSimilarityIndex(FilmStorage filmStorage,
+                               @Value("${filmorate.recommendations.neighbours:50}") int neighboursCount,
+                               @Value("${filmorate.recommendations.max-film-likes:10000}") int maxFilmLikes,
+                               @Value("${filmorate.recommendations.rebuild-interval:10m}") Duration rebuildInterval) {
+        this.filmStorage = filmStorage;
+        this.neighboursCount = neighboursCount;
+        this.maxFilmLikes = maxFilmLikes;
+        this.rebuildInterval = rebuildInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+        if (rebuildInterval.isZero() || rebuildInterval.isNegative()) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "film-similarity-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.error("Не удалось пересчитать похожие фильмы: {}", e.getMessage(), e);
+            }
+        }, rebuildInterval.toNanos(), rebuildInterval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public void rebuild() {
+        synchronized (rebuildMonitor) {
+            long start = System.nanoTime();
+            setRebuilding(true);
+            try {
+                LikeMatrix matrix = LikeMatrix.load(filmStorage);
+                Neighbours builtNeighbours = Neighbours.build(matrix, neighboursCount, maxFilmLikes);
+                ConcurrentMap<Integer, int[]> builtUserLikes = matrix.toUserLikes();
+
+                lock.writeLock().lock();
+                try {
+                    for (LikeChange change : pendingChanges) {
+                        change.applyTo(builtUserLikes);
+                    }
+                    userLikes = builtUserLikes;
+                    neighbours = builtNeighbours;
+                    loaded = true;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+
+                log.info("Пересчитаны похожие фильмы: пользователей {}, фильмов {}, лайков {}, пар соседей {} за {} мс",
+                        matrix.usersCount(), matrix.filmsCount(), matrix.likesCount(),
+                        builtNeighbours.filmIds.length, (System.nanoTime() - start) / 1_000_000);
+            } finally {
+                setRebuilding(false);
+            }
+        }
+    }
+
+    public void addLike(int userId, int filmId) {
+        apply(new LikeChange(LikeChange.Kind.ADD, userId, filmId));
+    }
+
+    public void removeLike(int userId, int filmId) {
+        apply(new LikeChange(LikeChange.Kind.REMOVE, userId, filmId));
+    }
+
+    public void removeUser(int userId) {
+        apply(new LikeChange(LikeChange.Kind.REMOVE_USER, userId, 0));
+    }
+
+    public List<Integer> getRecommendedFilmIds(int userId, int count) {
+        int[] likedFilms = userLikes.getOrDefault(userId, NO_FILMS);
+        Neighbours currentNeighbours = neighbours;
+        ScoreAccumulator accumulator = ACCUMULATOR.get();
+
+        for (int filmId : likedFilms) {
+            if (filmId >= currentNeighbours.offsets.length - 1) {
+                continue;
+            }
+            for (int i = currentNeighbours.offsets[filmId]; i < currentNeighbours.offsets[filmId + 1]; i++) {
+                int candidateId = currentNeighbours.filmIds[i];
+                if (Arrays.binarySearch(likedFilms, candidateId) < 0) {
+                    accumulator.add(candidateId, currentNeighbours.scores[i]);
+                }
+            }
+        }
+        return accumulator.drainTop(count);
+    }
+
+    private void apply(LikeChange change) {
+        lock.readLock().lock();
+        try {
+            change.applyTo(userLikes);
+            if (rebuilding) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void setRebuilding(boolean rebuilding) {
+        lock.writeLock().lock();
+        try {
+            this.rebuilding = rebuilding;
+            pendingChanges.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static final class LikeChange {
+        private enum Kind {
+            ADD,
+            REMOVE,
+            REMOVE_USER
+        }
+
+        private final Kind kind;
+        private final int userId;
+        private final int filmId;
+
+        private LikeChange(Kind kind, int userId, int filmId) {
+            this.kind = kind;
+            this.userId = userId;
+            this.filmId = filmId;
+        }
+
+        private void applyTo(ConcurrentMap<Integer, int[]> userLikes) {
+            switch (kind) {
+                case ADD:
+                    userLikes.compute(userId, (id, films) -> SortedInts.insert(films, filmId));
+                    break;
+                case REMOVE:
+                    userLikes.computeIfPresent(userId, (id, films) -> SortedInts.remove(films, filmId));
+                    break;
+                case REMOVE_USER:
+                    userLikes.remove(userId);
+                    break;
+            }
+        }
+    }
+
+    private static final class Neighbours {
+        private static final Neighbours EMPTY = new Neighbours(new int[1], new int[0], new float[0]);
+
+        private final int[] offsets;
+        private final int[] filmIds;
+        private final float[] scores;
+
+        private Neighbours(int[] offsets, int[] filmIds, float[] scores) {
+            this.offsets = offsets;
+            this.filmIds = filmIds;
+            this.scores = scores;
+        }
+
+        private static Neighbours build(LikeMatrix matrix, int neighboursCount, int maxFilmLikes) {
+            int filmsLength = matrix.filmsLength();
+            int[] offsets = new int[filmsLength + 1];
+            IntList filmIds = new IntList();
+            FloatList scores = new FloatList();
+
+            int[] coLikes = new int[filmsLength];
+            int[] candidates = new int[filmsLength];
+            TopN top = new TopN(neighboursCount);
+
+            for (int filmId = 0; filmId < filmsLength; filmId++) {
+                int degree = matrix.degree(filmId);
+                if (degree > maxFilmLikes) {
+                    offsets[filmId + 1] = filmIds.size();
+                    continue;
+                }
+
+                int candidatesCount = 0;
+                for (int i = matrix.filmOffsets[filmId]; i < matrix.filmOffsets[filmId + 1]; i++) {
+                    int row = matrix.filmRows[i];
+                    for (int j = matrix.rowOffsets[row]; j < matrix.rowOffsets[row + 1]; j++) {
+                        int otherFilmId = matrix.rowFilms[j];
+                        if (otherFilmId != filmId && coLikes[otherFilmId]++ == 0) {
+                            candidates[candidatesCount++] = otherFilmId;
+                        }
+                    }
+                }
+
+                for (int i = 0; i < candidatesCount; i++) {
+                    int otherFilmId = candidates[i];
+                    int common = coLikes[otherFilmId];
+                    top.offer(otherFilmId, (float) common / (degree + matrix.degree(otherFilmId) - common));
+                    coLikes[otherFilmId] = 0;
+                }
+                top.drainTo(filmIds, scores);
+                offsets[filmId + 1] = filmIds.size();
+            }
+
+            return new Neighbours(offsets, filmIds.toArray(), scores.toArray());
+        }
+    }
+}
@@ -0,0 +1,539 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.model.SuggestionType;
+import ru.yandex.practicum.filmorate.storage.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Component
+@Slf4j
+public class FilmSuggestionIndex {
+    public static final int SUGGESTIONS_COUNT = 10;
+    private static final int MAX_DEPTH = 12;
+    private static final int LOAD_PAGE_SIZE = 1000;
+    private static final Comparator<Entry> RANKING_ORDER = Comparator.comparingLong((Entry entry) -> entry.weight)
+            .reversed()
+            .thenComparing(entry -> entry.text)
+            .thenComparing(entry -> entry.type)
+            .thenComparingLong(entry -> entry.id);
+
+    private final FilmStorage filmStorage;
+    private final DirectorStorage directorStorage;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Set<Integer> pendingFilmIds = ConcurrentHashMap.newKeySet();
+    private final Queue<Runnable> pendingDirectorChanges = new ConcurrentLinkedQueue<>();
+    private Node root = new Node();
+    private Map<Integer, FilmRecord> films = new HashMap<>();
+    private Map<Long, Entry> directors = new HashMap<>();
+    private volatile boolean loaded;
+    private boolean loading;
+    private boolean bulkLoading;
+
+    public FilmSuggestionIndex(FilmStorage filmStorage, DirectorStorage directorStorage) {
+        this.filmStorage = filmStorage;
+        this.directorStorage = directorStorage;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        setLoading(true);
+        try {
+            FilmSuggestionIndex built = new FilmSuggestionIndex(filmStorage, directorStorage);
+            built.bulkLoading = true;
+            directorStorage.getAllDirectors().forEach(built::putDirectorEntry);
+
+            int afterId = 0;
+            List<Film> page;
+            do {
+                page = filmStorage.getPage(afterId, LOAD_PAGE_SIZE);
+                for (Film film : page) {
+                    built.putFilm(film);
+                    afterId = film.getId();
+                }
+            } while (page.size() == LOAD_PAGE_SIZE);
+            built.root.recomputeSubtree();
+            built.bulkLoading = false;
+            log.info("Индекс подсказок построен: фильмов {}, режиссёров {}, узлов {}",
+                    built.films.size(), built.directors.size(), built.root.countNodes());
+
+            lock.writeLock().lock();
+            try {
+                root = built.root;
+                films = built.films;
+                directors = built.directors;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            int replayed = replayPendingChanges();
+
+            loaded = true;
+            log.info("Индекс подсказок загружен, применено изменений, накопленных во время загрузки: {}", replayed);
+        } finally {
+            setLoading(false);
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public void put(Film film) {
+        lock.writeLock().lock();
+        try {
+            putFilm(film);
+            if (loading) {
+                pendingFilmIds.add(film.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int filmId) {
+        lock.writeLock().lock();
+        try {
+            removeFilm(filmId);
+            if (loading) {
+                pendingFilmIds.add(filmId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void changeLikes(int filmId, int delta) {
+        lock.writeLock().lock();
+        try {
+            if (loading) {
+                pendingFilmIds.add(filmId);
+                return;
+            }
+            FilmRecord record = films.get(filmId);
+            if (record == null) {
+                return;
+            }
+            long weight = Math.max(0, record.entry.weight + delta);
+            long change = weight - record.entry.weight;
+            record.entry.weight = weight;
+            relink(record.entry);
+            changeDirectorsWeight(record.directorIds, change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putDirector(Director director) {
+        lock.writeLock().lock();
+        try {
+            putDirectorEntry(director);
+            if (loading) {
+                pendingDirectorChanges.add(() -> putDirectorEntry(director));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeDirector(long directorId) {
+        lock.writeLock().lock();
+        try {
+            removeDirectorEntry(directorId);
+            if (loading) {
+                pendingDirectorChanges.add(() -> removeDirectorEntry(directorId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Suggestion> suggest(String prefix) {
+        String key = FilmSearchIndex.normalize(prefix);
+        List<Suggestion> suggestions = new ArrayList<>(SUGGESTIONS_COUNT);
+
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < Math.min(key.length(), MAX_DEPTH) && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            if (node == null) {
+                return suggestions;
+            }
+
+            Entry[] top = key.length() <= MAX_DEPTH ? node.top : node.topMatching(key);
+            for (Entry entry : top) {
+                suggestions.add(new Suggestion(entry.type, entry.id, entry.text));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return suggestions;
+    }
+
+    private int replayPendingChanges() {
+        int replayed = 0;
+        while (true) {
+            lock.writeLock().lock();
+            try {
+                Runnable directorChange;
+                while ((directorChange = pendingDirectorChanges.poll()) != null) {
+                    directorChange.run();
+                    replayed++;
+                }
+                if (pendingFilmIds.isEmpty()) {
+                    loading = false;
+                    return replayed;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Iterator<Integer> iterator = pendingFilmIds.iterator();
+            while (iterator.hasNext()) {
+                int filmId = iterator.next();
+                iterator.remove();
+                Optional<Film> film = filmStorage.findFilm(filmId);
+                lock.writeLock().lock();
+                try {
+                    film.ifPresentOrElse(this::putFilm, () -> removeFilm(filmId));
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                replayed++;
+            }
+        }
+    }
+
+    private void setLoading(boolean loading) {
+        lock.writeLock().lock();
+        try {
+            this.loading = loading;
+            pendingFilmIds.clear();
+            pendingDirectorChanges.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void putFilm(Film film) {
+        Entry entry = new Entry(SuggestionType.FILM, film.getId(), film.getName(), film.getLikesCount());
+        long[] directorIds = film.getDirectors().stream()
+                .mapToLong(Director::getId)
+                .distinct()
+                .toArray();
+
+        FilmRecord oldRecord = films.put(film.getId(), new FilmRecord(entry, directorIds));
+        if (oldRecord != null) {
+            unlink(oldRecord.entry);
+            changeDirectorsWeight(oldRecord.directorIds, -oldRecord.entry.weight);
+        }
+        link(entry);
+        changeDirectorsWeight(directorIds, entry.weight);
+    }
+
+    private void removeFilm(int filmId) {
+        FilmRecord oldRecord = films.remove(filmId);
+        if (oldRecord != null) {
+            unlink(oldRecord.entry);
+            changeDirectorsWeight(oldRecord.directorIds, -oldRecord.entry.weight);
+        }
+    }
+
+    private void putDirectorEntry(Director director) {
+        Entry oldEntry = directors.get(director.getId());
+        long weight = 0;
+        if (oldEntry != null) {
+            unlink(oldEntry);
+            weight = oldEntry.weight;
+        }
+        Entry entry = new Entry(SuggestionType.DIRECTOR, director.getId(), director.getName(), weight);
+        directors.put(director.getId(), entry);
+        link(entry);
+    }
+
+    private void removeDirectorEntry(long directorId) {
+        Entry oldEntry = directors.remove(directorId);
+        if (oldEntry != null) {
+            unlink(oldEntry);
+        }
+        films.replaceAll((filmId, record) -> record.withoutDirector(directorId));
+    }
+
+    private void changeDirectorsWeight(long[] directorIds, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        for (long directorId : directorIds) {
+            Entry entry = directors.get(directorId);
+            if (entry != null) {
+                entry.weight = Math.max(0, entry.weight + delta);
+                relink(entry);
+            }
+        }
+    }
+
+    private void link(Entry entry) {
+        for (String key : entry.keys) {
+            Node[] path = new Node[Math.min(key.length(), MAX_DEPTH) + 1];
+            path[0] = root;
+            for (int i = 1; i < path.length; i++) {
+                path[i] = path[i - 1].getOrCreateChild(key.charAt(i - 1));
+            }
+            path[path.length - 1].addTerminal(new Terminal(entry, key));
+            if (!bulkLoading) {
+                recompute(path, key);
+            }
+        }
+    }
+
+    private void unlink(Entry entry) {
+        for (String key : entry.keys) {
+            Node[] path = findPath(key);
+            if (path != null) {
+                path[path.length - 1].removeTerminals(entry);
+                recompute(path, key);
+            }
+        }
+    }
+
+    private void relink(Entry entry) {
+        if (bulkLoading) {
+            return;
+        }
+        for (String key : entry.keys) {
+            Node[] path = findPath(key);
+            if (path != null) {
+                recompute(path, key);
+            }
+        }
+    }
+
+    private Node[] findPath(String key) {
+        Node[] path = new Node[Math.min(key.length(), MAX_DEPTH) + 1];
+        path[0] = root;
+        for (int i = 1; i < path.length; i++) {
+            path[i] = path[i - 1].child(key.charAt(i - 1));
+            if (path[i] == null) {
+                return null;
+            }
+        }
+        return path;
+    }
+
+    private static void recompute(Node[] path, String key) {
+        for (int i = path.length - 1; i >= 0; i--) {
+            Node node = path[i];
+            node.recomputeTop();
+            if (i > 0 && node.isEmpty()) {
+                path[i - 1].removeChild(key.charAt(i - 1));
+            }
+        }
+    }
+
+    private static Entry[] selectTop(List<Entry> candidates) {
+        candidates.sort(RANKING_ORDER);
+        List<Entry> top = new ArrayList<>(SUGGESTIONS_COUNT);
+        for (Entry candidate : candidates) {
+            if (top.size() == SUGGESTIONS_COUNT) {
+                break;
+            }
+            if (top.stream().noneMatch(entry -> entry == candidate)) {
+                top.add(candidate);
+            }
+        }
+        return top.toArray(new Entry[0]);
+    }
+
+    private static String[] keys(String text) {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < text.length(); i++) {
+            boolean wordStart = i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1));
+            if (wordStart && (i == 0 || Character.isLetterOrDigit(text.charAt(i)))) {
+                keys.add(text.substring(i));
+            }
+        }
+        return keys.stream().distinct().toArray(String[]::new);
+    }
+
+    private static final class Entry {
+        private final SuggestionType type;
+        private final long id;
+        private final String text;
+        private final String[] keys;
+        private long weight;
+
+        private Entry(SuggestionType type, long id, String text, long weight) {
+            this.type = type;
+            this.id = id;
+            this.text = text == null ? "" : text;
+            this.keys = keys(FilmSearchIndex.normalize(text));
+            this.weight = weight;
+        }
+    }
+
+    private static final class FilmRecord {
+        private final Entry entry;
+        private final long[] directorIds;
+
+        private FilmRecord(Entry entry, long[] directorIds) {
+            this.entry = entry;
+            this.directorIds = directorIds;
+        }
+
+        private FilmRecord withoutDirector(long directorId) {
+            if (Arrays.stream(directorIds).noneMatch(id -> id == directorId)) {
+                return this;
+            }
+            return new FilmRecord(entry, Arrays.stream(directorIds).filter(id -> id != directorId).toArray());
+        }
+    }
+
+    private static final class Terminal {
+        private final Entry entry;
+        private final String key;
+
+        private Terminal(Entry entry, String key) {
+            this.entry = entry;
+            this.key = key;
+        }
+    }
+
+    private static final class Node {
+        private static final char[] NO_LABELS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final Entry[] NO_ENTRIES = new Entry[0];
+
+        private char[] labels = NO_LABELS;
+        private Node[] children = NO_CHILDREN;
+        private List<Terminal> terminals;
+        private Entry[] top = NO_ENTRIES;
+
+        private Node child(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private Node getOrCreateChild(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index >= 0) {
+                return children[index];
+            }
+
+            index = -index - 1;
+            Node child = new Node();
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newLabels[index] = label;
+            newChildren[index] = child;
+            System.arraycopy(labels, index, newLabels, index + 1, labels.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            labels = newLabels;
+            children = newChildren;
+            return child;
+        }
+
+        private void removeChild(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index < 0) {
+                return;
+            }
+            if (labels.length == 1) {
+                labels = NO_LABELS;
+                children = NO_CHILDREN;
+                return;
+            }
+
+            char[] newLabels = new char[labels.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(labels, index + 1, newLabels, index, labels.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            labels = newLabels;
+            children = newChildren;
+        }
+
+        private void addTerminal(Terminal terminal) {
+            if (terminals == null) {
+                terminals = new ArrayList<>(1);
+            }
+            terminals.add(terminal);
+        }
+
+        private void removeTerminals(Entry entry) {
+            if (terminals != null) {
+                terminals.removeIf(terminal -> terminal.entry == entry);
+                if (terminals.isEmpty()) {
+                    terminals = null;
+                }
+            }
+        }
+
+        private boolean isEmpty() {
+            return terminals == null && children.length == 0;
+        }
+
+        private void recomputeTop() {
+            List<Entry> candidates = new ArrayList<>();
+            if (terminals != null) {
+                for (Terminal terminal : terminals) {
+                    candidates.add(terminal.entry);
+                }
+            }
+            for (Node child : children) {
+                candidates.addAll(Arrays.asList(child.top));
+            }
+            top = selectTop(candidates);
+        }
+
+        private void recomputeSubtree() {
+            for (Node child : children) {
+                child.recomputeSubtree();
+            }
+            recomputeTop();
+        }
+
+        private Entry[] topMatching(String key) {
+            List<Entry> candidates = new ArrayList<>();
+            if (terminals != null) {
+                for (Terminal terminal : terminals) {
+                    if (terminal.key.startsWith(key)) {
+                        candidates.add(terminal.entry);
+                    }
+                }
+            }
+            return selectTop(candidates);
+        }
+
+        private int countNodes() {
+            int count = 1;
+            for (Node child : children) {
+                count += child.countNodes();
+            }
+            return count;
+        }
+    }
+}
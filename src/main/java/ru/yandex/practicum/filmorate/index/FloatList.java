@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.Arrays;
+
+final class FloatList {
+    private float[] values = new float[16];
+    private int size;
+
+    void add(float value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    float get(int index) {
+        return values[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    float[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,140 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Component
+@Slf4j
+public class FriendSuggestionIndex {
+    private final FriendshipGraph friendshipGraph;
+    private final int maxFanOut;
+    private final int maxResults;
+    private final ConcurrentMap<Integer, Suggestions> suggestions = new ConcurrentHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, int[]> dependents = new HashMap<>();
+    private long generation;
+
+    public FriendSuggestionIndex(FriendshipGraph friendshipGraph,
+                                 @Value("${filmorate.friends.suggestions.max-fan-out:1000}") int maxFanOut,
+                                 @Value("${filmorate.friends.suggestions.max-results:100}") int maxResults) {
+        this.friendshipGraph = friendshipGraph;
+        this.maxFanOut = maxFanOut;
+        this.maxResults = maxResults;
+    }
+
+    public int[] getSuggestedIds(int userId, int limit) {
+        Suggestions cached = suggestions.get(userId);
+        if (cached == null) {
+            long startGeneration;
+            lock.readLock().lock();
+            try {
+                startGeneration = generation;
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            cached = compute(userId);
+
+            lock.writeLock().lock();
+            try {
+                if (startGeneration == generation && friendshipGraph.isLoaded()) {
+                    suggestions.put(userId, cached);
+                    for (int friendId : cached.viaIds) {
+                        dependents.put(friendId, SortedInts.insert(dependents.get(friendId), userId));
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        return Arrays.copyOf(cached.userIds, Math.min(limit, cached.userIds.length));
+    }
+
+    public void invalidate(int userId) {
+        lock.writeLock().lock();
+        try {
+            generation++;
+            drop(userId);
+            int[] affectedIds = dependents.remove(userId);
+            if (affectedIds != null) {
+                for (int affectedId : affectedIds) {
+                    drop(affectedId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            generation++;
+            suggestions.clear();
+            dependents.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Suggestions compute(int userId) {
+        long start = System.nanoTime();
+        int[] friendIds = friendshipGraph.getFriendIds(userId);
+        int[] viaIds = friendIds.length > maxFanOut ? Arrays.copyOf(friendIds, maxFanOut) : friendIds;
+
+        IntCounter mutualCounts = new IntCounter(viaIds.length * 16);
+        for (int friendId : viaIds) {
+            int[] candidateIds = friendshipGraph.getFriendIds(friendId);
+            int count = Math.min(maxFanOut, candidateIds.length);
+            for (int i = 0; i < count; i++) {
+                if (candidateIds[i] != userId) {
+                    mutualCounts.increment(candidateIds[i]);
+                }
+            }
+        }
+
+        int candidatesCount = mutualCounts.size();
+        IntList userIds = new IntList();
+        mutualCounts.drainTopTo(maxResults, friendIds, userIds, new FloatList());
+
+        log.debug("Рассчитаны рекомендации друзей для пользователя с id = {}: друзей {}, кандидатов {} за {} мкс",
+                userId, viaIds.length, candidatesCount, (System.nanoTime() - start) / 1000);
+        return new Suggestions(userIds.toArray(), viaIds);
+    }
+
+    private void drop(int userId) {
+        Suggestions removed = suggestions.remove(userId);
+        if (removed == null) {
+            return;
+        }
+
+        for (int friendId : removed.viaIds) {
+            int[] updated = SortedInts.remove(dependents.get(friendId), userId);
+            if (updated == null) {
+                dependents.remove(friendId);
+            } else {
+                dependents.put(friendId, updated);
+            }
+        }
+    }
+
+    private static final class Suggestions {
+        private final int[] userIds;
+        private final int[] viaIds;
+
+        private Suggestions(int[] userIds, int[] viaIds) {
+            this.userIds = userIds;
+            this.viaIds = viaIds;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.EventWriter;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventTypeStatus;
+import ru.yandex.practicum.filmorate.model.OperationStatus;
+import ru.yandex.practicum.filmorate.storage.EventStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Component
+@Slf4j
+public class FriendsFeedIndex {
+    private static final EventTypeStatus[] EVENT_TYPES = EventTypeStatus.values();
+    private static final OperationStatus[] OPERATIONS = OperationStatus.values();
+    private static final Ring[] NO_RINGS = new Ring[0];
+
+    private final UserStorage userStorage;
+    private final EventStorage eventStorage;
+    private final EventWriter eventWriter;
+    private final int bufferSize;
+    private final ConcurrentMap<Integer, Ring> rings = new ConcurrentHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Ring[]> followers = new HashMap<>();
+
+    public FriendsFeedIndex(UserStorage userStorage, EventStorage eventStorage, EventWriter eventWriter,
+                            @Value("${filmorate.feed.friends.buffer-size:200}") int bufferSize) {
+        this.userStorage = userStorage;
+        this.eventStorage = eventStorage;
+        this.eventWriter = eventWriter;
+        this.bufferSize = bufferSize;
+    }
+
+    public List<Event> getLatestEvents(int userId, int limit) {
+        Ring ring = rings.computeIfAbsent(userId, id -> new Ring(id, bufferSize));
+        if (!ring.loaded) {
+            ring.loadLock.lock();
+            try {
+                if (!ring.loaded) {
+                    load(ring);
+                }
+            } finally {
+                ring.loadLock.unlock();
+            }
+        }
+
+        synchronized (ring) {
+            return ring.latest(limit);
+        }
+    }
+
+    public void publish(Event event) {
+        Ring[] targets;
+        lock.readLock().lock();
+        try {
+            targets = followers.getOrDefault(event.getUserId(), NO_RINGS);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        for (Ring ring : targets) {
+            synchronized (ring) {
+                ring.add(event.getEventId(), event.getTimestamp(), event.getUserId(), event.getEntityId(),
+                        event.getEventType(), event.getOperation());
+            }
+        }
+    }
+
+    public void invalidate(int userId) {
+        Ring ring = rings.remove(userId);
+        if (ring == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            unregister(ring);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeUser(int userId) {
+        invalidate(userId);
+
+        Ring[] followerRings;
+        lock.readLock().lock();
+        try {
+            followerRings = followers.getOrDefault(userId, NO_RINGS);
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (Ring ring : followerRings) {
+            invalidate(ring.userId);
+        }
+    }
+
+    private void load(Ring ring) {
+        long start = System.nanoTime();
+        List<Integer> friendIdList = userStorage.getFriendIds(ring.userId);
+        int[] friendIds = friendIdList.stream().mapToInt(Integer::intValue).toArray();
+
+        lock.writeLock().lock();
+        try {
+            if (rings.get(ring.userId) == ring) {
+                ring.friendIds = friendIds;
+                for (int friendId : friendIds) {
+                    Ring[] current = followers.getOrDefault(friendId, NO_RINGS);
+                    Ring[] updated = new Ring[current.length + 1];
+                    System.arraycopy(current, 0, updated, 0, current.length);
+                    updated[current.length] = ring;
+                    followers.put(friendId, updated);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        eventWriter.flushPending(friendIdList);
+        List<Event> events = friendIds.length == 0
+                ? List.of()
+                : eventStorage.findLatestEventsByUserIds(friendIdList, bufferSize);
+
+        synchronized (ring) {
+            for (int i = events.size() - 1; i >= 0; i--) {
+                Event event = events.get(i);
+                ring.add(event.getEventId(), event.getTimestamp(), event.getUserId(), event.getEntityId(),
+                        event.getEventType(), event.getOperation());
+            }
+            ring.loaded = true;
+        }
+        log.debug("Лента друзей пользователя с id = {} восстановлена из базы: друзей {}, событий {} за {} мкс",
+                ring.userId, friendIds.length, events.size(), (System.nanoTime() - start) / 1000);
+    }
+
+    private void unregister(Ring ring) {
+        for (int friendId : ring.friendIds) {
+            Ring[] current = followers.get(friendId);
+            if (current == null) {
+                continue;
+            }
+
+            Ring[] updated = new Ring[current.length];
+            int size = 0;
+            for (Ring other : current) {
+                if (other != ring) {
+                    updated[size++] = other;
+                }
+            }
+            if (size == 0) {
+                followers.remove(friendId);
+            } else {
+                followers.put(friendId, Arrays.copyOf(updated, size));
+            }
+        }
+    }
+
+    private static final class Ring {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private final int userId;
+        private final int capacity;
+        private final ReentrantLock loadLock = new ReentrantLock();
+        private volatile boolean loaded;
+        private int[] friendIds = new int[0];
+        private int[] eventIds = new int[0];
+        private long[] timestamps = new long[0];
+        private int[] authorIds = new int[0];
+        private int[] entityIds = new int[0];
+        private byte[] eventTypes = new byte[0];
+        private byte[] operations = new byte[0];
+        private int head;
+        private int size;
+
+        private Ring(int userId, int capacity) {
+            this.userId = userId;
+            this.capacity = capacity;
+        }
+
+        private void add(int eventId, long timestamp, int authorId, int entityId, EventTypeStatus eventType,
+                         OperationStatus operation) {
+            int position = size;
+            while (position > 0 && eventIds[index(position - 1)] >= eventId) {
+                if (eventIds[index(position - 1)] == eventId) {
+                    return;
+                }
+                position--;
+            }
+            if (size == capacity) {
+                if (position == 0) {
+                    return;
+                }
+                head = index(1);
+                size--;
+                position--;
+            } else if (size == eventIds.length) {
+                grow();
+            }
+
+            for (int i = size; i > position; i--) {
+                copy(index(i - 1), index(i));
+            }
+            int slot = index(position);
+            eventIds[slot] = eventId;
+            timestamps[slot] = timestamp;
+            authorIds[slot] = authorId;
+            entityIds[slot] = entityId;
+            eventTypes[slot] = (byte) eventType.ordinal();
+            operations[slot] = (byte) operation.ordinal();
+            size++;
+        }
+
+        private List<Event> latest(int limit) {
+            int count = Math.min(limit, size);
+            List<Event> events = new ArrayList<>(count);
+            for (int position = size - count; position < size; position++) {
+                int slot = index(position);
+                events.add(new Event(eventIds[slot], timestamps[slot], authorIds[slot], entityIds[slot],
+                        EVENT_TYPES[eventTypes[slot]], OPERATIONS[operations[slot]]));
+            }
+            return events;
+        }
+
+        private int index(int position) {
+            int slot = head + position;
+            return slot >= eventIds.length ? slot - eventIds.length : slot;
+        }
+
+        private void copy(int from, int to) {
+            eventIds[to] = eventIds[from];
+            timestamps[to] = timestamps[from];
+            authorIds[to] = authorIds[from];
+            entityIds[to] = entityIds[from];
+            eventTypes[to] = eventTypes[from];
+            operations[to] = operations[from];
+        }
+
+        private void grow() {
+            int length = Math.min(capacity, Math.max(INITIAL_CAPACITY, eventIds.length * 2));
+            int[] newEventIds = new int[length];
+            long[] newTimestamps = new long[length];
+            int[] newAuthorIds = new int[length];
+            int[] newEntityIds = new int[length];
+            byte[] newEventTypes = new byte[length];
+            byte[] newOperations = new byte[length];
+            for (int position = 0; position < size; position++) {
+                int slot = index(position);
+                newEventIds[position] = eventIds[slot];
+                newTimestamps[position] = timestamps[slot];
+                newAuthorIds[position] = authorIds[slot];
+                newEntityIds[position] = entityIds[slot];
+                newEventTypes[position] = eventTypes[slot];
+                newOperations[position] = operations[slot];
+            }
+            eventIds = newEventIds;
+            timestamps = newTimestamps;
+            authorIds = newAuthorIds;
+            entityIds = newEntityIds;
+            eventTypes = newEventTypes;
+            operations = newOperations;
+            head = 0;
+        }
+    }
+}
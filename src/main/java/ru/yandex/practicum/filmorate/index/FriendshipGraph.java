@@ -0,0 +1,178 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Status;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Component
+@Slf4j
+public class FriendshipGraph {
+    private static final int[] NO_FRIENDS = new int[0];
+
+    private final UserStorage userStorage;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, int[]> confirmed = new HashMap<>();
+    private final Map<Integer, int[]> pending = new HashMap<>();
+    private volatile boolean loaded;
+
+    public FriendshipGraph(UserStorage userStorage) {
+        this.userStorage = userStorage;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            confirmed.clear();
+            pending.clear();
+            EdgesBuilder confirmedEdges = new EdgesBuilder(confirmed);
+            EdgesBuilder pendingEdges = new EdgesBuilder(pending);
+            userStorage.forEachFriendship((userId, friendId, status) ->
+                    (status == Status.CONFIRMED ? confirmedEdges : pendingEdges).add(userId, friendId));
+            confirmedEdges.finish();
+            pendingEdges.finish();
+            loaded = true;
+
+            log.info("Граф дружбы загружен: пользователей с друзьями {}, подтвержденных связей {}, " +
+                            "неподтвержденных {} за {} мс", confirmed.size(), confirmedEdges.edgesCount,
+                    pendingEdges.edgesCount, (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public void putEdge(int userId, int friendId, Status status) {
+        lock.writeLock().lock();
+        try {
+            Map<Integer, int[]> target = status == Status.CONFIRMED ? confirmed : pending;
+            Map<Integer, int[]> other = status == Status.CONFIRMED ? pending : confirmed;
+            update(other, userId, SortedInts.remove(other.get(userId), friendId));
+            update(target, userId, SortedInts.insert(target.get(userId), friendId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeEdge(int userId, int friendId) {
+        lock.writeLock().lock();
+        try {
+            update(confirmed, userId, SortedInts.remove(confirmed.get(userId), friendId));
+            update(pending, userId, SortedInts.remove(pending.get(userId), friendId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeUser(int userId) {
+        lock.writeLock().lock();
+        try {
+            confirmed.remove(userId);
+            pending.remove(userId);
+            removeFromAll(confirmed, userId);
+            removeFromAll(pending, userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int[] getFriendIds(int userId) {
+        lock.readLock().lock();
+        try {
+            return confirmed.getOrDefault(userId, NO_FRIENDS);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int[] getCommonFriendIds(int userId, int otherId) {
+        int[] friends;
+        int[] otherFriends;
+        lock.readLock().lock();
+        try {
+            friends = confirmed.getOrDefault(userId, NO_FRIENDS);
+            otherFriends = confirmed.getOrDefault(otherId, NO_FRIENDS);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        int[] common = new int[Math.min(friends.length, otherFriends.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < friends.length && j < otherFriends.length) {
+            if (friends[i] < otherFriends[j]) {
+                i++;
+            } else if (friends[i] > otherFriends[j]) {
+                j++;
+            } else {
+                common[count++] = friends[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(common, count);
+    }
+
+    private static void update(Map<Integer, int[]> edges, int userId, int[] friendIds) {
+        if (friendIds == null) {
+            edges.remove(userId);
+        } else {
+            edges.put(userId, friendIds);
+        }
+    }
+
+    private static void removeFromAll(Map<Integer, int[]> edges, int friendId) {
+        Iterator<Map.Entry<Integer, int[]>> iterator = edges.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, int[]> entry = iterator.next();
+            int[] friendIds = SortedInts.remove(entry.getValue(), friendId);
+            if (friendIds == null) {
+                iterator.remove();
+            } else {
+                entry.setValue(friendIds);
+            }
+        }
+    }
+
+    private static final class EdgesBuilder {
+        private final Map<Integer, int[]> edges;
+        private final IntList friendIds = new IntList();
+        private int userId = -1;
+        private long edgesCount;
+
+        private EdgesBuilder(Map<Integer, int[]> edges) {
+            this.edges = edges;
+        }
+
+        private void add(int userId, int friendId) {
+            if (userId != this.userId) {
+                finish();
+                this.userId = userId;
+            }
+            friendIds.add(friendId);
+            edgesCount++;
+        }
+
+        private void finish() {
+            if (friendIds.size() > 0) {
+                edges.put(userId, friendIds.toArray());
+                friendIds.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.index;
+
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+public final class LikeMatrix {
+    final int[] rowUserIds;
+    final int[] rowOffsets;
+    final int[] rowFilms;
+    final int[] filmOffsets;
+    final int[] filmRows;
+
+    private LikeMatrix(int[] rowUserIds, int[] rowOffsets, int[] rowFilms) {
+        this.rowUserIds = rowUserIds;
+        this.rowOffsets = rowOffsets;
+        this.rowFilms = rowFilms;
+
+        int maxFilmId = 0;
+        for (int filmId : rowFilms) {
+            maxFilmId = Math.max(maxFilmId, filmId);
+        }
+        filmOffsets = new int[maxFilmId + 2];
+        for (int filmId : rowFilms) {
+            filmOffsets[filmId + 1]++;
+        }
+        for (int filmId = 0; filmId <= maxFilmId; filmId++) {
+            filmOffsets[filmId + 1] += filmOffsets[filmId];
+        }
+
+        filmRows = new int[rowFilms.length];
+        int[] positions = Arrays.copyOf(filmOffsets, maxFilmId + 1);
+        for (int row = 0; row < rowUserIds.length; row++) {
+            for (int i = rowOffsets[row]; i < rowOffsets[row + 1]; i++) {
+                filmRows[positions[rowFilms[i]]++] = row;
+            }
+        }
+    }
+
+    public static LikeMatrix load(FilmStorage filmStorage) {
+        IntList userIds = new IntList();
+        IntList offsets = new IntList();
+        IntList films = new IntList();
+        int[] lastUserId = {-1};
+        int[] lastFilmId = {-1};
+
+        filmStorage.forEachLike((userId, filmId) -> {
+            if (userId != lastUserId[0]) {
+                userIds.add(userId);
+                offsets.add(films.size());
+                lastUserId[0] = userId;
+                lastFilmId[0] = -1;
+            }
+            if (filmId != lastFilmId[0]) {
+                films.add(filmId);
+                lastFilmId[0] = filmId;
+            }
+        });
+        offsets.add(films.size());
+
+        return new LikeMatrix(userIds.toArray(), offsets.toArray(), films.toArray());
+    }
+
+    public int usersCount() {
+        return rowUserIds.length;
+    }
+
+    public int userId(int row) {
+        return rowUserIds[row];
+    }
+
+    public int likesCount() {
+        return rowFilms.length;
+    }
+
+    public int filmsCount() {
+        int count = 0;
+        for (int filmId = 0; filmId < filmOffsets.length - 1; filmId++) {
+            if (filmOffsets[filmId + 1] > filmOffsets[filmId]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    int filmsLength() {
+        return filmOffsets.length - 1;
+    }
+
+    int degree(int filmId) {
+        return filmOffsets[filmId + 1] - filmOffsets[filmId];
+    }
+
+    ConcurrentMap<Integer, int[]> toUserLikes() {
+        ConcurrentMap<Integer, int[]> userLikes = new ConcurrentHashMap<>(rowUserIds.length * 2);
+        for (int row = 0; row < rowUserIds.length; row++) {
+            userLikes.put(rowUserIds[row], Arrays.copyOfRange(rowFilms, rowOffsets[row], rowOffsets[row + 1]));
+        }
+        return userLikes;
+    }
+}
@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+final class ScoreAccumulator {
+    private float[] scores = new float[0];
+    private int[] touched = new int[16];
+    private int touchedCount;
+
+    void add(int id, float score) {
+        if (id >= scores.length) {
+            scores = Arrays.copyOf(scores, Math.max(id + 1, scores.length * 2));
+        }
+        if (scores[id] == 0) {
+            if (touchedCount == touched.length) {
+                touched = Arrays.copyOf(touched, touchedCount * 2);
+            }
+            touched[touchedCount++] = id;
+        }
+        scores[id] += score;
+    }
+
+    void drainTopTo(int count, IntList targetIds, FloatList targetScores) {
+        TopN top = new TopN(count);
+        for (int i = 0; i < touchedCount; i++) {
+            int id = touched[i];
+            top.offer(id, scores[id]);
+            scores[id] = 0;
+        }
+        touchedCount = 0;
+        top.drainTo(targetIds, targetScores);
+    }
+
+    List<Integer> drainTop(int count) {
+        IntList ids = new IntList();
+        drainTopTo(count, ids, new FloatList());
+        List<Integer> result = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            result.add(ids.get(i));
+        }
+        return result;
+    }
+}
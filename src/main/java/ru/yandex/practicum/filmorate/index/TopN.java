@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.index;
+
+final class TopN {
+    private final int capacity;
+    private final int[] ids;
+    private final float[] scores;
+    private int size;
+
+    TopN(int capacity) {
+        this.capacity = capacity;
+        this.ids = new int[capacity];
+        this.scores = new float[capacity];
+    }
+
+    void offer(int id, float score) {
+        if (size < capacity) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (capacity > 0 && isBetter(id, score, 0)) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    void drainTo(IntList targetIds, FloatList targetScores) {
+        int count = size;
+        int[] sortedIds = new int[count];
+        float[] sortedScores = new float[count];
+        for (int i = count - 1; i >= 0; i--) {
+            sortedIds[i] = ids[0];
+            sortedScores[i] = scores[0];
+            size--;
+            ids[0] = ids[size];
+            scores[0] = scores[size];
+            siftDown(0);
+        }
+        for (int i = 0; i < count; i++) {
+            targetIds.add(sortedIds[i]);
+            targetScores.add(sortedScores[i]);
+        }
+    }
+
+    private boolean isBetter(int id, float score, int index) {
+        return score > scores[index] || score == scores[index] && id < ids[index];
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!isBetter(ids[parent], scores[parent], index)) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int worst = index;
+            int left = index * 2 + 1;
+            int right = left + 1;
+            if (left < size && isBetter(ids[worst], scores[worst], left)) {
+                worst = left;
+            }
+            if (right < size && isBetter(ids[worst], scores[worst], right)) {
+                worst = right;
+            }
+            if (worst == index) {
+                return;
+            }
+            swap(index, worst);
+            index = worst;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        float score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+}
@@ -0,0 +1,147 @@
+package ru.yandex.practicum.filmorate.index;
+
+import ru.yandex.practicum.filmorate.storage.RecommendationStorage;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public final class UserBasedRecommender {
+    private static final int LEAF_SIZE = 256;
+
+    private final LikeMatrix matrix;
+    private final int similarUsersCount;
+    private final int maxResults;
+    private final int maxFilmLikes;
+    private final int[][] filmIds;
+    private final float[][] scores;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    private UserBasedRecommender(LikeMatrix matrix, int similarUsersCount, int maxResults, int maxFilmLikes) {
+        this.matrix = matrix;
+        this.similarUsersCount = similarUsersCount;
+        this.maxResults = maxResults;
+        this.maxFilmLikes = maxFilmLikes;
+        this.filmIds = new int[matrix.usersCount()][];
+        this.scores = new float[matrix.usersCount()][];
+    }
+
+    public static Result compute(LikeMatrix matrix, ForkJoinPool pool, int similarUsersCount, int maxResults,
+                                 int maxFilmLikes) {
+        UserBasedRecommender recommender = new UserBasedRecommender(matrix, similarUsersCount, maxResults,
+                maxFilmLikes);
+        pool.invoke(recommender.new RowsTask(0, matrix.usersCount()));
+        return new Result(matrix, recommender.filmIds, recommender.scores);
+    }
+
+    private void recommend(int row) {
+        Scratch local = scratch.get();
+        int from = matrix.rowOffsets[row];
+        int to = matrix.rowOffsets[row + 1];
+
+        for (int i = from; i < to; i++) {
+            int filmId = matrix.rowFilms[i];
+            if (matrix.degree(filmId) > maxFilmLikes) {
+                continue;
+            }
+            for (int j = matrix.filmOffsets[filmId]; j < matrix.filmOffsets[filmId + 1]; j++) {
+                int otherRow = matrix.filmRows[j];
+                if (otherRow != row) {
+                    local.users.add(otherRow, 1);
+                }
+            }
+        }
+        local.userRows.clear();
+        local.userWeights.clear();
+        local.users.drainTopTo(similarUsersCount, local.userRows, local.userWeights);
+
+        for (int i = 0; i < local.userRows.size(); i++) {
+            int otherRow = local.userRows.get(i);
+            float weight = local.userWeights.get(i);
+            for (int j = matrix.rowOffsets[otherRow]; j < matrix.rowOffsets[otherRow + 1]; j++) {
+                int filmId = matrix.rowFilms[j];
+                if (Arrays.binarySearch(matrix.rowFilms, from, to, filmId) < 0) {
+                    local.films.add(filmId, weight);
+                }
+            }
+        }
+        local.filmIds.clear();
+        local.filmScores.clear();
+        local.films.drainTopTo(maxResults, local.filmIds, local.filmScores);
+
+        filmIds[row] = local.filmIds.toArray();
+        scores[row] = local.filmScores.toArray();
+    }
+
+    public static final class Result implements RecommendationStorage.RecommendationSource {
+        private final LikeMatrix matrix;
+        private final int[][] filmIds;
+        private final float[][] scores;
+
+        private Result(LikeMatrix matrix, int[][] filmIds, float[][] scores) {
+            this.matrix = matrix;
+            this.filmIds = filmIds;
+            this.scores = scores;
+        }
+
+        @Override
+        public int usersCount() {
+            return filmIds.length;
+        }
+
+        @Override
+        public int userId(int row) {
+            return matrix.userId(row);
+        }
+
+        @Override
+        public int[] filmIds(int row) {
+            return filmIds[row];
+        }
+
+        @Override
+        public float[] scores(int row) {
+            return scores[row];
+        }
+
+        public long recommendationsCount() {
+            long count = 0;
+            for (int[] row : filmIds) {
+                count += row.length;
+            }
+            return count;
+        }
+    }
+
+    private final class RowsTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+
+        private RowsTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                for (int row = from; row < to; row++) {
+                    recommend(row);
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new RowsTask(from, middle), new RowsTask(middle, to));
+        }
+    }
+
+    private static final class Scratch {
+        private final ScoreAccumulator users = new ScoreAccumulator();
+        private final ScoreAccumulator films = new ScoreAccumulator();
+        private final IntList userRows = new IntList();
+        private final FloatList userWeights = new FloatList();
+        private final IntList filmIds = new IntList();
+        private final FloatList filmScores = new FloatList();
+    }
+}
@@ -2,7 +2,6 @@ package ru.yandex.practicum.filmorate.mapper;
 
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
-import ru.yandex.practicum.filmorate.model.Status;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.sql.Date;
@@ -12,8 +11,6 @@ import java.time.LocalDate;
 
 @Component
 public class UserMapper implements RowMapper<User> {
-    private static final int FRIENDS_DATA_COLUMN = 2;
-
     @Override
     public User mapRow(ResultSet rs, int rowNum) throws SQLException {
         int id = rs.getInt("id");
@@ -23,25 +20,6 @@ public class UserMapper implements RowMapper<User> {
         Date birthdayRow = rs.getDate("birthday");
         LocalDate birthday = (birthdayRow == null) ? null : birthdayRow.toLocalDate();
 
-        User user = new User(id, email, login, name, birthday);
-
-        ResultSet friendsDataResultSet = rs.getArray("friends_data").getResultSet();
-        while (friendsDataResultSet.next()) {
-            String friendData = friendsDataResultSet.getString(FRIENDS_DATA_COLUMN);
-
-            if (friendData == null) {
-                break;
-            }
-
-            String[] data = friendData.split(" ");
-            int friendId = Integer.parseInt(data[0]);
-            Status friendshipStatus = Status.valueOf(data[1].toUpperCase());
-
-            user.addFriend(friendId, friendshipStatus);
-        }
-
-        friendsDataResultSet.close();
-
-        return user;
+        return new User(id, email, login, name, birthday);
     }
 }
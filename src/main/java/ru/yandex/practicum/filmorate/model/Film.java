@@ -33,7 +33,7 @@ public class Film {
     @Valid
     private Mpa mpa;
     private Set<@Valid Genre> genres;
-    private Set<Integer> likes;
+    private int likesCount;
 
     private Set<Director> directors;
 
@@ -52,19 +52,10 @@ public class Film {
     }
 
     public Film() {
-        likes = new HashSet<>();
         genres = new HashSet<>();
         directors = new HashSet<>();
     }
 
-    public boolean addLike(int userId) {
-        return likes.add(userId);
-    }
-
-    public boolean deleteLike(Integer userId) {
-        return likes.remove(userId);
-    }
-
     public boolean addGenre(Genre genre) {
         return genres.add(genre);
     }
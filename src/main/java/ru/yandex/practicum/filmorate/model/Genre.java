@@ -3,9 +3,6 @@ package ru.yandex.practicum.filmorate.model;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import lombok.*;
 
-import javax.validation.constraints.Max;
-import javax.validation.constraints.Min;
-
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
@@ -14,8 +11,6 @@ import javax.validation.constraints.Min;
 @ToString
 @JsonPropertyOrder({"id", "name"})
 public class Genre {
-    @Min(value = 1)
-    @Max(value = 6)
     private int id;
     private String name;
 }
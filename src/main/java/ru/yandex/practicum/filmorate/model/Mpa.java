@@ -2,9 +2,6 @@ package ru.yandex.practicum.filmorate.model;
 
 import lombok.*;
 
-import javax.validation.constraints.Max;
-import javax.validation.constraints.Min;
-
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
@@ -12,8 +9,6 @@ import javax.validation.constraints.Min;
 @EqualsAndHashCode
 @ToString
 public class Mpa {
-    @Min(value = 1)
-    @Max(value = 5)
     private int id;
     private String name;
 }
@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -28,6 +29,7 @@ public class User {
     private String name;
     @Past
     private LocalDate birthday;
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
     private Map<Integer, Status> friends;
 
     public User(String email, String login, String name, LocalDate birthday) {
@@ -0,0 +1,142 @@
+package ru.yandex.practicum.filmorate.reference;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Status;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.MpaStorage;
+import ru.yandex.practicum.filmorate.storage.StatusStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Component
+@Slf4j
+public class ReferenceDataRegistry {
+    private static final Map<String, Status> STATUSES_BY_NAME = Map.of(
+            "Confirmed", Status.CONFIRMED,
+            "Unconfirmed", Status.UNCONFIRMED);
+
+    private final GenreStorage genreStorage;
+    private final MpaStorage mpaStorage;
+    private final StatusStorage statusStorage;
+    private volatile Snapshot snapshot;
+
+    public ReferenceDataRegistry(GenreStorage genreStorage, MpaStorage mpaStorage, StatusStorage statusStorage) {
+        this.genreStorage = genreStorage;
+        this.mpaStorage = mpaStorage;
+        this.statusStorage = statusStorage;
+    }
+
+    @PostConstruct
+    public void refresh() {
+        Collection<Genre> genres = genreStorage.getAll();
+        Collection<Mpa> ratings = mpaStorage.getAll();
+        Map<Integer, String> statuses = statusStorage.getAll();
+
+        snapshot = new Snapshot(genres, ratings, statuses);
+        log.info("Загружены справочники: жанров {}, рейтингов {}, статусов дружбы {}",
+                genres.size(), ratings.size(), statuses.size());
+    }
+
+    public List<Genre> getGenres() {
+        Genre[] genres = snapshot.genres;
+        List<Genre> result = new ArrayList<>();
+        for (Genre genre : genres) {
+            if (genre != null) {
+                result.add(new Genre(genre.getId(), genre.getName()));
+            }
+        }
+        return result;
+    }
+
+    public Optional<Genre> findGenre(int genreId) {
+        Genre genre = get(snapshot.genres, genreId);
+        return genre == null ? Optional.empty() : Optional.of(new Genre(genre.getId(), genre.getName()));
+    }
+
+    public String getGenreName(int genreId) {
+        Genre genre = get(snapshot.genres, genreId);
+        return genre == null ? null : genre.getName();
+    }
+
+    public boolean isGenreExists(int genreId) {
+        return get(snapshot.genres, genreId) != null;
+    }
+
+    public List<Mpa> getRatings() {
+        Mpa[] ratings = snapshot.ratings;
+        List<Mpa> result = new ArrayList<>();
+        for (Mpa rating : ratings) {
+            if (rating != null) {
+                result.add(new Mpa(rating.getId(), rating.getName()));
+            }
+        }
+        return result;
+    }
+
+    public Optional<Mpa> findRating(int mpaId) {
+        Mpa rating = get(snapshot.ratings, mpaId);
+        return rating == null ? Optional.empty() : Optional.of(new Mpa(rating.getId(), rating.getName()));
+    }
+
+    public String getRatingName(int mpaId) {
+        Mpa rating = get(snapshot.ratings, mpaId);
+        return rating == null ? null : rating.getName();
+    }
+
+    public boolean isRatingExists(int mpaId) {
+        return get(snapshot.ratings, mpaId) != null;
+    }
+
+    public int getStatusId(Status status) {
+        return snapshot.statusIds[status.ordinal()];
+    }
+
+    public Status getStatus(int statusId) {
+        return get(snapshot.statuses, statusId);
+    }
+
+    private static <T> T get(T[] values, int id) {
+        return id >= 0 && id < values.length ? values[id] : null;
+    }
+
+    private static final class Snapshot {
+        private final Genre[] genres;
+        private final Mpa[] ratings;
+        private final Status[] statuses;
+        private final int[] statusIds;
+
+        private Snapshot(Collection<Genre> genres, Collection<Mpa> ratings, Map<Integer, String> statuses) {
+            this.genres = new Genre[genres.stream().mapToInt(Genre::getId).max().orElse(0) + 1];
+            for (Genre genre : genres) {
+                this.genres[genre.getId()] = new Genre(genre.getId(), genre.getName());
+            }
+
+            this.ratings = new Mpa[ratings.stream().mapToInt(Mpa::getId).max().orElse(0) + 1];
+            for (Mpa rating : ratings) {
+                this.ratings[rating.getId()] = new Mpa(rating.getId(), rating.getName());
+            }
+
+            this.statuses = new Status[statuses.keySet().stream().mapToInt(Integer::intValue).max().orElse(0) + 1];
+            this.statusIds = new int[Status.values().length];
+            statuses.forEach((statusId, name) -> {
+                Status status = STATUSES_BY_NAME.get(name);
+                if (status == null) {
+                    throw new IllegalStateException("Неизвестный статус дружбы в справочнике: " + name);
+                }
+                this.statuses[statusId] = status;
+                this.statusIds[status.ordinal()] = statusId;
+            });
+            if (!statuses.values().containsAll(STATUSES_BY_NAME.keySet())) {
+                throw new IllegalStateException("В справочнике статусов дружбы есть не все статусы: " + statuses);
+            }
+        }
+    }
+}
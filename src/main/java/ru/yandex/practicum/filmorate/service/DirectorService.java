@@ -2,11 +2,15 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.Constants;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FilmSuggestionIndex;
 import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.DirectorChangedEvent;
 import ru.yandex.practicum.filmorate.storage.DirectorStorage;
 
 import java.util.List;
@@ -16,10 +20,17 @@ import java.util.List;
 public class DirectorService {
 
     private final DirectorStorage directorStorage;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FilmSearchIndex searchIndex;
+    private final FilmSuggestionIndex suggestionIndex;
 
     @Autowired
-    public DirectorService(DirectorStorage directorStorage) {
+    public DirectorService(DirectorStorage directorStorage, ApplicationEventPublisher eventPublisher,
+                           FilmSearchIndex searchIndex, FilmSuggestionIndex suggestionIndex) {
         this.directorStorage = directorStorage;
+        this.eventPublisher = eventPublisher;
+        this.searchIndex = searchIndex;
+        this.suggestionIndex = suggestionIndex;
     }
 
     public Director getDirectorById(long id) {
@@ -38,17 +49,27 @@ public class DirectorService {
     }
 
     public Director addDirector(Director director) {
-        return directorStorage.addDirector(director);
+        Director addedDirector = directorStorage.addDirector(director);
+        searchIndex.putDirector(addedDirector);
+        suggestionIndex.putDirector(addedDirector);
+        return addedDirector;
     }
 
     public Director updateDirector(Director director) {
         checkDirectorExists(director.getId());
-        return directorStorage.updateDirector(director);
+        Director updatedDirector = directorStorage.updateDirector(director);
+        searchIndex.putDirector(updatedDirector);
+        suggestionIndex.putDirector(updatedDirector);
+        eventPublisher.publishEvent(new DirectorChangedEvent(director.getId()));
+        return updatedDirector;
     }
 
     public void deleteDirector(long id) {
         checkDirectorExists(id);
         directorStorage.deleteDirector(id);
+        searchIndex.removeDirector(id);
+        suggestionIndex.removeDirector(id);
+        eventPublisher.publishEvent(new DirectorChangedEvent(id));
     }
 
     private void checkDirectorExists(long id) {
@@ -1,36 +1,94 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.Constants;
+import ru.yandex.practicum.filmorate.event.EventWriter;
+import ru.yandex.practicum.filmorate.event.EventWriterStats;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.FriendsFeedIndex;
 import ru.yandex.practicum.filmorate.model.EventTypeStatus;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.OperationStatus;
-import ru.yandex.practicum.filmorate.storage.EventDbStorage;
+import ru.yandex.practicum.filmorate.storage.EventStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import javax.annotation.PreDestroy;
+import javax.validation.ValidationException;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Slf4j
 public class EventService {
     private final UserStorage userStorage;
-    private final EventDbStorage eventDbStorage;
+    private final EventStorage eventStorage;
+    private final EventWriter eventWriter;
+    private final FriendsFeedIndex friendsFeedIndex;
+    private final Duration archiveRetention;
+    private final Duration archiveInterval;
+    private final int archiveBatchSize;
+    private ScheduledExecutorService scheduler;
 
-    public EventService(UserStorage userStorage, EventDbStorage eventDbStorage) {
+    public EventService(UserStorage userStorage, EventStorage eventStorage, EventWriter eventWriter,
+                        FriendsFeedIndex friendsFeedIndex,
+                        @Value("${filmorate.events.archive.retention:180d}") Duration archiveRetention,
+                        @Value("${filmorate.events.archive.interval:1h}") Duration archiveInterval,
+                        @Value("${filmorate.events.archive.batch-size:10000}") int archiveBatchSize) {
         this.userStorage = userStorage;
-        this.eventDbStorage = eventDbStorage;
+        this.eventStorage = eventStorage;
+        this.eventWriter = eventWriter;
+        this.friendsFeedIndex = friendsFeedIndex;
+        this.archiveRetention = archiveRetention;
+        this.archiveInterval = archiveInterval;
+        this.archiveBatchSize = archiveBatchSize;
     }
 
-    public List<Event> getEvents(int userId) {
-        throwExceptionIfUserDoesNotExist(
-                "Выполнена попытка найти пользователя с несуществующим id = {}.",
-                userId);
+    public List<Event> getEvents(int userId, Integer beforeEventId, Long since, Integer afterEventId, int limit) {
+        if (afterEventId != null && since == null) {
+            log.warn("Выполнена попытка получить ленту после события с id = {} без параметра since", afterEventId);
+            throw new ValidationException("Параметр after используется только вместе с since");
+        }
+        int before = beforeEventId == null ? Integer.MAX_VALUE : beforeEventId;
+
+        eventWriter.flushPending(userId);
+        List<Event> events;
+        if (since == null) {
+            events = getLatestEvents(userId, before, limit);
+        } else {
+            int after = afterEventId == null ? Integer.MIN_VALUE : afterEventId;
+            events = getEventsSince(userId, since, after, before, limit);
+        }
+
+        if (events.isEmpty()) {
+            throwExceptionIfUserDoesNotExist(
+                    "Выполнена попытка найти пользователя с несуществующим id = {}.",
+                    userId);
+        }
 
         log.info("Получена история действий пользователя с id = {}.", userId);
-        return eventDbStorage.findEventsByUserId(userId);
+        return events;
+    }
+
+    public List<Event> getFriendsEvents(int userId, int limit) {
+        List<Event> events = friendsFeedIndex.getLatestEvents(userId, limit);
+        if (events.isEmpty() && !userStorage.isUserExistsById(userId)) {
+            friendsFeedIndex.invalidate(userId);
+            log.warn("Выполнена попытка получить ленту друзей пользователя с несуществующим id = {}.", userId);
+            throw new NotFoundException(String.format(Constants.USER_NOT_FOUND_MESSAGE, userId));
+        }
+
+        log.info("Получена лента друзей пользователя с id = {}.", userId);
+        return events;
     }
 
     public void createEvent(int userId, OperationStatus operation, EventTypeStatus eventType, int entityId) {
@@ -42,8 +100,80 @@ public class EventService {
                 .entityId(entityId)
                 .build();
 
-        eventDbStorage.add(eventUser);
-        log.info("История действий пользователя с id = {} сохранена.", userId);
+        if (eventWriter.write(eventUser)) {
+            friendsFeedIndex.publish(eventUser);
+            log.info("Действие пользователя с id = {} поставлено в очередь на запись в историю.", userId);
+        }
+    }
+
+    public EventWriterStats getWriterStats() {
+        return eventWriter.getStats();
+    }
+
+    public int archiveEvents() {
+        long start = System.nanoTime();
+        long threshold = Instant.now().minus(archiveRetention).toEpochMilli();
+        int archived = 0;
+        int batch;
+        do {
+            batch = eventStorage.archiveEventsBefore(threshold, archiveBatchSize);
+            archived += batch;
+        } while (batch == archiveBatchSize);
+
+        log.info("В архив перенесено событий старше {}: {} за {} мс", archiveRetention, archived,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return archived;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleArchiving() {
+        if (archiveInterval.isZero() || archiveInterval.isNegative()) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "events-archive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                archiveEvents();
+            } catch (RuntimeException e) {
+                log.error("Не удалось перенести события в архив: {}", e.getMessage(), e);
+            }
+        }, archiveInterval.toNanos(), archiveInterval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private List<Event> getLatestEvents(int userId, int before, int limit) {
+        List<Event> events = new ArrayList<>(eventStorage.findLatestEventsByUserId(userId, before, Long.MIN_VALUE,
+                limit));
+        if (events.size() < limit) {
+            int archivedBefore = events.isEmpty() ? before : events.get(events.size() - 1).getEventId();
+            events.addAll(eventStorage.findLatestArchivedEventsByUserId(userId, archivedBefore, Long.MIN_VALUE,
+                    limit - events.size()));
+        }
+        Collections.reverse(events);
+        return events;
+    }
+
+    private List<Event> getEventsSince(int userId, long since, int after, int before, int limit) {
+        List<Event> events = new ArrayList<>(eventStorage.findEventsByUserIdSince(userId, since, after, before,
+                limit));
+        if (since >= Instant.now().minus(archiveRetention).toEpochMilli()) {
+            return events;
+        }
+
+        events.addAll(eventStorage.findArchivedEventsByUserIdSince(userId, since, after, before, limit));
+        events.sort(EventStorage.TIMELINE_ORDER);
+        return events.size() > limit ? new ArrayList<>(events.subList(0, limit)) : events;
     }
 
     private void throwExceptionIfUserDoesNotExist(String logMessage, int userId) {
@@ -1,152 +1,245 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.Constants;
 import ru.yandex.practicum.filmorate.exception.AlreadyExistException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.index.FilmSuggestionIndex;
 import ru.yandex.practicum.filmorate.model.*;
+import ru.yandex.practicum.filmorate.reference.ReferenceDataRegistry;
 import ru.yandex.practicum.filmorate.storage.DirectorStorage;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
-import ru.yandex.practicum.filmorate.storage.GenreStorage;
-import ru.yandex.practicum.filmorate.storage.MpaStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import javax.validation.ValidationException;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 public class FilmService {
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
-    private final GenreStorage genreStorage;
-    private final MpaStorage mpaStorage;
+    private final ReferenceDataRegistry referenceData;
     private final DirectorStorage directorStorage;
     private final EventService eventService;
-
-    public FilmService(FilmStorage filmStorage, UserStorage userStorage, GenreStorage genreStorage,
-                       MpaStorage mpaStorage, DirectorStorage directorStorage, EventService eventService) {
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmSimilarityIndex similarityIndex;
+    private final FilmSearchIndex searchIndex;
+    private final FilmSuggestionIndex suggestionIndex;
+
+    public FilmService(FilmStorage filmStorage, UserStorage userStorage, ReferenceDataRegistry referenceData,
+                       DirectorStorage directorStorage, EventService eventService,
+                       FilmPopularityIndex popularityIndex, FilmSimilarityIndex similarityIndex,
+                       FilmSearchIndex searchIndex, FilmSuggestionIndex suggestionIndex) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
-        this.genreStorage = genreStorage;
-        this.mpaStorage = mpaStorage;
+        this.referenceData = referenceData;
         this.directorStorage = directorStorage;
         this.eventService = eventService;
+        this.popularityIndex = popularityIndex;
+        this.similarityIndex = similarityIndex;
+        this.searchIndex = searchIndex;
+        this.suggestionIndex = suggestionIndex;
+    }
+
+    public List<Film> getFilmsPage(int afterId, int limit) {
+        return filmStorage.getPage(afterId, limit);
     }
 
-    public Collection<Film> getAll() {
-        return filmStorage.getAll();
+    public void forEachFilm(Consumer<Film> action) {
+        filmStorage.forEachFilm(action);
     }
 
     public Film createFilm(Film film) {
+        checkReferences(film);
         checkDirectors(film);
-        return filmStorage.getFilm(filmStorage.add(film));
+        int filmId;
+        try {
+            filmId = filmStorage.add(film);
+        } catch (DuplicateKeyException e) {
+            throw createFilmAlreadyExistsException(e);
+        }
+
+        Film createdFilm = filmStorage.getFilm(filmId);
+        popularityIndex.put(createdFilm);
+        searchIndex.put(createdFilm);
+        suggestionIndex.put(createdFilm);
+        return createdFilm;
+    }
+
+    public List<Integer> createFilms(List<Film> films) {
+        films.forEach(this::checkReferences);
+        films.stream()
+                .flatMap(film -> film.getDirectors().stream())
+                .mapToLong(Director::getId)
+                .distinct()
+                .forEach(this::checkDirectorExists);
+
+        List<Integer> filmIds;
+        try {
+            filmIds = filmStorage.addAll(films);
+        } catch (DuplicateKeyException e) {
+            throw createFilmAlreadyExistsException(e);
+        }
+        List<Film> createdFilms = filmStorage.getFilmsByIds(filmIds);
+        createdFilms.forEach(popularityIndex::put);
+        createdFilms.forEach(searchIndex::put);
+        createdFilms.forEach(suggestionIndex::put);
+        log.info("Добавлено фильмов: {}", filmIds.size());
+        return filmIds;
     }
 
     public Film updateFilm(Film film) {
+        checkReferences(film);
         checkDirectors(film);
-        throwExceptionIfFilmDoesNotExist(
-                "Выполнена попытка обновить информацию о фильме с несуществующим id = {}.",
-                film.getId());
+        boolean updated;
+        try {
+            updated = filmStorage.update(film);
+        } catch (DuplicateKeyException e) {
+            throw createFilmAlreadyExistsException(e);
+        }
+
+        if (!updated) {
+            throw createFilmNotFoundException(
+                    "Выполнена попытка обновить информацию о фильме с несуществующим id = {}.",
+                    film.getId());
+        }
 
-        filmStorage.update(film);
-        return filmStorage.getFilm(film.getId());
+        Film updatedFilm = filmStorage.getFilm(film.getId());
+        popularityIndex.put(updatedFilm);
+        searchIndex.put(updatedFilm);
+        suggestionIndex.put(updatedFilm);
+        return updatedFilm;
     }
 
     public Film getFilmById(int filmId) {
-        throwExceptionIfFilmDoesNotExist(
+        return filmStorage.findFilm(filmId).orElseThrow(() -> createFilmNotFoundException(
                 "Выполнена попытка получить фильм по несуществующему id = {}",
-                filmId);
-
-        return filmStorage.getFilm(filmId);
+                filmId));
     }
 
     public void deleteFilm(int filmId) {
-        throwExceptionIfFilmDoesNotExist(
-                "Выполнена попытка удалить фильм по несуществующему id = {}", filmId);
+        if (!filmStorage.delete(filmId)) {
+            throw createFilmNotFoundException(
+                    "Выполнена попытка удалить фильм по несуществующему id = {}", filmId);
+        }
 
-        filmStorage.delete(filmId);
+        popularityIndex.remove(filmId);
+        searchIndex.remove(filmId);
+        suggestionIndex.remove(filmId);
     }
 
     public void addLike(int filmId, int userId) {
-        throwExceptionIfFilmDoesNotExist(
-                "Выполнена попытка поставить лайк фильму с несуществующим id = {}.",
-                filmId);
-
-        throwExceptionIfUserDoesNotExist(
-                "Выполнена попытка поставить лайк фильму пользователем с несуществующим id = {}.",
-                userId);
+        boolean added;
+        try {
+            added = filmStorage.addLike(filmId, userId);
+        } catch (DuplicateKeyException e) {
+            added = false;
+        } catch (DataIntegrityViolationException e) {
+            throwExceptionIfFilmDoesNotExist(
+                    "Выполнена попытка поставить лайк фильму с несуществующим id = {}.",
+                    filmId);
+
+            throwExceptionIfUserDoesNotExist(
+                    "Выполнена попытка поставить лайк фильму пользователем с несуществующим id = {}.",
+                    userId);
+            throw e;
+        }
 
-        if (filmStorage.isFilmContainsUserLike(filmId, userId)) {
+        if (added) {
+            popularityIndex.changeLikes(filmId, 1);
+            similarityIndex.addLike(userId, filmId);
+            suggestionIndex.changeLikes(filmId, 1);
+        } else {
             log.warn("Выполнена попытка повторно поставить лайк фильму с id = {} пользователем с id = {}",
                     filmId, userId);
-        } else {
-            filmStorage.addLike(filmId, userId);
         }
 
         eventService.createEvent(userId, OperationStatus.ADD, EventTypeStatus.LIKE, filmId);
     }
 
     public void deleteLike(int filmId, int userId) {
-        throwExceptionIfFilmDoesNotExist(
-                "Выполнена попытка удалить лайк фильма с несуществующим id = {}.",
-                filmId);
-
-        throwExceptionIfUserDoesNotExist(
-                "Выполнена попытка удалить лайк фильму пользователем с несуществующим id = {}.",
-                userId);
-        if (filmStorage.isFilmContainsUserLike(filmId, userId)) {
-            filmStorage.deleteLike(filmId, userId);
+        if (filmStorage.deleteLike(filmId, userId)) {
+            popularityIndex.changeLikes(filmId, -1);
+            similarityIndex.removeLike(userId, filmId);
+            suggestionIndex.changeLikes(filmId, -1);
             eventService.createEvent(userId, OperationStatus.REMOVE, EventTypeStatus.LIKE, filmId);
         } else {
+            throwExceptionIfFilmDoesNotExist(
+                    "Выполнена попытка удалить лайк фильма с несуществующим id = {}.",
+                    filmId);
+
+            throwExceptionIfUserDoesNotExist(
+                    "Выполнена попытка удалить лайк фильму пользователем с несуществующим id = {}.",
+                    userId);
             log.warn("Выполнена попытка удалить несуществующий лайк у фильма с id = {} пользователем с id = {}",
                     filmId, userId);
             throw new AlreadyExistException(String.format(Constants.USER_NOT_LIKED_FILM_MESSAGE, userId, filmId));
         }
     }
 
+    public List<Integer> getFilmLikes(int filmId, int offset, int limit) {
+        List<Integer> likes = filmStorage.getLikes(filmId, offset, limit);
+        if (likes.isEmpty()) {
+            throwExceptionIfFilmDoesNotExist(
+                    "Выполнена попытка получить лайки фильма с несуществующим id = {}.",
+                    filmId);
+        }
+
+        return likes;
+    }
+
     public List<Film> getBestFilmsList(int count) {
-        return new ArrayList<>(filmStorage.getBestFilms(count));
+        if (!popularityIndex.isLoaded()) {
+            return new ArrayList<>(filmStorage.getBestFilms(count));
+        }
+
+        return filmStorage.getFilmsByIds(popularityIndex.getBestFilmIds(count, null, null));
     }
 
     public List<Genre> getAllGenres() {
-        return new ArrayList<>(genreStorage.getAll());
+        return referenceData.getGenres();
     }
 
     public List<Film> getCommonFilms(int userId, int friendId) {
-        throwExceptionIfUserDoesNotExist(
-                "Выполнена попытка получить список общих любимых фильмов c пользователем с несуществующим id = {}.",
-                userId);
-
-        throwExceptionIfUserDoesNotExist(
-                "Выполнена попытка получить список общих любимых фильмов c пользователем с несуществующим id = {}.",
-                friendId);
+        List<Film> films = new ArrayList<>(filmStorage.getCommonFilms(userId, friendId));
+        if (films.isEmpty()) {
+            throwExceptionIfUserDoesNotExist(
+                    "Выполнена попытка получить список общих любимых фильмов c пользователем с несуществующим id = {}.",
+                    userId);
+
+            throwExceptionIfUserDoesNotExist(
+                    "Выполнена попытка получить список общих любимых фильмов c пользователем с несуществующим id = {}.",
+                    friendId);
+        }
 
-        return new ArrayList<>(filmStorage.getCommonFilms(userId, friendId));
+        return films;
     }
 
     public Genre getGenreById(int genreId) {
-        if (!genreStorage.isGenreExists(genreId)) {
+        return referenceData.findGenre(genreId).orElseThrow(() -> {
             log.warn("Выполнена попытка получить жанр по несуществующему id = {}", genreId);
-            throw new NotFoundException(String.format(Constants.GENRE_NOT_FOUND_MESSAGE, genreId));
-        }
-
-        return genreStorage.getById(genreId);
+            return new NotFoundException(String.format(Constants.GENRE_NOT_FOUND_MESSAGE, genreId));
+        });
     }
 
     public List<Mpa> getAllRatings() {
-        return new ArrayList<>(mpaStorage.getAll());
+        return referenceData.getRatings();
     }
 
     public Mpa getRatingById(int mpaId) {
-        if (!mpaStorage.isRatingExists(mpaId)) {
+        return referenceData.findRating(mpaId).orElseThrow(() -> {
             log.warn("Выполнена попытка получить рейтинг по несуществующему id = {}", mpaId);
-            throw new NotFoundException(String.format(Constants.RATING_NOT_FOUND_MESSAGE, mpaId));
-        }
-
-        return mpaStorage.getById(mpaId);
+            return new NotFoundException(String.format(Constants.RATING_NOT_FOUND_MESSAGE, mpaId));
+        });
     }
 
     public List<Film> getSortedFilmsByDirId(long directorId, String sort) {
@@ -160,36 +253,65 @@ public class FilmService {
         return filmStorage.getSortedFilmsByDirId(directorId, sort);
     }
 
-    public List<Film> getSortedFilmByQuery(String query, String by) {
+    public List<Film> getSortedFilmByQuery(String query, String by, int limit) {
+        if (query == null || query.isBlank()) {
+            log.warn("Выполнена попытка поиска фильмов без строки запроса, by = {}", by);
+            throw new ValidationException(Constants.EMPTY_SEARCH_QUERY_MESSAGE);
+        }
         if (!by.equals("director") &&
                 !by.equals("title") &&
                 !by.equals("director,title") &&
                 !by.equals("title,director")) {
             throw new NotFoundException("Существует сортировка только по title или director или обоим сразу");
         }
-        return filmStorage.getSortedFilmByQuery(query, by);
+        if (!searchIndex.isLoaded()) {
+            List<Film> films = filmStorage.getSortedFilmByQuery(query, by);
+            return films.size() > limit ? new ArrayList<>(films.subList(0, limit)) : films;
+        }
+
+        return filmStorage.getFilmsByIds(searchIndex.search(query, by.contains("title"), by.contains("director"),
+                limit));
+    }
+
+    public List<Suggestion> getSuggestions(String prefix) {
+        return suggestionIndex.suggest(prefix);
     }
 
     public List<Film> getFilteredBestFilms(int count, Integer genreId, Integer year) {
         if (genreId == null && year == null) {
-            return new ArrayList<>(filmStorage.getBestFilms(count));
+            return getBestFilmsList(count);
         }
-        if (genreId != null && (genreId > 6 || genreId < 1)) {
-            throw new NotFoundException("Id жанра может быть только от 1 до 6");
+        if (genreId != null && !referenceData.isGenreExists(genreId)) {
+            log.warn("Выполнена попытка получить популярные фильмы по несуществующему жанру с id = {}", genreId);
+            throw new NotFoundException(String.format(Constants.GENRE_NOT_FOUND_MESSAGE, genreId));
         }
         if (year != null && year < 1895) {
             throw new NotFoundException("Дата выпуска фильма не может быть раньше 1895 года");
         }
-        return filmStorage.getFilteredBestFilms(count, genreId, year);
+        if (!popularityIndex.isLoaded()) {
+            return filmStorage.getFilteredBestFilms(count, genreId, year);
+        }
+
+        return filmStorage.getFilmsByIds(popularityIndex.getBestFilmIds(count, genreId, year));
     }
 
     private void throwExceptionIfFilmDoesNotExist(String logMessage, int filmId) {
         if (!filmStorage.isFilmExists(filmId)) {
-            log.warn(logMessage, filmId);
-            throw new NotFoundException(String.format(Constants.FILM_NOT_FOUND_MESSAGE, filmId));
+            throw createFilmNotFoundException(logMessage, filmId);
         }
     }
 
+    private NotFoundException createFilmNotFoundException(String logMessage, int filmId) {
+        log.warn(logMessage, filmId);
+        return new NotFoundException(String.format(Constants.FILM_NOT_FOUND_MESSAGE, filmId));
+    }
+
+    private AlreadyExistException createFilmAlreadyExistsException(DuplicateKeyException e) {
+        log.warn("Выполнена попытка создать фильм, имя, описание, дата релиза и длительность которого совпадают с " +
+                "фильмом из бд. {}", e.getMessage());
+        return new AlreadyExistException(Constants.FILM_ALREADY_EXISTS_MESSAGE);
+    }
+
     private void throwExceptionIfUserDoesNotExist(String logMessage, int userId) {
         if (!userStorage.isUserExistsById(userId)) {
             log.warn(logMessage, userId);
@@ -197,12 +319,29 @@ public class FilmService {
         }
     }
 
+    private void checkReferences(Film film) {
+        if (film.getMpa() != null && !referenceData.isRatingExists(film.getMpa().getId())) {
+            log.warn("Выполнена попытка сохранить фильм с несуществующим рейтингом с id = {}", film.getMpa().getId());
+            throw new ValidationException(String.format(Constants.RATING_NOT_FOUND_MESSAGE, film.getMpa().getId()));
+        }
+        for (Genre genre : film.getGenres()) {
+            if (!referenceData.isGenreExists(genre.getId())) {
+                log.warn("Выполнена попытка сохранить фильм с несуществующим жанром с id = {}", genre.getId());
+                throw new ValidationException(String.format(Constants.GENRE_NOT_FOUND_MESSAGE, genre.getId()));
+            }
+        }
+    }
+
     private void checkDirectors(Film film) {
         for (Director director : film.getDirectors()) {
-            if (!directorStorage.isDirectorExists(director.getId())) {
-                log.warn("Выполнена попытка получить режиссера по несуществующему id = {}", director.getId());
-                throw new NotFoundException(String.format(Constants.DIRECTOR_NOT_FOUND, director.getId()));
-            }
+            checkDirectorExists(director.getId());
+        }
+    }
+
+    private void checkDirectorExists(long directorId) {
+        if (!directorStorage.isDirectorExists(directorId)) {
+            log.warn("Выполнена попытка получить режиссера по несуществующему id = {}", directorId);
+            throw new NotFoundException(String.format(Constants.DIRECTOR_NOT_FOUND, directorId));
         }
     }
 }
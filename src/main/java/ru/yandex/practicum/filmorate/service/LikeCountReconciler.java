@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+@Component
+@Slf4j
+@ConditionalOnProperty(value = "filmorate.likes.reconcile-on-startup", havingValue = "true", matchIfMissing = true)
+public class LikeCountReconciler {
+    private final FilmStorage filmStorage;
+
+    public LikeCountReconciler(FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void reconcile() {
+        int drifted = filmStorage.reconcileLikeCounts();
+        if (drifted > 0) {
+            log.warn("Обнаружено и исправлено {} расхождений счетчиков лайков с таблицей лайков", drifted);
+        } else {
+            log.info("Счетчики лайков фильмов соответствуют таблице лайков");
+        }
+    }
+}
@@ -1,35 +1,156 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.Constants;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.index.LikeMatrix;
+import ru.yandex.practicum.filmorate.index.UserBasedRecommender;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.RecommendationStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Slf4j
 public class RecommendationService {
     private final UserStorage userStorage;
     private final FilmStorage filmStorage;
+    private final RecommendationStorage recommendationStorage;
+    private final FilmSimilarityIndex similarityIndex;
+    private final int maxResults;
+    private final BatchSettings batchSettings;
+    private ScheduledExecutorService scheduler;
 
-    public RecommendationService(UserStorage userStorage, FilmStorage filmStorage) {
+    public RecommendationService(UserStorage userStorage, FilmStorage filmStorage,
+                                 RecommendationStorage recommendationStorage, FilmSimilarityIndex similarityIndex,
+                                 @Value("${filmorate.recommendations.max-results:20}") int maxResults,
+                                 @Value("${filmorate.recommendations.batch.enabled:true}") boolean batchEnabled,
+                                 @Value("${filmorate.recommendations.batch.start-time:03:00}") String batchStartTime,
+                                 @Value("${filmorate.recommendations.batch.parallelism:0}") int batchParallelism,
+                                 @Value("${filmorate.recommendations.batch.similar-users:50}") int similarUsersCount,
+                                 @Value("${filmorate.recommendations.batch.max-film-likes:10000}") int maxFilmLikes) {
         this.userStorage = userStorage;
         this.filmStorage = filmStorage;
+        this.recommendationStorage = recommendationStorage;
+        this.similarityIndex = similarityIndex;
+        this.maxResults = maxResults;
+        this.batchSettings = new BatchSettings(batchEnabled, LocalTime.parse(batchStartTime),
+                batchParallelism > 0 ? batchParallelism : Runtime.getRuntime().availableProcessors(),
+                similarUsersCount, maxFilmLikes);
     }
 
     public Collection<Film> getRecommendations(int userId) {
-        if (!userStorage.isUserExistsById(userId)) {
+        List<Integer> filmIds = recommendationStorage.getRecommendedFilmIds(userId, maxResults);
+        Collection<Film> films;
+        if (!filmIds.isEmpty()) {
+            films = filmStorage.getFilmsByIds(filmIds);
+        } else if (similarityIndex.isLoaded()) {
+            films = filmStorage.getFilmsByIds(similarityIndex.getRecommendedFilmIds(userId, maxResults));
+        } else {
+            films = filmStorage.getRecommendations(userId);
+        }
+        if (films.isEmpty() && !userStorage.isUserExistsById(userId)) {
             log.warn("Попытка получить рекоммендации для пользоватея с несуществующим id = {}", userId);
             throw new NotFoundException(String.format(Constants.USER_NOT_FOUND_MESSAGE, userId));
         }
 
-        Collection<Film> films = filmStorage.getRecommendations(userId);
         log.info("Пользователь с id = {} получил список рекомендуемых фильмов длиной {}", userId, films.size());
 
         return films;
     }
+
+    public synchronized void refreshRecommendations() {
+        long start = System.nanoTime();
+        LikeMatrix matrix = LikeMatrix.load(filmStorage);
+        long loaded = System.nanoTime();
+
+        ForkJoinPool pool = new ForkJoinPool(batchSettings.parallelism);
+        UserBasedRecommender.Result result;
+        try {
+            result = UserBasedRecommender.compute(matrix, pool, batchSettings.similarUsersCount, maxResults,
+                    batchSettings.maxFilmLikes);
+        } finally {
+            pool.shutdown();
+        }
+        long computed = System.nanoTime();
+
+        long stored = recommendationStorage.replaceAll(result);
+        long finished = System.nanoTime();
+
+        log.info("Пересчитаны рекомендации: пользователей {}, лайков {}, рекомендаций {}, потоков {}; " +
+                        "загрузка лайков {} мс, расчёт {} мс, запись {} мс, всего {} мс",
+                matrix.usersCount(), matrix.likesCount(), stored, batchSettings.parallelism,
+                toMillis(loaded - start), toMillis(computed - loaded), toMillis(finished - computed),
+                toMillis(finished - start));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleRefresh() {
+        if (!batchSettings.enabled) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "recommendations-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime firstRun = now.toLocalDate().atTime(batchSettings.startTime);
+        if (!firstRun.isAfter(now)) {
+            firstRun = firstRun.plusDays(1);
+        }
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                refreshRecommendations();
+            } catch (RuntimeException e) {
+                log.error("Не удалось пересчитать рекомендации: {}", e.getMessage(), e);
+            }
+        }, Duration.between(now, firstRun).toMillis(), TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+        log.info("Пересчёт рекомендаций запланирован на {}", firstRun);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static final class BatchSettings {
+        private final boolean enabled;
+        private final LocalTime startTime;
+        private final int parallelism;
+        private final int similarUsersCount;
+        private final int maxFilmLikes;
+
+        private BatchSettings(boolean enabled, LocalTime startTime, int parallelism, int similarUsersCount,
+                              int maxFilmLikes) {
+            this.enabled = enabled;
+            this.startTime = startTime;
+            this.parallelism = parallelism;
+            this.similarUsersCount = similarUsersCount;
+            this.maxFilmLikes = maxFilmLikes;
+        }
+    }
 }
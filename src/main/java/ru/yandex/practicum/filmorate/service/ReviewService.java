@@ -2,6 +2,8 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.Constants;
 import ru.yandex.practicum.filmorate.exception.AlreadyExistException;
@@ -14,6 +16,7 @@ import ru.yandex.practicum.filmorate.storage.ReviewStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @Slf4j
@@ -27,35 +30,33 @@ public class ReviewService {
     public Review createReview(Review review) {
         Integer userId = review.getUserId();
         Integer filmId = review.getFilmId();
-        throwExceptionIfFilmDoesNotExist(
-                "Выполнена попытка создать отзыв для фильма с несуществующим id = {}.",
-                filmId);
-        throwExceptionIfUserDoesNotExist(
-                "Выполнена попытка создать отзыв для фильма пользователем с несуществующим id = {}.",
-                userId);
-        if (reviewStorage.hasUserAlreadyLeftReviewForFilm(filmId, userId)) {
+        Optional<Review> createdReview = reviewStorage.create(review);
+        if (createdReview.isEmpty()) {
+            throwExceptionIfFilmDoesNotExist(
+                    "Выполнена попытка создать отзыв для фильма с несуществующим id = {}.",
+                    filmId);
+            throwExceptionIfUserDoesNotExist(
+                    "Выполнена попытка создать отзыв для фильма пользователем с несуществующим id = {}.",
+                    userId);
             log.warn("Пользователь с id {} уже оставлял отзыв для фильма с id {}", userId, filmId);
             throw new AlreadyExistException(String.format(Constants.USER_ALREADY_LEFT_REVIEW_FOR_FILM_MESSAGE,
                     userId, filmId));
         }
-        review = reviewStorage.create(review);
+        review = createdReview.get();
         eventService.createEvent(userId, OperationStatus.ADD, EventTypeStatus.REVIEW, review.getReviewId());
         log.info("Добавлен отзыв: {}", review);
         return review;
     }
 
     public Review updateReview(Review review) {
-        throwExceptionIfReviewDoesNotExist(review.getReviewId());
-
-        review = reviewStorage.update(review);
+        int reviewId = review.getReviewId();
+        review = reviewStorage.update(review).orElseThrow(() -> createReviewNotFoundException(reviewId));
         eventService.createEvent(review.getUserId(), OperationStatus.UPDATE, EventTypeStatus.REVIEW, review.getReviewId());
         log.info("Обновлен отзыв: {}", review);
         return review;
     }
 
     public void removeReview(Integer id) {
-        throwExceptionIfReviewDoesNotExist(id);
-
         Review review = findReviewById(id);
 
         int rows = reviewStorage.remove(id);
@@ -66,85 +67,86 @@ public class ReviewService {
     }
 
     public Review findReviewById(Integer id) {
-        throwExceptionIfReviewDoesNotExist(id);
-        Review review = reviewStorage.findReviewById(id);
+        Review review = reviewStorage.findReviewById(id).orElseThrow(() -> createReviewNotFoundException(id));
         log.info("В БД найден отзыв: {}", review);
         return review;
     }
 
-    public List<Review> getAllReviews() {
-        List<Review> reviews = reviewStorage.findAll();
-        log.info("Количество отзывов: {}", reviews.size());
+    public List<Review> getReviewsPage(int afterUseful, int afterId, int limit) {
+        List<Review> reviews = reviewStorage.findPage(afterUseful, afterId, limit);
+        log.info("Количество отзывов на странице: {}", reviews.size());
         return reviews;
     }
 
     public List<Review> getReviewsByFilmId(Integer filmId, Integer count) {
-        throwExceptionIfFilmDoesNotExist(
-                "Выполнена попытка получить отзыв для фильма с несуществующим id = {}.", filmId);
         List<Review> reviews = reviewStorage.findReviewsByFilmId(filmId, count);
+        if (reviews.isEmpty()) {
+            throwExceptionIfFilmDoesNotExist(
+                    "Выполнена попытка получить отзыв для фильма с несуществующим id = {}.", filmId);
+        }
         log.info("Для фильма с id {} количество отзывов: {}", filmId, reviews.size());
         return reviews;
     }
 
     public void addLikeToReview(Integer id, Integer userId) {
-        throwExceptionIfReviewDoesNotExist(id);
-        throwExceptionIfUserDoesNotExist(
-                "Выполнена попытка поставить лайк отзыву пользователем с несуществующим id = {}.", userId);
-
-        if (reviewStorage.hasUserAlreadyLeftLikeForReview(id, userId)) {
+        boolean added;
+        try {
+            added = reviewStorage.addLike(id, userId);
+        } catch (DuplicateKeyException e) {
+            added = false;
+        } catch (DataIntegrityViolationException e) {
+            throwExceptionIfReviewDoesNotExist(id);
+            throwExceptionIfUserDoesNotExist(
+                    "Выполнена попытка поставить лайк отзыву пользователем с несуществующим id = {}.", userId);
+            throw e;
+        }
+        if (!added) {
             log.warn("Пользователь с id {} уже оставлял лайк отзыву с id {}", userId, id);
             throw new AlreadyExistException(String.format(Constants.USER_ALREADY_LEFT_LIKE_FOR_REVIEW_MESSAGE,
                     userId, id));
         }
-        if (reviewStorage.hasUserAlreadyLeftDislikeForReview(id, userId)) {
-            log.info("Пользователь передумал");
-            removeDislikeOfReview(id, userId);
-        }
-        reviewStorage.addLike(id, userId);
         log.info("Пользователь с id {} добавил лайк отзыву с id {}", userId, id);
     }
 
     public void addDislikeToReview(Integer id, Integer userId) {
-        throwExceptionIfReviewDoesNotExist(id);
-        throwExceptionIfUserDoesNotExist(
-                "Выполнена попытка поставить дизлайк отзыву пользователем с несуществующим id = {}.", userId);
-
-        if (reviewStorage.hasUserAlreadyLeftDislikeForReview(id, userId)) {
+        boolean added;
+        try {
+            added = reviewStorage.addDislike(id, userId);
+        } catch (DuplicateKeyException e) {
+            added = false;
+        } catch (DataIntegrityViolationException e) {
+            throwExceptionIfReviewDoesNotExist(id);
+            throwExceptionIfUserDoesNotExist(
+                    "Выполнена попытка поставить дизлайк отзыву пользователем с несуществующим id = {}.", userId);
+            throw e;
+        }
+        if (!added) {
             log.warn("Пользователь с id {} уже оставлял дизлайк отзыву с id {}", userId, id);
             throw new AlreadyExistException(String.format(Constants.USER_ALREADY_LEFT_DISLIKE_FOR_REVIEW_MESSAGE,
                     userId, id));
         }
-        if (reviewStorage.hasUserAlreadyLeftLikeForReview(id, userId)) {
-            log.info("Пользователь передумал");
-            removeLikeOfReview(id, userId);
-        }
-        reviewStorage.addDislike(id, userId);
         log.info("Пользователь с id {} добавил дизлайк отзыву с id {}", userId, id);
     }
 
     public void removeLikeOfReview(Integer id, Integer userId) {
-        throwExceptionIfReviewDoesNotExist(id);
-        throwExceptionIfUserDoesNotExist(
-                "Выполнена попытка удалить лайк отзыву пользователем с несуществующим id = {}.", userId);
-
-        if (!reviewStorage.hasUserAlreadyLeftLikeForReview(id, userId)) {
+        if (!reviewStorage.removeLike(id, userId)) {
+            throwExceptionIfReviewDoesNotExist(id);
+            throwExceptionIfUserDoesNotExist(
+                    "Выполнена попытка удалить лайк отзыву пользователем с несуществующим id = {}.", userId);
             log.warn("Выполнена попытка удалить лайк отзыву пользователем, который его не оставлял.");
             throw new NotFoundException(String.format(Constants.USER_DID_NOT_LEAVE_LIKE_FOR_REVIEW_MESSAGE, userId, id));
         }
-        reviewStorage.removeLike(id, userId);
         log.info("Пользователь с id {} удалил лайк у отзыва с id {}", userId, id);
     }
 
     public void removeDislikeOfReview(Integer id, Integer userId) {
-        throwExceptionIfReviewDoesNotExist(id);
-        throwExceptionIfUserDoesNotExist(
-                "Выполнена попытка удалить дизлайк отзыву пользователем с несуществующим id = {}.", userId);
-
-        if (!reviewStorage.hasUserAlreadyLeftDislikeForReview(id, userId)) {
+        if (!reviewStorage.removeDislike(id, userId)) {
+            throwExceptionIfReviewDoesNotExist(id);
+            throwExceptionIfUserDoesNotExist(
+                    "Выполнена попытка удалить дизлайк отзыву пользователем с несуществующим id = {}.", userId);
             log.warn("Выполнена попытка удалить дизлайк отзыву пользователем, который его не оставлял.");
             throw new NotFoundException(String.format(Constants.USER_DID_NOT_LEAVE_DISLIKE_FOR_REVIEW_MESSAGE, userId, id));
         }
-        reviewStorage.removeDislike(id, userId);
         log.info("Пользователь с id {} удалил дизлайк у отзыва с id {}", userId, id);
     }
 
@@ -164,8 +166,12 @@ public class ReviewService {
 
     private void throwExceptionIfReviewDoesNotExist(int reviewId) {
         if (!reviewStorage.isReviewExists(reviewId)) {
-            log.warn("Выполнена попытка получить отзыв по несущестующему id = {}", reviewId);
-            throw new NotFoundException(String.format(Constants.REVIEW_NOT_FOUND_MESSAGE, reviewId));
+            throw createReviewNotFoundException(reviewId);
         }
     }
+
+    private NotFoundException createReviewNotFoundException(int reviewId) {
+        log.warn("Выполнена попытка получить отзыв по несущестующему id = {}", reviewId);
+        return new NotFoundException(String.format(Constants.REVIEW_NOT_FOUND_MESSAGE, reviewId));
+    }
 }
@@ -1,20 +1,33 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.Constants;
 import ru.yandex.practicum.filmorate.exception.AlreadyExistException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.index.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.index.FilmSuggestionIndex;
+import ru.yandex.practicum.filmorate.index.FriendSuggestionIndex;
+import ru.yandex.practicum.filmorate.index.FriendsFeedIndex;
+import ru.yandex.practicum.filmorate.index.FriendshipGraph;
 import ru.yandex.practicum.filmorate.model.EventTypeStatus;
+import ru.yandex.practicum.filmorate.model.FilmsChangedEvent;
 import ru.yandex.practicum.filmorate.model.OperationStatus;
 import ru.yandex.practicum.filmorate.model.Status;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static ru.yandex.practicum.filmorate.Constants.USER_COULD_NOT_ADD_HIMSELF_TO_FRIEND;
 
@@ -23,27 +36,55 @@ import static ru.yandex.practicum.filmorate.Constants.USER_COULD_NOT_ADD_HIMSELF
 public class UserService {
     private final UserStorage userStorage;
     private final EventService eventService;
+    private final FilmStorage filmStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmSimilarityIndex similarityIndex;
+    private final FilmSuggestionIndex suggestionIndex;
+    private final FriendsFeedIndex friendsFeedIndex;
+    private final FriendshipGraph friendshipGraph;
+    private final FriendSuggestionIndex friendSuggestionIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public UserService(@Qualifier("userDbStorage") UserStorage userStorage, EventService eventService) {
+    public UserService(UserStorage userStorage, EventService eventService,
+                       FilmStorage filmStorage, FilmPopularityIndex popularityIndex,
+                       FilmSimilarityIndex similarityIndex, FilmSuggestionIndex suggestionIndex,
+                       FriendsFeedIndex friendsFeedIndex, FriendshipGraph friendshipGraph,
+                       FriendSuggestionIndex friendSuggestionIndex, ApplicationEventPublisher eventPublisher) {
         this.userStorage = userStorage;
         this.eventService = eventService;
+        this.filmStorage = filmStorage;
+        this.popularityIndex = popularityIndex;
+        this.similarityIndex = similarityIndex;
+        this.suggestionIndex = suggestionIndex;
+        this.friendsFeedIndex = friendsFeedIndex;
+        this.friendshipGraph = friendshipGraph;
+        this.friendSuggestionIndex = friendSuggestionIndex;
+        this.eventPublisher = eventPublisher;
     }
 
-    public Collection<User> getAll() {
-        return userStorage.getAll();
+    public List<User> getUsersPage(int afterId, int limit) {
+        return userStorage.getPage(afterId, limit);
     }
 
     public User createUser(User user) {
         checkUserName(user);
 
         if (userStorage.isUserExistsByEmail(user.getEmail())) {
-            log.warn("Выполнена попытка добавить пользователя с уже существующей почтой {}.", user.getEmail());
-            throw new AlreadyExistException(String.format(Constants.EMAIL_ALREADY_EXISTS_MESSAGE, user.getEmail()));
-        } else {
+            throw createEmailAlreadyExistsException(user.getEmail());
+        }
+
+        try {
             return userStorage.getUser(userStorage.add(user));
+        } catch (DuplicateKeyException e) {
+            throw createEmailAlreadyExistsException(user.getEmail());
         }
     }
 
+    private AlreadyExistException createEmailAlreadyExistsException(String email) {
+        log.warn("Выполнена попытка добавить пользователя с уже существующей почтой {}.", email);
+        return new AlreadyExistException(String.format(Constants.EMAIL_ALREADY_EXISTS_MESSAGE, email));
+    }
+
     private void checkUserName(User user) {
         if (user.getName() == null || user.getName().isBlank()) {
             user.setName(user.getLogin());
@@ -51,27 +92,37 @@ public class UserService {
     }
 
     public User updateUser(User user) {
-        throwExceptionIfUserDoesNotExist(
-                "Выполнена попытка обновить информацию о пользователе с несуществующим id = {}.",
-                user.getId());
+        if (!userStorage.update(user)) {
+            throw createUserNotFoundException(
+                    "Выполнена попытка обновить информацию о пользователе с несуществующим id = {}.",
+                    user.getId());
+        }
 
-        userStorage.update(user);
         return userStorage.getUser(user.getId());
     }
 
     public User getUserById(int userId) {
-        throwExceptionIfUserDoesNotExist(
+        return userStorage.findUser(userId).orElseThrow(() -> createUserNotFoundException(
                 "Выполнена попытка получить пользователя по несущестующему id = {}",
-                userId);
-
-        return userStorage.getUser(userId);
+                userId));
     }
 
     public void deleteUser(int userId) {
-        throwExceptionIfUserDoesNotExist(
-                "Выполнена попытка удалить пользователя по несущестующему id = {}", userId);
+        List<Integer> likedFilmIds = filmStorage.getUserLikedFilmIds(userId);
+        if (!userStorage.delete(userId)) {
+            throw createUserNotFoundException(
+                    "Выполнена попытка удалить пользователя по несущестующему id = {}", userId);
+        }
 
-        userStorage.delete(userId);
+        for (Integer filmId : likedFilmIds) {
+            popularityIndex.changeLikes(filmId, -1);
+            suggestionIndex.changeLikes(filmId, -1);
+        }
+        similarityIndex.removeUser(userId);
+        friendsFeedIndex.removeUser(userId);
+        friendshipGraph.removeUser(userId);
+        friendSuggestionIndex.clear();
+        eventPublisher.publishEvent(new FilmsChangedEvent(likedFilmIds));
     }
 
     public void addFriend(int userId, int friendId) {
@@ -80,39 +131,58 @@ public class UserService {
             throw new IllegalArgumentException(USER_COULD_NOT_ADD_HIMSELF_TO_FRIEND);
         }
 
-        throwExceptionIfUserDoesNotExist(
-                "Выполнена попытка добавить друга пользователю с несуществующим id = {}.",
-                userId);
+        boolean added;
+        try {
+            added = userStorage.addFriend(userId, friendId, Status.CONFIRMED);
+        } catch (DuplicateKeyException e) {
+            added = false;
+        } catch (DataIntegrityViolationException e) {
+            throwExceptionIfUserDoesNotExist(
+                    "Выполнена попытка добавить друга пользователю с несуществующим id = {}.",
+                    userId);
 
-        throwExceptionIfUserDoesNotExist(
-                "Выполнена попытка добавить в друзья пользователя с несуществующим id = {}.",
-                friendId);
+            throwExceptionIfUserDoesNotExist(
+                    "Выполнена попытка добавить в друзья пользователя с несуществующим id = {}.",
+                    friendId);
+            throw e;
+        }
 
-        if (userStorage.isUserContainsFriend(userId, friendId)) {
+        if (!added) {
             log.warn("Выполнена попытка повторно добваить в друзья пользователю с id = {} пользователя с id = {}",
                     userId, friendId);
             throw new AlreadyExistException(String.format(Constants.USERS_ALREADY_FRIENDS_MESSAGE,
                     userId, friendId));
-        } else {
-            userStorage.addFriend(userId, friendId, Status.CONFIRMED);
-            userStorage.addFriend(friendId, userId, Status.UNCONFIRMED);
-            eventService.createEvent(userId, OperationStatus.ADD, EventTypeStatus.FRIEND, friendId);
         }
+
+        friendshipGraph.putEdge(userId, friendId, Status.CONFIRMED);
+        boolean reverseAdded;
+        try {
+            reverseAdded = userStorage.addFriend(friendId, userId, Status.UNCONFIRMED);
+        } catch (DuplicateKeyException e) {
+            reverseAdded = false;
+        }
+        if (reverseAdded) {
+            friendshipGraph.putEdge(friendId, userId, Status.UNCONFIRMED);
+        }
+        friendSuggestionIndex.invalidate(userId);
+        friendsFeedIndex.invalidate(userId);
+        eventService.createEvent(userId, OperationStatus.ADD, EventTypeStatus.FRIEND, friendId);
     }
 
     public void deleteFriend(int userId, int friendId) {
-        throwExceptionIfUserDoesNotExist(
-                "Выполнена попытка удалить друга у пользователя с несуществующим id = {}.",
-                userId);
-
-        throwExceptionIfUserDoesNotExist(
-                "Выполнена попытка удалить из друзей пользователя с несуществующим id = {}.",
-                friendId);
-
-        if (userStorage.isUserContainsFriend(userId, friendId)) {
-            userStorage.deleteFriend(userId, friendId);
+        if (userStorage.deleteFriend(userId, friendId)) {
+            friendshipGraph.removeEdge(userId, friendId);
+            friendSuggestionIndex.invalidate(userId);
+            friendsFeedIndex.invalidate(userId);
             eventService.createEvent(userId, OperationStatus.REMOVE, EventTypeStatus.FRIEND, friendId);
         } else {
+            throwExceptionIfUserDoesNotExist(
+                    "Выполнена попытка удалить друга у пользователя с несуществующим id = {}.",
+                    userId);
+
+            throwExceptionIfUserDoesNotExist(
+                    "Выполнена попытка удалить из друзей пользователя с несуществующим id = {}.",
+                    friendId);
             log.warn("Выполнена попытка удалить из друзей пользователей, которые не являются друзьями id: {} и {}",
                     userId, friendId);
             throw new AlreadyExistException(String.format(Constants.USERS_NOT_FRIENDS_MESSAGE,
@@ -121,29 +191,72 @@ public class UserService {
     }
 
     public List<User> getFriendsList(int userId) {
-        throwExceptionIfUserDoesNotExist(
-                "Выполнена попытка получить список друзей пользователя с несуществующим id = {}.",
-                userId);
+        List<User> friends = friendshipGraph.isLoaded()
+                ? hydrate(friendshipGraph.getFriendIds(userId))
+                : new ArrayList<>(userStorage.getFriends(userId));
+        if (friends.isEmpty()) {
+            throwExceptionIfUserDoesNotExist(
+                    "Выполнена попытка получить список друзей пользователя с несуществующим id = {}.",
+                    userId);
+        }
 
-        return new ArrayList<>(userStorage.getFriends(userId));
+        return friends;
     }
 
     public List<User> getSameFriendsList(int userId, int otherId) {
-        throwExceptionIfUserDoesNotExist(
-                "Выполнена попытка получить список общих друзей пользователя с несуществующим id = {}.",
-                userId);
+        List<User> commonFriends = friendshipGraph.isLoaded()
+                ? hydrate(friendshipGraph.getCommonFriendIds(userId, otherId))
+                : new ArrayList<>(userStorage.getCommonFriends(userId, otherId));
+        if (commonFriends.isEmpty()) {
+            throwExceptionIfUserDoesNotExist(
+                    "Выполнена попытка получить список общих друзей пользователя с несуществующим id = {}.",
+                    userId);
 
-        throwExceptionIfUserDoesNotExist(
-                "Выполнена попытка получить список общих друзей с пользователем с несуществующим id = {}.",
-                otherId);
+            throwExceptionIfUserDoesNotExist(
+                    "Выполнена попытка получить список общих друзей с пользователем с несуществующим id = {}.",
+                    otherId);
+        }
 
-        return new ArrayList<>(userStorage.getCommonFriends(userId, otherId));
+        return commonFriends;
+    }
+
+    public List<User> getFriendSuggestions(int userId, int limit) {
+        int[] suggestedIds = friendSuggestionIndex.getSuggestedIds(userId, limit);
+        if (suggestedIds.length == 0) {
+            throwExceptionIfUserDoesNotExist(
+                    "Выполнена попытка получить рекомендации друзей для пользователя с несуществующим id = {}.",
+                    userId);
+            return new ArrayList<>();
+        }
+
+        Map<Integer, User> usersById = hydrate(suggestedIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<User> suggestions = new ArrayList<>(suggestedIds.length);
+        for (int suggestedId : suggestedIds) {
+            User user = usersById.get(suggestedId);
+            if (user != null) {
+                suggestions.add(user);
+            }
+        }
+        return suggestions;
     }
 
     private void throwExceptionIfUserDoesNotExist(String logMessage, int userId) {
         if (!userStorage.isUserExistsById(userId)) {
-            log.warn(logMessage, userId);
-            throw new NotFoundException(String.format(Constants.USER_NOT_FOUND_MESSAGE, userId));
+            throw createUserNotFoundException(logMessage, userId);
         }
     }
+
+    private NotFoundException createUserNotFoundException(String logMessage, int userId) {
+        log.warn(logMessage, userId);
+        return new NotFoundException(String.format(Constants.USER_NOT_FOUND_MESSAGE, userId));
+    }
+
+    private List<User> hydrate(int[] userIds) {
+        if (userIds.length == 0) {
+            return new ArrayList<>();
+        }
+
+        return userStorage.getUsers(Arrays.stream(userIds).boxed().collect(Collectors.toList()));
+    }
 }
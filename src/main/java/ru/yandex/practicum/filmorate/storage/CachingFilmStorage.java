@@ -0,0 +1,249 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.cache.CacheStats;
+import ru.yandex.practicum.filmorate.cache.LruCache;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.DirectorChangedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmsChangedEvent;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+@Repository
+@Profile(StorageProfiles.DATABASE)
+@Primary
+@Slf4j
+@ConditionalOnProperty(value = "filmorate.cache.films.enabled", havingValue = "true")
+public class CachingFilmStorage implements FilmStorage {
+    private final FilmStorage filmStorage;
+    private final LruCache<Integer, Film> cache;
+
+    public CachingFilmStorage(FilmDbStorage filmStorage,
+                              @Value("${filmorate.cache.films.max-size:10000}") int maxSize,
+                              @Value("${filmorate.cache.films.ttl:10m}") Duration ttl) {
+        this.filmStorage = filmStorage;
+        this.cache = new LruCache<>(maxSize, ttl.toNanos());
+    }
+
+    public CacheStats getStats() {
+        return cache.getStats();
+    }
+
+    @EventListener
+    public void onFilmsChanged(FilmsChangedEvent event) {
+        for (Integer filmId : event.getFilmIds()) {
+            cache.invalidate(filmId);
+        }
+    }
+
+    @EventListener
+    public void onDirectorChanged(DirectorChangedEvent event) {
+        int removed = cache.invalidateIf(film -> film.getDirectors().stream()
+                .anyMatch(director -> director.getId() == event.getDirectorId()));
+        log.info("Из кэша удалено {} фильмов режиссера с id = {}", removed, event.getDirectorId());
+    }
+
+    @Override
+    public Collection<Film> getAll() {
+        return filmStorage.getAll();
+    }
+
+    @Override
+    public List<Film> getPage(int afterId, int limit) {
+        return filmStorage.getPage(afterId, limit);
+    }
+
+    @Override
+    public void forEachFilm(Consumer<Film> action) {
+        filmStorage.forEachFilm(action);
+    }
+
+    @Override
+    public boolean isFilmExists(int filmId) {
+        return cache.containsKey(filmId) || filmStorage.isFilmExists(filmId);
+    }
+
+    @Override
+    public boolean isFilmContainsUserLike(int filmId, int userId) {
+        return filmStorage.isFilmContainsUserLike(filmId, userId);
+    }
+
+    @Override
+    public int add(Film film) {
+        return filmStorage.add(film);
+    }
+
+    @Override
+    public List<Integer> addAll(List<Film> films) {
+        return filmStorage.addAll(films);
+    }
+
+    @Override
+    public boolean update(Film film) {
+        boolean updated = filmStorage.update(film);
+        cache.invalidate(film.getId());
+        return updated;
+    }
+
+    @Override
+    public boolean delete(int filmId) {
+        boolean deleted = filmStorage.delete(filmId);
+        cache.invalidate(filmId);
+        return deleted;
+    }
+
+    @Override
+    public Film getFilm(int filmId) {
+        Film film = cache.get(filmId);
+        if (film != null) {
+            return copy(film);
+        }
+
+        long version = cache.getVersion();
+        film = filmStorage.getFilm(filmId);
+        cache.putIfVersion(filmId, copy(film), version);
+        return film;
+    }
+
+    @Override
+    public Optional<Film> findFilm(int filmId) {
+        Film film = cache.get(filmId);
+        if (film != null) {
+            return Optional.of(copy(film));
+        }
+
+        long version = cache.getVersion();
+        Optional<Film> foundFilm = filmStorage.findFilm(filmId);
+        foundFilm.ifPresent(value -> cache.putIfVersion(filmId, copy(value), version));
+        return foundFilm;
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> filmIds) {
+        Map<Integer, Film> filmsById = new HashMap<>();
+        List<Integer> missingIds = new ArrayList<>();
+        for (Integer filmId : filmIds) {
+            Film film = cache.get(filmId);
+            if (film == null) {
+                missingIds.add(filmId);
+            } else {
+                filmsById.put(filmId, copy(film));
+            }
+        }
+
+        if (!missingIds.isEmpty()) {
+            long version = cache.getVersion();
+            for (Film film : filmStorage.getFilmsByIds(missingIds)) {
+                filmsById.put(film.getId(), film);
+                cache.putIfVersion(film.getId(), copy(film), version);
+            }
+        }
+
+        List<Film> films = new ArrayList<>(filmIds.size());
+        for (Integer filmId : filmIds) {
+            Film film = filmsById.get(filmId);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        return films;
+    }
+
+    @Override
+    public boolean addLike(int filmId, int userId) {
+        boolean added = filmStorage.addLike(filmId, userId);
+        if (added) {
+            cache.invalidate(filmId);
+        }
+        return added;
+    }
+
+    @Override
+    public boolean deleteLike(int filmId, int userId) {
+        boolean deleted = filmStorage.deleteLike(filmId, userId);
+        if (deleted) {
+            cache.invalidate(filmId);
+        }
+        return deleted;
+    }
+
+    @Override
+    public List<Integer> getLikes(int filmId, int offset, int limit) {
+        return filmStorage.getLikes(filmId, offset, limit);
+    }
+
+    @Override
+    public List<Integer> getUserLikedFilmIds(int userId) {
+        return filmStorage.getUserLikedFilmIds(userId);
+    }
+
+    @Override
+    public void forEachLike(LikeConsumer consumer) {
+        filmStorage.forEachLike(consumer);
+    }
+
+    @Override
+    public int reconcileLikeCounts() {
+        int reconciled = filmStorage.reconcileLikeCounts();
+        if (reconciled > 0) {
+            cache.invalidateAll();
+        }
+        return reconciled;
+    }
+
+    @Override
+    public Collection<Film> getBestFilms(int count) {
+        return filmStorage.getBestFilms(count);
+    }
+
+    @Override
+    public List<Film> getSortedFilmsByDirId(long directorId, String sort) {
+        return filmStorage.getSortedFilmsByDirId(directorId, sort);
+    }
+
+    @Override
+    public Collection<Film> getCommonFilms(int userId, int friendId) {
+        return filmStorage.getCommonFilms(userId, friendId);
+    }
+
+    @Override
+    public List<Film> getSortedFilmByQuery(String query, String by) {
+        return filmStorage.getSortedFilmByQuery(query, by);
+    }
+
+    @Override
+    public List<Film> getFilteredBestFilms(int count, Integer genreId, Integer year) {
+        return filmStorage.getFilteredBestFilms(count, genreId, year);
+    }
+
+    @Override
+    public Collection<Film> getRecommendations(int userId) {
+        return filmStorage.getRecommendations(userId);
+    }
+
+    private static Film copy(Film film) {
+        Mpa mpa = film.getMpa() == null ? null : new Mpa(film.getMpa().getId(), film.getMpa().getName());
+        Film copy = new Film(film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration(), mpa);
+        copy.setLikesCount(film.getLikesCount());
+        film.getGenres().forEach(genre -> copy.addGenre(new Genre(genre.getId(), genre.getName())));
+        film.getDirectors().forEach(director -> copy.addDirector(new Director(director.getId(), director.getName())));
+        return copy;
+    }
+}
@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventTypeStatus;
+import ru.yandex.practicum.filmorate.model.OperationStatus;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+final class EventArchiveCodec {
+    private EventArchiveCodec() {
+    }
+
+    static byte[] encode(List<Event> events) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(events.size() * 8);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new DeflaterOutputStream(bytes, deflater)))) {
+            out.writeInt(events.size());
+            int previousEventId = 0;
+            long previousTimestamp = 0;
+            for (Event event : events) {
+                out.writeInt(event.getEventId() - previousEventId);
+                out.writeLong(event.getTimestamp() - previousTimestamp);
+                out.writeInt(event.getEntityId());
+                out.writeUTF(event.getEventType().name());
+                out.writeUTF(event.getOperation().name());
+                previousEventId = event.getEventId();
+                previousTimestamp = event.getTimestamp();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    static List<Event> decode(int userId, byte[] payload) {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new InflaterInputStream(new ByteArrayInputStream(payload))))) {
+            int count = in.readInt();
+            List<Event> events = new ArrayList<>(count);
+            int eventId = 0;
+            long timestamp = 0;
+            for (int i = 0; i < count; i++) {
+                eventId += in.readInt();
+                timestamp += in.readLong();
+                int entityId = in.readInt();
+                EventTypeStatus eventType = EventTypeStatus.valueOf(in.readUTF());
+                OperationStatus operation = OperationStatus.valueOf(in.readUTF());
+                events.add(new Event(eventId, timestamp, userId, entityId, eventType, operation));
+            }
+            return events;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
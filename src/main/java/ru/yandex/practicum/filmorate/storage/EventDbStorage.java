@@ -1,44 +1,228 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Event;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 @Repository
+@Profile(StorageProfiles.DATABASE)
 @Slf4j
 public class EventDbStorage implements EventStorage {
+    private static final String INSERT_EVENT =
+            "INSERT INTO events(event_id,timestamp,user_id,entity_id,event_type,operation) " +
+                    "SELECT ?, ?, ?, ?, ?, ? " +
+                    "WHERE EXISTS (SELECT 1 FROM users WHERE id = ?)";
+    private static final String INSERT_ARCHIVE_CHUNK =
+            "INSERT INTO events_archive(user_id,first_event_id,last_event_id,first_timestamp,last_timestamp," +
+                    "events_count,payload) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final int ARCHIVE_CHUNK_SIZE = 256;
+    private static final int IN_CLAUSE_BATCH_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
     private final RowMapper<Event> eventMapper;
 
-    public EventDbStorage(JdbcTemplate jdbcTemplate, RowMapper<Event> eventMapper) {
+    public EventDbStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                          RowMapper<Event> eventMapper) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
         this.eventMapper = eventMapper;
     }
 
     @Override
-    public List<Event> findEventsByUserId(int userId) {
+    public List<Event> findLatestEventsByUserId(int userId, int beforeEventId, long since, int limit) {
+        String sql = "SELECT * FROM events " +
+                "WHERE user_id = ? AND event_id < ? AND timestamp >= ? " +
+                "ORDER BY event_id DESC " +
+                "LIMIT ?";
+
+        return jdbcTemplate.query(sql, eventMapper, userId, beforeEventId, since, limit);
+    }
+
+    @Override
+    public List<Event> findLatestEventsByUserIds(Collection<Integer> userIds, int limit) {
         String sql = "SELECT * FROM events " +
-                "WHERE user_id = ?";
+                "WHERE user_id IN (:ids) " +
+                "ORDER BY event_id DESC " +
+                "LIMIT :limit";
+
+        List<Integer> ids = new ArrayList<>(userIds);
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += IN_CLAUSE_BATCH_SIZE) {
+            events.addAll(namedJdbcTemplate.query(sql,
+                    Map.of("ids", ids.subList(i, Math.min(i + IN_CLAUSE_BATCH_SIZE, ids.size())), "limit", limit),
+                    eventMapper));
+        }
+        if (ids.size() > IN_CLAUSE_BATCH_SIZE) {
+            events.sort(Comparator.comparingInt(Event::getEventId).reversed());
+            return events.subList(0, Math.min(limit, events.size()));
+        }
+        return events;
+    }
+
+    @Override
+    public List<Event> findLatestArchivedEventsByUserId(int userId, int beforeEventId, long since, int limit) {
+        String sql = "SELECT first_event_id, payload FROM events_archive " +
+                "WHERE user_id = ? AND first_event_id < ? AND last_timestamp >= ? " +
+                "ORDER BY last_event_id DESC " +
+                "LIMIT ?";
+        int chunksPerQuery = limit / ARCHIVE_CHUNK_SIZE + 2;
 
-        log.info("Получена история действий пользователя с id = {}", userId);
-        return jdbcTemplate.query(sql, eventMapper, userId);
+        List<Event> events = new ArrayList<>(Math.min(limit, ARCHIVE_CHUNK_SIZE));
+        int chunksBefore = beforeEventId;
+        int chunksRead;
+        do {
+            int[] lastFirstEventId = {chunksBefore};
+            chunksRead = jdbcTemplate.query(sql, (ResultSet rs) -> {
+                int count = 0;
+                while (events.size() < limit && rs.next()) {
+                    count++;
+                    lastFirstEventId[0] = rs.getInt("first_event_id");
+                    List<Event> chunk = EventArchiveCodec.decode(userId, rs.getBytes("payload"));
+                    for (int i = chunk.size() - 1; i >= 0 && events.size() < limit; i--) {
+                        Event event = chunk.get(i);
+                        if (event.getEventId() < beforeEventId && event.getTimestamp() >= since) {
+                            events.add(event);
+                        }
+                    }
+                }
+                return count;
+            }, userId, chunksBefore, since, chunksPerQuery);
+            chunksBefore = lastFirstEventId[0];
+        } while (events.size() < limit && chunksRead == chunksPerQuery);
+        return events;
+    }
+
+    @Override
+    public List<Event> findEventsByUserIdSince(int userId, long since, int afterEventId, int beforeEventId,
+                                               int limit) {
+        String sql = "SELECT * FROM events " +
+                "WHERE user_id = ? AND event_id < ? AND (timestamp > ? OR timestamp = ? AND event_id > ?) " +
+                "ORDER BY timestamp, event_id " +
+                "LIMIT ?";
+
+        return jdbcTemplate.query(sql, eventMapper, userId, beforeEventId, since, since, afterEventId, limit);
+    }
+
+    @Override
+    public List<Event> findArchivedEventsByUserIdSince(int userId, long since, int afterEventId, int beforeEventId,
+                                                       int limit) {
+        String sql = "SELECT first_event_id, payload FROM events_archive " +
+                "WHERE user_id = ? AND first_event_id > ? AND first_event_id < ? AND last_timestamp >= ? " +
+                "ORDER BY first_event_id " +
+                "LIMIT ?";
+        int chunksPerQuery = limit / ARCHIVE_CHUNK_SIZE + 2;
+
+        List<Event> events = new ArrayList<>(Math.min(limit, ARCHIVE_CHUNK_SIZE));
+        int chunksAfter = Integer.MIN_VALUE;
+        int chunksRead;
+        do {
+            int[] lastFirstEventId = {chunksAfter};
+            chunksRead = jdbcTemplate.query(sql, (ResultSet rs) -> {
+                int count = 0;
+                while (events.size() < limit && rs.next()) {
+                    count++;
+                    lastFirstEventId[0] = rs.getInt("first_event_id");
+                    for (Event event : EventArchiveCodec.decode(userId, rs.getBytes("payload"))) {
+                        if (isAfter(event, since, afterEventId) && event.getEventId() < beforeEventId) {
+                            events.add(event);
+                        }
+                    }
+                }
+                return count;
+            }, userId, chunksAfter, beforeEventId, since, chunksPerQuery);
+            chunksAfter = lastFirstEventId[0];
+        } while (events.size() < limit && chunksRead == chunksPerQuery);
+
+        events.sort(TIMELINE_ORDER);
+        return events.size() > limit ? new ArrayList<>(events.subList(0, limit)) : events;
     }
 
     @Override
     public void add(Event event) {
-        String sql = "INSERT INTO events(timestamp,user_id,entity_id,event_type,operation) " +
-                "VALUES(?, ?, ?, ?, ?)";
-        jdbcTemplate.update(sql,
-                event.getTimestamp(),
-                event.getUserId(),
-                event.getEntityId(),
-                event.getEventType().toString(),
-                event.getOperation().toString()
-        );
+        jdbcTemplate.update(INSERT_EVENT, statement -> setValues(statement, event));
         log.info("Данные о действии пользователя с id = {} занесены в историю",event.getUserId());
     }
+
+    @Override
+    public void addAll(List<Event> events) {
+        jdbcTemplate.batchUpdate(INSERT_EVENT, events, events.size(), this::setValues);
+        log.debug("В историю действий пользователей занесено событий: {}", events.size());
+    }
+
+    @Override
+    public int getMaxEventId() {
+        Integer maxEventId = jdbcTemplate.queryForObject(
+                "SELECT GREATEST(COALESCE((SELECT MAX(event_id) FROM events), 0), " +
+                        "COALESCE((SELECT MAX(last_event_id) FROM events_archive), 0))", Integer.class);
+        return maxEventId == null ? 0 : maxEventId;
+    }
+
+    @Override
+    @Transactional
+    public int archiveEventsBefore(long timestamp, int limit) {
+        String sql = "SELECT * FROM events " +
+                "WHERE timestamp < ? " +
+                "ORDER BY user_id, event_id " +
+                "LIMIT ?";
+        List<Event> events = jdbcTemplate.query(sql, eventMapper, timestamp, limit);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        List<List<Event>> chunks = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i <= events.size(); i++) {
+            if (i == events.size() || i - start == ARCHIVE_CHUNK_SIZE
+                    || events.get(i).getUserId() != events.get(start).getUserId()) {
+                chunks.add(events.subList(start, i));
+                start = i;
+            }
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_ARCHIVE_CHUNK, chunks, chunks.size(), (ps, chunk) -> {
+            Event first = chunk.get(0);
+            Event last = chunk.get(chunk.size() - 1);
+            ps.setInt(1, first.getUserId());
+            ps.setInt(2, first.getEventId());
+            ps.setInt(3, last.getEventId());
+            ps.setLong(4, chunk.stream().mapToLong(Event::getTimestamp).min().orElseThrow());
+            ps.setLong(5, chunk.stream().mapToLong(Event::getTimestamp).max().orElseThrow());
+            ps.setInt(6, chunk.size());
+            ps.setBytes(7, EventArchiveCodec.encode(chunk));
+        });
+        jdbcTemplate.batchUpdate("DELETE FROM events WHERE event_id = ?", events, events.size(),
+                (ps, event) -> ps.setInt(1, event.getEventId()));
+
+        log.info("В архив перенесено событий: {} в блоках: {}", events.size(), chunks.size());
+        return events.size();
+    }
+
+    private static boolean isAfter(Event event, long since, int afterEventId) {
+        return event.getTimestamp() > since || event.getTimestamp() == since && event.getEventId() > afterEventId;
+    }
+
+    private void setValues(PreparedStatement statement, Event event) throws SQLException {
+        statement.setInt(1, event.getEventId());
+        statement.setLong(2, event.getTimestamp());
+        statement.setInt(3, event.getUserId());
+        statement.setInt(4, event.getEntityId());
+        statement.setString(5, event.getEventType().toString());
+        statement.setString(6, event.getOperation().toString());
+        statement.setInt(7, event.getUserId());
+    }
 }
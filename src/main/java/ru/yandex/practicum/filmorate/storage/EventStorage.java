@@ -2,11 +2,30 @@ package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Event;
 
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 
 public interface EventStorage {
+    Comparator<Event> TIMELINE_ORDER = Comparator.comparingLong(Event::getTimestamp)
+            .thenComparingInt(Event::getEventId);
 
-    List<Event> findEventsByUserId(int userId);
+    List<Event> findLatestEventsByUserId(int userId, int beforeEventId, long since, int limit);
+
+    List<Event> findLatestEventsByUserIds(Collection<Integer> userIds, int limit);
+
+    List<Event> findLatestArchivedEventsByUserId(int userId, int beforeEventId, long since, int limit);
+
+    List<Event> findEventsByUserIdSince(int userId, long since, int afterEventId, int beforeEventId, int limit);
+
+    List<Event> findArchivedEventsByUserIdSince(int userId, long since, int afterEventId, int beforeEventId,
+                                                int limit);
 
     void add(Event event);
+
+    void addAll(List<Event> events);
+
+    int getMaxEventId();
+
+    int archiveEventsBefore(long timestamp, int limit);
 }
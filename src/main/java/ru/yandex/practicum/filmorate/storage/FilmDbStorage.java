@@ -1,65 +1,108 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.reference.ReferenceDataRegistry;
 
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 
 @Repository
+@Profile(StorageProfiles.DATABASE)
 @Slf4j
 public class FilmDbStorage implements FilmStorage {
+    private static final int IN_CLAUSE_BATCH_SIZE = 1000;
+    private static final int STREAM_CHUNK_SIZE = 500;
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final String SELECT_FILMS =
+            "SELECT f.id, " +
+                    "       f.name, " +
+                    "       f.description, " +
+                    "       f.release_date, " +
+                    "       f.duration, " +
+                    "       f.like_count, " +
+                    "       r.id AS rating_id, " +
+                    "       r.name AS rating_name " +
+                    "FROM films AS f " +
+                    "LEFT JOIN ratings AS r ON r.id = f.rating_id ";
 
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
     private final RowMapper<Film> filmMapper;
-    private final RowMapper<Genre> genreMapper;
-    private final RowMapper<Mpa> mpaMapper;
+    private final ReferenceDataRegistry referenceData;
 
-    public FilmDbStorage(JdbcTemplate jdbcTemplate, RowMapper<Film> filmMapper, RowMapper<Genre> genreMapper,
-                         RowMapper<Mpa> mpaMapper) {
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                         RowMapper<Film> filmMapper, ReferenceDataRegistry referenceData) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
         this.filmMapper = filmMapper;
-        this.genreMapper = genreMapper;
-        this.mpaMapper = mpaMapper;
+        this.referenceData = referenceData;
     }
 
     @Override
     public Collection<Film> getAll() {
-        String sql =
-                "SELECT f.id, " +
-                        "       f.name, " +
-                        "       f.description, " +
-                        "       f.release_date, " +
-                        "       f.duration, " +
-                        "       r.id AS rating_id, " +
-                        "       r.name AS rating_name, " +
-                        "       array_agg(DISTINCT f_g.genre_id || ' ' || g.name ORDER BY f_g.genre_id) AS genres_data, " +
-                        "       array_agg(DISTINCT l.user_id ORDER BY l.user_id) AS likes_data, " +
-                        "       array_agg(DISTINCT f_d.director_id || ',' || d.director_name ORDER BY f_d.director_id) AS directors_data " +
-                        "FROM films AS f " +
-                        "LEFT JOIN ratings AS r ON r.id = f.rating_id " +
-                        "LEFT JOIN film_genre AS f_g ON f_g.film_id = f.id " +
-                        "LEFT JOIN genres AS g ON g.id = f_g.genre_id " +
-                        "LEFT JOIN likes AS l ON f.id = l.film_id " +
-                        "LEFT JOIN film_director AS f_d ON f_d.film_id = f.id " +
-                        "LEFT JOIN director AS d ON d.director_id = f_d.director_id " +
-                        "GROUP BY f.id;";
+        String sql = SELECT_FILMS + "ORDER BY f.id;";
 
         log.info("Получен список всех фильмов из базы");
-        return jdbcTemplate.query(sql, filmMapper);
+        return queryFilms(sql);
+    }
+
+    @Override
+    public List<Film> getPage(int afterId, int limit) {
+        String sql =
+                SELECT_FILMS +
+                        "WHERE f.id > ? " +
+                        "ORDER BY f.id " +
+                        "LIMIT ?;";
+
+        log.info("Получена страница фильмов из базы после id = {}, limit = {}", afterId, limit);
+        return queryFilms(sql, afterId, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachFilm(Consumer<Film> action) {
+        String sql = SELECT_FILMS + "ORDER BY f.id;";
+
+        List<Film> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+        int[] count = {0};
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(STREAM_CHUNK_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            chunk.add(filmMapper.mapRow(rs, count[0]++));
+            if (chunk.size() == STREAM_CHUNK_SIZE) {
+                emitChunk(chunk, action);
+            }
+        });
+        emitChunk(chunk, action);
+
+        log.info("Из базы последовательно прочитано фильмов: {}", count[0]);
     }
 
     @Override
@@ -83,6 +126,7 @@ public class FilmDbStorage implements FilmStorage {
     public int add(Film film) {
         SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
                 .withTableName("films")
+                .usingColumns("name", "description", "release_date", "duration", "rating_id")
                 .usingGeneratedKeyColumns("id");
 
         int filmId = simpleJdbcInsert.executeAndReturnKey(film.toMap()).intValue();
@@ -96,7 +140,38 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     @Override
-    public void update(Film film) {
+    @Transactional
+    public List<Integer> addAll(List<Film> films) {
+        List<Integer> filmIds = new ArrayList<>(films.size());
+        for (int i = 0; i < films.size(); i += INSERT_BATCH_SIZE) {
+            filmIds.addAll(insertFilms(films.subList(i, Math.min(i + INSERT_BATCH_SIZE, films.size()))));
+        }
+
+        List<long[]> filmGenres = new ArrayList<>();
+        List<long[]> filmDirectors = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(filmIds.get(i));
+            film.getGenres().stream()
+                    .mapToLong(Genre::getId)
+                    .distinct()
+                    .forEach(genreId -> filmGenres.add(new long[]{film.getId(), genreId}));
+            film.getDirectors().stream()
+                    .mapToLong(Director::getId)
+                    .distinct()
+                    .forEach(directorId -> filmDirectors.add(new long[]{directorId, film.getId()}));
+        }
+
+        batchInsert("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?);", filmGenres);
+        batchInsert("INSERT INTO film_director (director_id, film_id) VALUES (?, ?);", filmDirectors);
+
+        log.info("В базу добавлено фильмов: {}, жанров фильмов: {}, режиссеров фильмов: {}",
+                films.size(), filmGenres.size(), filmDirectors.size());
+        return filmIds;
+    }
+
+    @Override
+    public boolean update(Film film) {
         String sql =
                 "UPDATE films " +
                         "SET name = ?, " +
@@ -106,13 +181,17 @@ public class FilmDbStorage implements FilmStorage {
                         "    rating_id = ? " +
                         "WHERE id = ?;";
 
-        jdbcTemplate.update(sql,
+        int updated = jdbcTemplate.update(sql,
                 film.getName(),
                 film.getDescription(),
                 film.getReleaseDate(),
                 film.getDuration(),
                 film.getMpa().getId(),
                 film.getId());
+        if (updated == 0) {
+            log.info("Фильм с id = {} для обновления не найден в базе", film.getId());
+            return false;
+        }
 
         deleteGenres(film.getId());
         addGenres(film.getGenres(), film.getId());
@@ -120,285 +199,301 @@ public class FilmDbStorage implements FilmStorage {
 
         addMpaName(film.getMpa());
         log.info("Информация о фильме с id = {} обновлена в базе", film.getId());
+        return true;
     }
 
     @Override
     public Film getFilm(int filmId) {
-        String sql =
-                "SELECT f.id, " +
-                        "       f.name, " +
-                        "       f.description, " +
-                        "       f.release_date, " +
-                        "       f.duration, " +
-                        "       r.id AS rating_id, " +
-                        "       r.name AS rating_name, " +
-                        "       array_agg(DISTINCT f_g.genre_id || ' ' || g.name ORDER BY f_g.genre_id) AS genres_data, " +
-                        "       array_agg(DISTINCT l.user_id ORDER BY l.user_id) AS likes_data, " +
-                        "       array_agg(DISTINCT f_d.director_id || ',' || d.director_name ORDER BY f_d.director_id) AS directors_data " +
-                        "FROM films AS f " +
-                        "LEFT JOIN ratings AS r ON r.id = f.rating_id " +
-                        "LEFT JOIN film_genre AS f_g ON f_g.film_id = f.id " +
-                        "LEFT JOIN genres AS g ON g.id = f_g.genre_id " +
-                        "LEFT JOIN likes AS l ON f.id = l.film_id " +
-                        "LEFT JOIN film_director AS f_d ON f_d.film_id = f.id " +
-                        "LEFT JOIN director AS d ON d.director_id = f_d.director_id " +
-                        "WHERE f.id = ? " +
-                        "GROUP BY f.id;";
+        String sql = SELECT_FILMS + "WHERE f.id = ?;";
+
+        Film film = jdbcTemplate.queryForObject(sql, filmMapper, filmId);
+        loadFilmsData(List.of(film));
 
         log.info("Фильм с id = {} получен из базы", filmId);
-        return jdbcTemplate.queryForObject(sql, filmMapper, filmId);
+        return film;
     }
 
     @Override
-    public void delete(int filmId) {
+    public Optional<Film> findFilm(int filmId) {
+        String sql = SELECT_FILMS + "WHERE f.id = ?;";
 
+        List<Film> films = queryFilms(sql, filmId);
+
+        log.info("Выполнен поиск фильма с id = {} в базе", filmId);
+        return films.stream().findFirst();
+    }
+
+    @Override
+    public boolean delete(int filmId) {
         final String sqlQuery = "DELETE FROM films WHERE id = ?";
-        jdbcTemplate.update(sqlQuery, filmId);
+        int deleted = jdbcTemplate.update(sqlQuery, filmId);
         log.info("Фильм с id = {} удалён ", filmId);
-
+        return deleted > 0;
     }
 
     @Override
-    public void addLike(int filmId, int userId) {
+    @Transactional
+    public boolean addLike(int filmId, int userId) {
         String sql =
-                "INSERT INTO likes (film_id, user_id)" +
-                        "VALUES (?, ?);";
+                "INSERT INTO likes (film_id, user_id) " +
+                        "SELECT ?, ? " +
+                        "WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?);";
 
-        jdbcTemplate.update(sql, filmId, userId);
+        if (jdbcTemplate.update(sql, filmId, userId, filmId, userId) == 0) {
+            return false;
+        }
+        updateLikeCount(filmId, 1);
         log.info("Пользователь с id = {} поставил лайк фильму с id = {}", userId, filmId);
+        return true;
     }
 
     @Override
-    public void deleteLike(int filmId, int userId) {
+    @Transactional
+    public boolean deleteLike(int filmId, int userId) {
         String sql =
                 "DELETE " +
                         "FROM likes " +
                         "WHERE film_id = ?" +
                         "  AND user_id = ?;";
 
-        jdbcTemplate.update(sql, filmId, userId);
+        int deleted = jdbcTemplate.update(sql, filmId, userId);
+        if (deleted == 0) {
+            return false;
+        }
+        updateLikeCount(filmId, -deleted);
         log.info("Пользователь с id = {} удалил лайк у фильма с id = {}", userId, filmId);
+        return true;
     }
 
     @Override
-    public Collection<Film> getBestFilms(int count) {
+    public List<Integer> getUserLikedFilmIds(int userId) {
+        String sql = "SELECT film_id FROM likes WHERE user_id = ? ORDER BY film_id;";
+
+        log.info("Получен список фильмов, которым поставил лайк пользователь с id = {}", userId);
+        return jdbcTemplate.queryForList(sql, Integer.class, userId);
+    }
+
+    @Override
+    public void forEachLike(LikeConsumer consumer) {
+        String sql = "SELECT user_id, film_id FROM likes ORDER BY user_id, film_id;";
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(STREAM_CHUNK_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getInt(1), rs.getInt(2)));
+
+        log.info("Из базы последовательно прочитаны все лайки фильмов");
+    }
+
+    @Override
+    @Transactional
+    public int reconcileLikeCounts() {
         String sql =
                 "SELECT f.id, " +
-                        "       f.name, " +
-                        "       f.description, " +
-                        "       f.release_date, " +
-                        "       f.duration, " +
-                        "       r.id AS rating_id, " +
-                        "       r.name AS rating_name, " +
-                        "       array_agg(DISTINCT f_g.genre_id || ' ' || g.name ORDER BY f_g.genre_id) AS genres_data, " +
-                        "       array_agg(DISTINCT l.user_id ORDER BY l.user_id) AS likes_data, " +
-                        "       array_agg(DISTINCT f_d.director_id || ',' || d.director_name ORDER BY f_d.director_id) AS directors_data " +
+                        "       f.like_count, " +
+                        "       COALESCE(l.likes_count, 0) AS likes_count " +
                         "FROM films AS f " +
-                        "LEFT JOIN ratings AS r ON r.id = f.rating_id " +
-                        "LEFT JOIN film_genre AS f_g ON f_g.film_id = f.id " +
-                        "LEFT JOIN genres AS g ON g.id = f_g.genre_id " +
-                        "LEFT JOIN likes AS l ON l.film_id = f.id " +
-                        "LEFT JOIN film_director AS f_d ON f.id = f_d.film_id " +
-                        "LEFT JOIN director AS d ON d.director_id = f_d.director_id " +
-                        "GROUP BY f.id " +
-                        "ORDER BY count(DISTINCT(l.user_id)) DESC, " +
-                        "         f.name " +
+                        "LEFT JOIN (SELECT film_id, " +
+                        "                  count(user_id) AS likes_count " +
+                        "           FROM likes " +
+                        "           GROUP BY film_id) AS l ON l.film_id = f.id " +
+                        "WHERE f.like_count <> COALESCE(l.likes_count, 0);";
+
+        List<Integer> driftedFilmIds = jdbcTemplate.query(sql, (rs, rowNum) -> {
+            log.warn("Счетчик лайков фильма с id = {} расходится с таблицей лайков: {} вместо {}",
+                    rs.getInt("id"), rs.getInt("like_count"), rs.getInt("likes_count"));
+            return rs.getInt("id");
+        });
+
+        for (List<Integer> chunk : partition(driftedFilmIds)) {
+            namedJdbcTemplate.update(
+                    "UPDATE films AS f " +
+                            "SET like_count = (SELECT count(user_id) FROM likes AS l WHERE l.film_id = f.id) " +
+                            "WHERE f.id IN (:ids);",
+                    Map.of("ids", chunk));
+        }
+
+        log.info("Пересчитаны счетчики лайков, исправлено расхождений: {}", driftedFilmIds.size());
+        return driftedFilmIds.size();
+    }
+
+    @Override
+    public List<Integer> getLikes(int filmId, int offset, int limit) {
+        String sql =
+                "SELECT user_id " +
+                        "FROM likes " +
+                        "WHERE film_id = ? " +
+                        "ORDER BY user_id " +
+                        "LIMIT ? OFFSET ?;";
+
+        log.info("Получен список лайков фильма с id = {}, offset = {}, limit = {}", filmId, offset, limit);
+        return jdbcTemplate.queryForList(sql, Integer.class, filmId, limit, offset);
+    }
+
+    @Override
+    public Collection<Film> getBestFilms(int count) {
+        String sql =
+                SELECT_FILMS +
+                        "ORDER BY f.like_count DESC, " +
+                        "         f.name, " +
+                        "         f.id " +
                         "LIMIT ?;";
 
         log.info("Получен список топ {} фильмов из базы", count);
-        return jdbcTemplate.query(sql, filmMapper, count);
+        return queryFilms(sql, count);
     }
 
     @Override
     public List<Film> getSortedFilmsByDirId(long directorId, String sort) {
-        String sqlQuery = "SELECT f.id, " +
-                "       f.name, " +
-                "       f.description, " +
-                "       f.release_date, " +
-                "       f.duration, " +
-                "       r.id AS rating_id, " +
-                "       r.name AS rating_name, " +
-                "       array_agg(DISTINCT f_g.genre_id || ' ' || g.name ORDER BY f_g.genre_id) AS genres_data, " +
-                "       array_agg(DISTINCT l.user_id ORDER BY l.user_id) AS likes_data, " +
-                "       array_agg(DISTINCT f_d.director_id || ',' || d.director_name ORDER BY f_d.director_id) AS directors_data " +
-                "FROM films AS f " +
-                "LEFT JOIN ratings AS r ON r.id = f.rating_id " +
-                "LEFT JOIN film_genre AS f_g ON f_g.film_id = f.id " +
-                "LEFT JOIN genres AS g ON g.id = f_g.genre_id " +
-                "LEFT JOIN likes AS l ON l.film_id = f.id " +
-                "LEFT JOIN film_director AS f_d ON f.id = f_d.film_id " +
-                "LEFT JOIN director AS d ON d.director_id = f_d.director_id " +
-                "WHERE f_d.director_id = ? " +
-                "GROUP BY f.id ";
+        String sqlQuery =
+                SELECT_FILMS +
+                        "WHERE f.id IN (SELECT film_id FROM film_director WHERE director_id = ?) ";
         switch (sort) {
             case "likes":
-                sqlQuery = sqlQuery + "ORDER BY COUNT(DISTINCT l.user_id) DESC";
+                sqlQuery = sqlQuery + "ORDER BY f.like_count DESC";
                 break;
             case "year":
                 sqlQuery = sqlQuery + "ORDER BY f.release_date";
                 break;
         }
         log.info("Получен список фильмов режиссера с id = {}, отсортированный по {}", directorId, sort);
-        return jdbcTemplate.query(sqlQuery, filmMapper, directorId);
+        return queryFilms(sqlQuery, directorId);
     }
 
     @Override
     public Collection<Film> getCommonFilms(int userId, int friendId) {
         String sql =
-                "SELECT f.id, " +
-                        "       f.name, " +
-                        "       f.description, " +
-                        "       f.release_date, " +
-                        "       f.duration, " +
-                        "       r.id AS rating_id, " +
-                        "       r.name AS rating_name, " +
-                        "       array_agg(DISTINCT f_g.genre_id || ' ' || g.name ORDER BY f_g.genre_id) AS genres_data, " +
-                        "       array_agg(DISTINCT l.user_id ORDER BY l.user_id) AS likes_data, " +
-                        "       array_agg(DISTINCT f_d.director_id || ',' || d.director_name ORDER BY f_d.director_id) AS directors_data " +
-                        "FROM films AS f " +
-                        "LEFT JOIN ratings AS r ON r.id = f.rating_id " +
-                        "LEFT JOIN film_genre AS f_g ON f_g.film_id = f.id " +
-                        "LEFT JOIN genres AS g ON g.id = f_g.genre_id " +
-                        "LEFT JOIN likes AS l ON l.film_id = f.id " +
-                        "LEFT JOIN film_director AS f_d ON f.id = f_d.film_id " +
-                        "LEFT JOIN director AS d ON d.director_id = f_d.director_id " +
-                        "WHERE f.id in " +
+                SELECT_FILMS +
+                        "WHERE f.id IN " +
                         "      (SELECT l_1.film_id " +
                         "       FROM likes AS l_1 " +
-                        "       LEFT JOIN likes AS l_2 ON l_1.film_id = l_2.film_id " +
-                        "       WHERE (l_1.user_id = ? " +
-                        "              AND l_2.user_id = ?) " +
-                        "       GROUP BY l_1.film_id) " +
-                        "GROUP BY f.id " +
-                        "ORDER BY count(DISTINCT(l.user_id)) DESC, " +
+                        "       INNER JOIN likes AS l_2 ON l_1.film_id = l_2.film_id " +
+                        "       WHERE l_1.user_id = ? " +
+                        "         AND l_2.user_id = ?) " +
+                        "ORDER BY f.like_count DESC, " +
                         "         f.name;";
 
         log.info("Получен список общих любимых фильмов пользователей с id: {} и {}", userId, friendId);
-        return jdbcTemplate.query(sql, filmMapper, userId, friendId);
+        return queryFilms(sql, userId, friendId);
     }
 
     @Override
     public List<Film> getSortedFilmByQuery(String query, String by) {
         query = "%" + query + "%";
-        String sqlQuery = "SELECT f.id, " +
-                "       f.name, " +
-                "       f.description, " +
-                "       f.release_date, " +
-                "       f.duration, " +
-                "       r.id AS rating_id, " +
-                "       r.name AS rating_name, " +
-                "       array_agg(DISTINCT f_g.genre_id || ' ' || g.name ORDER BY f_g.genre_id) AS genres_data, " +
-                "       array_agg(DISTINCT l.user_id ORDER BY l.user_id) AS likes_data, " +
-                "       array_agg(DISTINCT f_d.director_id || ',' || d.director_name ORDER BY f_d.director_id) AS directors_data " +
-                "FROM films AS f " +
-                "LEFT JOIN ratings AS r ON r.id = f.rating_id " +
-                "LEFT JOIN film_genre AS f_g ON f_g.film_id = f.id " +
-                "LEFT JOIN genres AS g ON g.id = f_g.genre_id " +
-                "LEFT JOIN likes AS l ON l.film_id = f.id " +
-                "LEFT JOIN film_director AS f_d ON f.id = f_d.film_id " +
-                "LEFT JOIN director AS d ON d.director_id = f_d.director_id ";
+        String titleCondition = "LOWER(f.name) LIKE LOWER(?) ";
+        String directorCondition =
+                "f.id IN (SELECT f_d.film_id " +
+                        "         FROM film_director AS f_d " +
+                        "         INNER JOIN director AS d ON d.director_id = f_d.director_id " +
+                        "         WHERE LOWER(d.director_name) LIKE LOWER(?)) ";
+        String sqlQuery = SELECT_FILMS;
         switch (by) {
             case "director":
-                sqlQuery = sqlQuery +
-                        "WHERE LOWER(D.DIRECTOR_NAME) LIKE LOWER(?) " +
-                        "GROUP BY F.ID ORDER BY count(DISTINCT(l.user_id)) DESC";
+                sqlQuery = sqlQuery + "WHERE " + directorCondition + "ORDER BY f.like_count DESC";
                 log.info("Получены фильмы, отсортированные по {}, имеющих подстроку {}", by, query);
-                return jdbcTemplate.query(sqlQuery, filmMapper, query);
+                return queryFilms(sqlQuery, query);
             case "title":
-                sqlQuery = sqlQuery +
-                        "WHERE LOWER(F.NAME) LIKE LOWER(?) " +
-                        "GROUP BY F.ID ORDER BY count(DISTINCT(l.user_id)) DESC";
+                sqlQuery = sqlQuery + "WHERE " + titleCondition + "ORDER BY f.like_count DESC";
                 log.info("Получены фильмы, отсортированные по {}, имеющих подстроку {}", by, query);
-                return jdbcTemplate.query(sqlQuery, filmMapper, query);
+                return queryFilms(sqlQuery, query);
             case "director,title":
-                sqlQuery = sqlQuery +
-                        "WHERE LOWER(D.DIRECTOR_NAME) LIKE LOWER(?) OR LOWER(F.NAME) LIKE LOWER(?) " +
-                        "GROUP BY F.ID ORDER BY count(DISTINCT(l.user_id)) DESC";
-                break;
             case "title,director":
-                sqlQuery = sqlQuery +
-                        "WHERE LOWER(F.NAME) LIKE LOWER(?) OR LOWER(D.DIRECTOR_NAME) LIKE LOWER(?) " +
-                        "GROUP BY F.ID ORDER BY count(DISTINCT(l.user_id)) DESC";
+                sqlQuery = sqlQuery + "WHERE " + directorCondition + "OR " + titleCondition +
+                        "ORDER BY f.like_count DESC";
                 break;
         }
         log.info("Получены фильмы, отсортированные по {}, имеющих подстроку {}", by, query);
-        return jdbcTemplate.query(sqlQuery, filmMapper, query, query);
+        return queryFilms(sqlQuery, query, query);
     }
 
     @Override
     public List<Film> getFilteredBestFilms(int count, Integer genreId, Integer year) {
-        String sql =
-                "SELECT f.id, " +
-                        "       f.name, " +
-                        "       f.description, " +
-                        "       f.release_date, " +
-                        "       f.duration, " +
-                        "       r.id AS rating_id, " +
-                        "       r.name AS rating_name, " +
-                        "       array_agg(DISTINCT f_g.genre_id || ' ' || g.name ORDER BY f_g.genre_id) AS genres_data, " +
-                        "       array_agg(DISTINCT l.user_id ORDER BY l.user_id) AS likes_data, " +
-                        "       array_agg(DISTINCT f_d.director_id || ',' || d.director_name ORDER BY f_d.director_id) AS directors_data " +
-                        "FROM films AS f " +
-                        "LEFT JOIN ratings AS r ON r.id = f.rating_id " +
-                        "LEFT JOIN film_genre AS f_g ON f_g.film_id = f.id " +
-                        "LEFT JOIN genres AS g ON g.id = f_g.genre_id " +
-                        "LEFT JOIN likes AS l ON l.film_id = f.id " +
-                        "LEFT JOIN film_director AS f_d ON f.id = f_d.film_id " +
-                        "LEFT JOIN director AS d ON d.director_id = f_d.director_id ";
+        String sql = SELECT_FILMS;
+        String genreCondition = "f.id IN (SELECT film_id FROM film_genre WHERE genre_id = ?) ";
+        String yearCondition = "EXTRACT(YEAR FROM f.release_date) = ? ";
+        String order = "ORDER BY f.like_count DESC, f.name, f.id " +
+                "LIMIT ?";
         if (genreId == null) {
-            sql = sql +
-                    "WHERE EXTRACT(YEAR FROM f.release_date) = ? " +
-                    "GROUP BY f.id " +
-                    "ORDER BY count(DISTINCT(l.user_id)) DESC " +
-                    "LIMIT ?";
+            sql = sql + "WHERE " + yearCondition + order;
             log.info("Получен топ {} фильмов из базы, где год выпуска = {}", count, year);
-            return jdbcTemplate.query(sql, filmMapper, year, count);
+            return queryFilms(sql, year, count);
         }
         if (year == null) {
-            sql = sql +
-                    "WHERE f.id IN (SELECT f.id " +
-                    "               FROM films AS f " +
-                    "               LEFT JOIN film_genre AS f_g ON f_g.film_id = f.id " +
-                    "               LEFT JOIN genres AS g ON g.id = f_g.genre_id " +
-                    "               WHERE f_g.genre_id = ? " +
-                    "               GROUP BY f.id) " +
-                    "GROUP BY f.id " +
-                    "ORDER BY count(DISTINCT(l.user_id)) DESC " +
-                    "LIMIT ?";
+            sql = sql + "WHERE " + genreCondition + order;
             log.info("Получен топ {} фильмов из базы, где id жанра = {}", count, genreId);
-            return jdbcTemplate.query(sql, filmMapper, genreId, count);
+            return queryFilms(sql, genreId, count);
         }
-        sql = sql +
-                "WHERE f.id IN (SELECT f.id " +
-                "               FROM films AS f " +
-                "               LEFT JOIN film_genre AS f_g ON f_g.film_id = f.id " +
-                "               LEFT JOIN genres AS g ON g.id = f_g.genre_id " +
-                "               WHERE f_g.genre_id = ? " +
-                "               GROUP BY f.id) " +
-                "AND EXTRACT(YEAR FROM f.release_date) = ? " +
-                "GROUP BY f.id " +
-                "ORDER BY count(DISTINCT(l.user_id)) DESC " +
-                "LIMIT ?";
+        sql = sql + "WHERE " + genreCondition + "AND " + yearCondition + order;
         log.info("Получен список топ {} фильмов из базы, где id жанра = {} и год выпуска = {}", count, genreId, year);
-        return jdbcTemplate.query(sql, filmMapper, genreId, year, count);
+        return queryFilms(sql, genreId, year, count);
+    }
+
+    private List<Integer> insertFilms(List<Film> films) {
+        String sql =
+                "INSERT INTO films (name, description, release_date, duration, rating_id) " +
+                        "VALUES (?, ?, ?, ?, ?);";
+
+        return jdbcTemplate.execute((ConnectionCallback<List<Integer>>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql, new String[]{"id"})) {
+                for (Film film : films) {
+                    statement.setString(1, film.getName());
+                    statement.setString(2, film.getDescription());
+                    statement.setObject(3, film.getReleaseDate());
+                    statement.setInt(4, film.getDuration());
+                    statement.setInt(5, film.getMpa().getId());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                List<Integer> filmIds = new ArrayList<>(films.size());
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        filmIds.add(keys.getInt(1));
+                    }
+                }
+                return filmIds;
+            }
+        });
+    }
+
+    private void batchInsert(String sql, List<long[]> rows) {
+        jdbcTemplate.batchUpdate(sql, rows, INSERT_BATCH_SIZE, (statement, row) -> {
+            statement.setLong(1, row[0]);
+            statement.setLong(2, row[1]);
+        });
+    }
+
+    private void emitChunk(List<Film> films, Consumer<Film> action) {
+        if (films.isEmpty()) {
+            return;
+        }
+        loadFilmsData(films);
+        films.forEach(action);
+        films.clear();
+    }
+
+    private void updateLikeCount(int filmId, int delta) {
+        jdbcTemplate.update("UPDATE films SET like_count = like_count + ? WHERE id = ?;", delta, filmId);
     }
 
     private void addGenres(Set<Genre> genres, int filmId) {
-        for (Genre genre : genres) {
-            String sql = "INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?);";
-            jdbcTemplate.update(sql, filmId, genre.getId());
-            log.info("Фильму с id = {} добавлен жанр с id = {}", filmId, genre.getId());
+        List<long[]> filmGenres = new ArrayList<>(genres.size());
+        genres.stream()
+                .mapToLong(Genre::getId)
+                .distinct()
+                .forEach(genreId -> filmGenres.add(new long[]{filmId, genreId}));
+        batchInsert("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?);", filmGenres);
+        log.info("Фильму с id = {} добавлены жанры: {}", filmId, genres);
 
-            Genre genreWithName = jdbcTemplate.queryForObject("SELECT * FROM genres WHERE id = ?;",
-                    genreMapper, genre.getId());
-            genre.setName(genreWithName.getName());
+        for (Genre genre : genres) {
+            genre.setName(referenceData.getGenreName(genre.getId()));
         }
     }
 
     private void addMpaName(Mpa mpa) {
-        Mpa mpaWithName = jdbcTemplate.queryForObject("SELECT * FROM ratings WHERE id = ?;",
-                mpaMapper, mpa.getId());
-        mpa.setName(mpaWithName.getName());
+        mpa.setName(referenceData.getRatingName(mpa.getId()));
     }
 
 
@@ -436,40 +531,101 @@ public class FilmDbStorage implements FilmStorage {
     public Collection<Film> getRecommendations(int userId) {
         String sql =
                 "WITH user_like AS (SELECT film_id FROM likes WHERE user_id = ?), " +
-                "              cnt AS (SELECT DISTINCT COUNT(1) CNT " +
-                "                      FROM likes AS l " +
-                "                        JOIN user_like AS ul ON ul.film_id = l.film_id " +
-                "                      WHERE l.user_id <> ? " +
-                "                      GROUP BY l.user_id " +
-                "                      ORDER BY CNT DESC " +
-                "                      LIMIT 2) " +
-                "                SELECT  f.id, " +
-                "                       f.name,   " +
-                "                       f.description,   " +
-                "                       f.release_date,   " +
-                "                       f.duration,   " +
-                "                       r.id AS rating_id,   " +
-                "                       r.name AS rating_name, " +
-                "                       array_agg(DISTINCT f_g.genre_id || ' ' || g.name " +
-                "                                 ORDER BY f_g.genre_id) AS genres_data, " +
-                "                       array_agg(DISTINCT l.user_id " +
-                "                                 ORDER BY l.user_id) AS likes_data, " +
-                "                       array_agg(DISTINCT f_d.director_id || ',' || d.director_name " +
-                "                                 ORDER BY f_d.director_id) AS directors_data , " +
-                "                FROM films AS f   " +
-                "                LEFT JOIN ratings AS r ON r.id = f.rating_id   " +
-                "                LEFT JOIN film_genre AS f_g ON f_g.film_id = f.id   " +
-                "                LEFT JOIN genres AS g ON g.id = f_g.genre_id   " +
-                "                LEFT JOIN likes AS l ON f.id = l.film_id   " +
-                "                LEFT JOIN film_director AS f_d ON f_d.film_id = f.id   " +
-                "                LEFT JOIN director AS d ON d.director_id = f_d.director_id   " +
-                "                LEFT JOIN likes AS l2 ON l.user_id = l2.user_id " +
-                "                WHERE l2.film_id IN (SELECT film_id FROM user_like) " +
-                "                 GROUP BY f.id " +
-                "               HAVING f.id NOT IN (SELECT film_id FROM user_like) " +
-                "                  AND COUNT(DISTINCT l2.user_id) IN (SELECT * FROM cnt) " +
-                "               ORDER BY COUNT(l2.user_id) DESC;";
-
-        return jdbcTemplate.query(sql, filmMapper, userId, userId);
+                        "     cnt AS (SELECT DISTINCT COUNT(1) CNT " +
+                        "             FROM likes AS l " +
+                        "             JOIN user_like AS ul ON ul.film_id = l.film_id " +
+                        "             WHERE l.user_id <> ? " +
+                        "             GROUP BY l.user_id " +
+                        "             ORDER BY CNT DESC " +
+                        "             LIMIT 2) " +
+                        "SELECT l.film_id " +
+                        "FROM likes AS l " +
+                        "JOIN likes AS l2 ON l.user_id = l2.user_id " +
+                        "WHERE l2.film_id IN (SELECT film_id FROM user_like) " +
+                        "GROUP BY l.film_id " +
+                        "HAVING l.film_id NOT IN (SELECT film_id FROM user_like) " +
+                        "   AND COUNT(DISTINCT l2.user_id) IN (SELECT * FROM cnt) " +
+                        "ORDER BY COUNT(l2.user_id) DESC;";
+
+        List<Integer> filmIds = jdbcTemplate.queryForList(sql, Integer.class, userId, userId);
+
+        log.info("Получен список рекомендуемых фильмов для пользователя с id = {}", userId);
+        return getFilmsByIds(filmIds);
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> filmIds) {
+        if (filmIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Integer, Film> filmsById = new HashMap<>();
+        for (List<Integer> chunk : partition(filmIds)) {
+            String sql = SELECT_FILMS + "WHERE f.id IN (:ids);";
+            namedJdbcTemplate.query(sql, Map.of("ids", chunk), filmMapper)
+                    .forEach(film -> filmsById.put(film.getId(), film));
+        }
+
+        List<Film> films = new ArrayList<>(filmsById.size());
+        for (Integer filmId : filmIds) {
+            Film film = filmsById.get(filmId);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+
+        loadFilmsData(films);
+        return films;
+    }
+
+    private List<Film> queryFilms(String sql, Object... args) {
+        List<Film> films = jdbcTemplate.query(sql, filmMapper, args);
+        loadFilmsData(films);
+        return films;
+    }
+
+    private void loadFilmsData(List<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, Film> filmsById = new HashMap<>();
+        for (Film film : films) {
+            filmsById.put(film.getId(), film);
+        }
+
+        for (List<Integer> chunk : partition(new ArrayList<>(filmsById.keySet()))) {
+            Map<String, Object> params = Map.of("ids", chunk);
+
+            namedJdbcTemplate.query(
+                    "SELECT film_id, genre_id " +
+                            "FROM film_genre " +
+                            "WHERE film_id IN (:ids) " +
+                            "ORDER BY film_id, genre_id;",
+                    params,
+                    (RowCallbackHandler) rs -> {
+                        int genreId = rs.getInt("genre_id");
+                        filmsById.get(rs.getInt("film_id"))
+                                .addGenre(new Genre(genreId, referenceData.getGenreName(genreId)));
+                    });
+
+            namedJdbcTemplate.query(
+                    "SELECT f_d.film_id, d.director_id, d.director_name " +
+                            "FROM film_director AS f_d " +
+                            "INNER JOIN director AS d ON d.director_id = f_d.director_id " +
+                            "WHERE f_d.film_id IN (:ids) " +
+                            "ORDER BY f_d.film_id, d.director_id;",
+                    params,
+                    (RowCallbackHandler) rs -> filmsById.get(rs.getInt("film_id"))
+                            .addDirector(new Director(rs.getLong("director_id"), rs.getString("director_name"))));
+        }
+    }
+
+    private static List<List<Integer>> partition(List<Integer> ids) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += IN_CLAUSE_BATCH_SIZE) {
+            chunks.add(ids.subList(i, Math.min(i + IN_CLAUSE_BATCH_SIZE, ids.size())));
+        }
+        return chunks;
     }
 }
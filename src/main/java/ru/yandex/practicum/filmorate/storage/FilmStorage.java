@@ -4,25 +4,45 @@ import ru.yandex.practicum.filmorate.model.Film;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     Collection<Film> getAll();
 
+    List<Film> getPage(int afterId, int limit);
+
+    void forEachFilm(Consumer<Film> action);
+
     boolean isFilmExists(int filmId);
 
     boolean isFilmContainsUserLike(int filmId, int userId);
 
     int add(Film film);
 
-    void update(Film film);
+    List<Integer> addAll(List<Film> films);
+
+    boolean update(Film film);
 
-    void delete(int filmId);
+    boolean delete(int filmId);
 
     Film getFilm(int filmId);
 
-    void addLike(int filmId, int userId);
+    Optional<Film> findFilm(int filmId);
+
+    List<Film> getFilmsByIds(List<Integer> filmIds);
+
+    boolean addLike(int filmId, int userId);
 
-    void deleteLike(int filmId, int userId);
+    boolean deleteLike(int filmId, int userId);
+
+    List<Integer> getLikes(int filmId, int offset, int limit);
+
+    List<Integer> getUserLikedFilmIds(int userId);
+
+    void forEachLike(LikeConsumer consumer);
+
+    int reconcileLikeCounts();
 
     Collection<Film> getBestFilms(int count);
 
@@ -35,4 +55,8 @@ public interface FilmStorage {
     List<Film> getFilteredBestFilms(int count, Integer genreId, Integer year);
 
     Collection<Film> getRecommendations(int userId);
+
+    interface LikeConsumer {
+        void accept(int userId, int filmId);
+    }
 }
@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.Director;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Repository
+@Profile(StorageProfiles.MEMORY)
+@Slf4j
+public class InMemoryDirectorStorage implements DirectorStorage {
+    private final ConcurrentMap<Long, String> names = new ConcurrentSkipListMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+
+    @Override
+    public Director getDirectorById(long id) {
+        String name = names.get(id);
+        if (name == null) {
+            throw new EmptyResultDataAccessException(1);
+        }
+        return new Director(id, name);
+    }
+
+    @Override
+    public List<Director> getAllDirectors() {
+        List<Director> directors = new ArrayList<>(names.size());
+        names.forEach((id, name) -> directors.add(new Director(id, name)));
+
+        log.info("Получены все режиссеры");
+        return directors;
+    }
+
+    @Override
+    public Director addDirector(Director director) {
+        long directorId = nextId.incrementAndGet();
+        names.put(directorId, director.getName());
+        director.setId(directorId);
+
+        log.info("Добавлен режиссер с id = {}", director.getId());
+        return director;
+    }
+
+    @Override
+    public Director updateDirector(Director director) {
+        names.computeIfPresent(director.getId(), (id, name) -> director.getName());
+        log.info("Обновлен режиссер с id = {}", director.getId());
+        return director;
+    }
+
+    @Override
+    public void deleteDirector(long id) {
+        names.remove(id);
+        log.info("Удален режиссер с id = {}", id);
+    }
+
+    @Override
+    public boolean isDirectorExists(long id) {
+        return names.containsKey(id);
+    }
+
+    String getName(long id) {
+        return names.get(id);
+    }
+}
@@ -0,0 +1,279 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.Event;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+@Repository
+@Profile(StorageProfiles.MEMORY)
+@Slf4j
+public class InMemoryEventStorage implements EventStorage {
+    private static final int LOCK_STRIPES = 64;
+    private static final int ARCHIVE_CHUNK_SIZE = 256;
+
+    private final InMemoryUserStorage userStorage;
+    private final ConcurrentSkipListMap<Integer, UserEvents> eventsByUser = new ConcurrentSkipListMap<>();
+    private final AtomicInteger maxEventId = new AtomicInteger();
+    private final LockStripes locks = new LockStripes(LOCK_STRIPES);
+
+    public InMemoryEventStorage(InMemoryUserStorage userStorage) {
+        this.userStorage = userStorage;
+        userStorage.addRemovalListener(this::removeUserEvents);
+    }
+
+    @Override
+    public List<Event> findLatestEventsByUserId(int userId, int beforeEventId, long since, int limit) {
+        List<Event> result = new ArrayList<>();
+        Lock lock = locks.get(userId).readLock();
+        lock.lock();
+        try {
+            UserEvents events = eventsByUser.get(userId);
+            if (events == null) {
+                return result;
+            }
+            for (int i = events.live.size() - 1; i >= 0 && result.size() < limit; i--) {
+                Event event = events.live.get(i);
+                if (event.getEventId() < beforeEventId && event.getTimestamp() >= since) {
+                    result.add(copy(event));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public List<Event> findLatestEventsByUserIds(Collection<Integer> userIds, int limit) {
+        List<Event> result = new ArrayList<>();
+        for (Integer userId : userIds) {
+            result.addAll(findLatestEventsByUserId(userId, Integer.MAX_VALUE, Long.MIN_VALUE, limit));
+        }
+        result.sort(Comparator.comparingInt(Event::getEventId).reversed());
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    @Override
+    public List<Event> findLatestArchivedEventsByUserId(int userId, int beforeEventId, long since, int limit) {
+        List<ArchiveChunk> chunks = new ArrayList<>();
+        Lock lock = locks.get(userId).readLock();
+        lock.lock();
+        try {
+            UserEvents events = eventsByUser.get(userId);
+            if (events != null) {
+                chunks.addAll(events.archive);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        List<Event> result = new ArrayList<>(Math.min(limit, ARCHIVE_CHUNK_SIZE));
+        for (int c = chunks.size() - 1; c >= 0 && result.size() < limit; c--) {
+            ArchiveChunk chunk = chunks.get(c);
+            if (chunk.firstEventId >= beforeEventId || chunk.lastTimestamp < since) {
+                continue;
+            }
+            List<Event> decoded = EventArchiveCodec.decode(userId, chunk.payload);
+            for (int i = decoded.size() - 1; i >= 0 && result.size() < limit; i--) {
+                Event event = decoded.get(i);
+                if (event.getEventId() < beforeEventId && event.getTimestamp() >= since) {
+                    result.add(event);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Event> findEventsByUserIdSince(int userId, long since, int afterEventId, int beforeEventId,
+                                               int limit) {
+        List<Event> result = new ArrayList<>();
+        Lock lock = locks.get(userId).readLock();
+        lock.lock();
+        try {
+            UserEvents events = eventsByUser.get(userId);
+            if (events == null) {
+                return result;
+            }
+            for (Event event : events.live) {
+                if (isAfter(event, since, afterEventId) && event.getEventId() < beforeEventId) {
+                    result.add(copy(event));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return firstInTimeline(result, limit);
+    }
+
+    @Override
+    public List<Event> findArchivedEventsByUserIdSince(int userId, long since, int afterEventId, int beforeEventId,
+                                                       int limit) {
+        List<ArchiveChunk> chunks = new ArrayList<>();
+        Lock lock = locks.get(userId).readLock();
+        lock.lock();
+        try {
+            UserEvents events = eventsByUser.get(userId);
+            if (events != null) {
+                chunks.addAll(events.archive);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        List<Event> result = new ArrayList<>(Math.min(limit, ARCHIVE_CHUNK_SIZE));
+        for (ArchiveChunk chunk : chunks) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (chunk.firstEventId >= beforeEventId || chunk.lastTimestamp < since) {
+                continue;
+            }
+            for (Event event : EventArchiveCodec.decode(userId, chunk.payload)) {
+                if (isAfter(event, since, afterEventId) && event.getEventId() < beforeEventId) {
+                    result.add(event);
+                }
+            }
+        }
+        return firstInTimeline(result, limit);
+    }
+
+    @Override
+    public void add(Event event) {
+        if (insert(event)) {
+            log.info("Данные о действии пользователя с id = {} занесены в историю", event.getUserId());
+        }
+    }
+
+    @Override
+    public void addAll(List<Event> events) {
+        int added = 0;
+        for (Event event : events) {
+            if (insert(event)) {
+                added++;
+            }
+        }
+        log.debug("В историю действий пользователей занесено событий: {}", added);
+    }
+
+    @Override
+    public int getMaxEventId() {
+        return maxEventId.get();
+    }
+
+    @Override
+    public int archiveEventsBefore(long timestamp, int limit) {
+        int archived = 0;
+        int chunksCount = 0;
+        for (Integer userId : eventsByUser.keySet()) {
+            if (archived == limit) {
+                break;
+            }
+            Lock lock = locks.get(userId).writeLock();
+            lock.lock();
+            try {
+                UserEvents events = eventsByUser.get(userId);
+                if (events == null) {
+                    continue;
+                }
+                List<Event> moved = new ArrayList<>();
+                Iterator<Event> iterator = events.live.iterator();
+                while (iterator.hasNext() && archived + moved.size() < limit) {
+                    Event event = iterator.next();
+                    if (event.getTimestamp() < timestamp) {
+                        moved.add(event);
+                        iterator.remove();
+                    }
+                }
+                for (int i = 0; i < moved.size(); i += ARCHIVE_CHUNK_SIZE) {
+                    List<Event> block = moved.subList(i, Math.min(i + ARCHIVE_CHUNK_SIZE, moved.size()));
+                    events.archive.add(new ArchiveChunk(block));
+                    chunksCount++;
+                }
+                events.archive.sort(Comparator.comparingInt(chunk -> chunk.lastEventId));
+                archived += moved.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        if (archived > 0) {
+            log.info("В архив перенесено событий: {} в блоках: {}", archived, chunksCount);
+        }
+        return archived;
+    }
+
+    private boolean insert(Event event) {
+        int userId = event.getUserId();
+        Lock lock = locks.get(userId).writeLock();
+        lock.lock();
+        try {
+            if (!userStorage.isUserExistsById(userId)) {
+                return false;
+            }
+            List<Event> live = eventsByUser.computeIfAbsent(userId, id -> new UserEvents()).live;
+            int position = live.size();
+            while (position > 0 && live.get(position - 1).getEventId() > event.getEventId()) {
+                position--;
+            }
+            live.add(position, copy(event));
+        } finally {
+            lock.unlock();
+        }
+        maxEventId.accumulateAndGet(event.getEventId(), Math::max);
+        return true;
+    }
+
+    private void removeUserEvents(int userId) {
+        Lock lock = locks.get(userId).writeLock();
+        lock.lock();
+        try {
+            eventsByUser.remove(userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean isAfter(Event event, long since, int afterEventId) {
+        return event.getTimestamp() > since || event.getTimestamp() == since && event.getEventId() > afterEventId;
+    }
+
+    private static List<Event> firstInTimeline(List<Event> events, int limit) {
+        events.sort(TIMELINE_ORDER);
+        return events.size() > limit ? new ArrayList<>(events.subList(0, limit)) : events;
+    }
+
+    private static Event copy(Event event) {
+        return new Event(event.getEventId(), event.getTimestamp(), event.getUserId(), event.getEntityId(),
+                event.getEventType(), event.getOperation());
+    }
+
+    private static final class UserEvents {
+        private final List<Event> live = new ArrayList<>();
+        private final List<ArchiveChunk> archive = new ArrayList<>();
+    }
+
+    private static final class ArchiveChunk {
+        private final int firstEventId;
+        private final int lastEventId;
+        private final long lastTimestamp;
+        private final byte[] payload;
+
+        private ArchiveChunk(List<Event> events) {
+            this.firstEventId = events.get(0).getEventId();
+            this.lastEventId = events.get(events.size() - 1).getEventId();
+            this.lastTimestamp = events.stream().mapToLong(Event::getTimestamp).max().orElseThrow();
+            this.payload = EventArchiveCodec.encode(events);
+        }
+    }
+}
@@ -0,0 +1,661 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.reference.ReferenceDataRegistry;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+
+@Repository
+@Profile(StorageProfiles.MEMORY)
+@Slf4j
+public class InMemoryFilmStorage implements FilmStorage {
+    private static final int LOCK_STRIPES = 64;
+    private static final Comparator<Candidate> BY_LIKES =
+            Comparator.comparingInt((Candidate candidate) -> candidate.likes).reversed();
+    private static final Comparator<Candidate> BY_LIKES_AND_NAME =
+            BY_LIKES.thenComparing(candidate -> candidate.data.name).thenComparingInt(candidate -> candidate.id);
+
+    private final InMemoryUserStorage userStorage;
+    private final InMemoryDirectorStorage directorStorage;
+    private final ReferenceDataRegistry referenceData;
+    private final ConcurrentSkipListMap<Integer, FilmRecord> films = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<List<Object>, Integer> idsByUniqueKey = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, IntHashSet> likedFilms = new ConcurrentSkipListMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final LockStripes filmLocks = new LockStripes(LOCK_STRIPES);
+    private final LockStripes userLocks = new LockStripes(LOCK_STRIPES);
+    private final List<IntConsumer> removalListeners = new CopyOnWriteArrayList<>();
+
+    public InMemoryFilmStorage(InMemoryUserStorage userStorage, InMemoryDirectorStorage directorStorage,
+                               ReferenceDataRegistry referenceData) {
+        this.userStorage = userStorage;
+        this.directorStorage = directorStorage;
+        this.referenceData = referenceData;
+        userStorage.addRemovalListener(this::removeUserLikes);
+    }
+
+    @Override
+    public Collection<Film> getAll() {
+        List<Film> result = new ArrayList<>(films.size());
+        films.forEach((filmId, record) -> result.add(toFilm(filmId, record)));
+
+        log.info("Получен список всех фильмов из памяти");
+        return result;
+    }
+
+    @Override
+    public List<Film> getPage(int afterId, int limit) {
+        List<Film> result = new ArrayList<>(Math.min(limit, films.size()));
+        for (Map.Entry<Integer, FilmRecord> entry : films.tailMap(afterId, false).entrySet()) {
+            if (result.size() == limit) {
+                break;
+            }
+            result.add(toFilm(entry.getKey(), entry.getValue()));
+        }
+
+        log.info("Получена страница фильмов из памяти после id = {}, limit = {}", afterId, limit);
+        return result;
+    }
+
+    @Override
+    public void forEachFilm(Consumer<Film> action) {
+        int[] count = {0};
+        films.forEach((filmId, record) -> {
+            action.accept(toFilm(filmId, record));
+            count[0]++;
+        });
+
+        log.info("Из памяти последовательно прочитано фильмов: {}", count[0]);
+    }
+
+    @Override
+    public boolean isFilmExists(int filmId) {
+        return films.containsKey(filmId);
+    }
+
+    @Override
+    public boolean isFilmContainsUserLike(int filmId, int userId) {
+        Lock lock = filmLocks.get(filmId).readLock();
+        lock.lock();
+        try {
+            FilmRecord record = films.get(filmId);
+            return record != null && record.likes.contains(userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int add(Film film) {
+        int filmId = insert(film);
+        fillNames(film);
+
+        log.info("В память добавлен фильм с id = {}", filmId);
+        return filmId;
+    }
+
+    @Override
+    public List<Integer> addAll(List<Film> films) {
+        List<Integer> filmIds = new ArrayList<>(films.size());
+        try {
+            for (Film film : films) {
+                int filmId = insert(film);
+                film.setId(filmId);
+                filmIds.add(filmId);
+            }
+        } catch (RuntimeException e) {
+            filmIds.forEach(this::delete);
+            throw e;
+        }
+
+        log.info("В память добавлено фильмов: {}", films.size());
+        return filmIds;
+    }
+
+    @Override
+    public boolean update(Film film) {
+        FilmData data = toData(film);
+        Lock lock = filmLocks.get(film.getId()).writeLock();
+        lock.lock();
+        try {
+            FilmRecord record = films.get(film.getId());
+            if (record == null) {
+                log.info("Фильм с id = {} для обновления не найден в памяти", film.getId());
+                return false;
+            }
+            List<Object> oldKey = record.data.uniqueKey();
+            List<Object> newKey = data.uniqueKey();
+            if (newKey != null && !newKey.equals(oldKey)
+                    && idsByUniqueKey.putIfAbsent(newKey, film.getId()) != null) {
+                throw new DuplicateKeyException("Фильм " + film.getName() + " уже существует");
+            }
+            if (oldKey != null && !oldKey.equals(newKey)) {
+                idsByUniqueKey.remove(oldKey);
+            }
+            record.data = data;
+        } finally {
+            lock.unlock();
+        }
+        fillNames(film);
+
+        log.info("Информация о фильме с id = {} обновлена в памяти", film.getId());
+        return true;
+    }
+
+    @Override
+    public boolean delete(int filmId) {
+        Lock lock = filmLocks.get(filmId).writeLock();
+        lock.lock();
+        try {
+            FilmRecord record = films.remove(filmId);
+            if (record == null) {
+                return false;
+            }
+            List<Object> key = record.data.uniqueKey();
+            if (key != null) {
+                idsByUniqueKey.remove(key);
+            }
+            for (int userId : record.likes.toSortedArray()) {
+                removeLikedFilm(userId, filmId);
+            }
+        } finally {
+            lock.unlock();
+        }
+        removalListeners.forEach(listener -> listener.accept(filmId));
+
+        log.info("Фильм с id = {} удалён ", filmId);
+        return true;
+    }
+
+    @Override
+    public Film getFilm(int filmId) {
+        return findFilm(filmId).orElseThrow(() -> new EmptyResultDataAccessException(1));
+    }
+
+    @Override
+    public Optional<Film> findFilm(int filmId) {
+        FilmRecord record = films.get(filmId);
+
+        log.info("Выполнен поиск фильма с id = {} в памяти", filmId);
+        return record == null ? Optional.empty() : Optional.of(toFilm(filmId, record));
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> filmIds) {
+        List<Film> result = new ArrayList<>(filmIds.size());
+        for (Integer filmId : filmIds) {
+            FilmRecord record = films.get(filmId);
+            if (record != null) {
+                result.add(toFilm(filmId, record));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean addLike(int filmId, int userId) {
+        Lock lock = filmLocks.get(filmId).writeLock();
+        lock.lock();
+        try {
+            FilmRecord record = films.get(filmId);
+            if (record == null || !userStorage.isUserExistsById(userId)) {
+                throw new DataIntegrityViolationException("Фильм с id = " + filmId + " или пользователь с id = " +
+                        userId + " не найден");
+            }
+            if (!record.likes.add(userId)) {
+                return false;
+            }
+            record.likeCount++;
+
+            Lock userLock = userLocks.get(userId).writeLock();
+            userLock.lock();
+            try {
+                likedFilms.computeIfAbsent(userId, id -> new IntHashSet()).add(filmId);
+            } finally {
+                userLock.unlock();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        log.info("Пользователь с id = {} поставил лайк фильму с id = {}", userId, filmId);
+        return true;
+    }
+
+    @Override
+    public boolean deleteLike(int filmId, int userId) {
+        Lock lock = filmLocks.get(filmId).writeLock();
+        lock.lock();
+        try {
+            FilmRecord record = films.get(filmId);
+            if (record == null || !record.likes.remove(userId)) {
+                return false;
+            }
+            record.likeCount--;
+            removeLikedFilm(userId, filmId);
+        } finally {
+            lock.unlock();
+        }
+
+        log.info("Пользователь с id = {} удалил лайк у фильма с id = {}", userId, filmId);
+        return true;
+    }
+
+    @Override
+    public List<Integer> getLikes(int filmId, int offset, int limit) {
+        int[] userIds;
+        Lock lock = filmLocks.get(filmId).readLock();
+        lock.lock();
+        try {
+            FilmRecord record = films.get(filmId);
+            userIds = record == null ? new int[0] : record.likes.toSortedArray();
+        } finally {
+            lock.unlock();
+        }
+
+        List<Integer> result = new ArrayList<>();
+        for (int i = offset; i < userIds.length && result.size() < limit; i++) {
+            result.add(userIds[i]);
+        }
+
+        log.info("Получен список лайков фильма с id = {}, offset = {}, limit = {}", filmId, offset, limit);
+        return result;
+    }
+
+    @Override
+    public List<Integer> getUserLikedFilmIds(int userId) {
+        List<Integer> result = new ArrayList<>();
+        for (int filmId : likedFilmIds(userId)) {
+            result.add(filmId);
+        }
+
+        log.info("Получен список фильмов, которым поставил лайк пользователь с id = {}", userId);
+        return result;
+    }
+
+    @Override
+    public void forEachLike(LikeConsumer consumer) {
+        for (Integer userId : likedFilms.keySet()) {
+            for (int filmId : likedFilmIds(userId)) {
+                consumer.accept(userId, filmId);
+            }
+        }
+
+        log.info("Из памяти последовательно прочитаны все лайки фильмов");
+    }
+
+    @Override
+    public int reconcileLikeCounts() {
+        int drifted = 0;
+        for (Map.Entry<Integer, FilmRecord> entry : films.entrySet()) {
+            Lock lock = filmLocks.get(entry.getKey()).writeLock();
+            lock.lock();
+            try {
+                FilmRecord record = entry.getValue();
+                if (record.likeCount != record.likes.size()) {
+                    log.warn("Счетчик лайков фильма с id = {} расходится с множеством лайков: {} вместо {}",
+                            entry.getKey(), record.likeCount, record.likes.size());
+                    record.likeCount = record.likes.size();
+                    drifted++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        log.info("Пересчитаны счетчики лайков, исправлено расхождений: {}", drifted);
+        return drifted;
+    }
+
+    @Override
+    public Collection<Film> getBestFilms(int count) {
+        log.info("Получен список топ {} фильмов из памяти", count);
+        return select(record -> true, BY_LIKES_AND_NAME, count);
+    }
+
+    @Override
+    public List<Film> getSortedFilmsByDirId(long directorId, String sort) {
+        Comparator<Candidate> order;
+        switch (sort) {
+            case "likes":
+                order = BY_LIKES;
+                break;
+            case "year":
+                order = Comparator.comparing(candidate -> candidate.data.releaseDate,
+                        Comparator.nullsFirst(Comparator.<LocalDate>naturalOrder()));
+                break;
+            default:
+                order = Comparator.comparingInt(candidate -> candidate.id);
+        }
+
+        log.info("Получен список фильмов режиссера с id = {}, отсортированный по {}", directorId, sort);
+        return select(data -> Arrays.binarySearch(data.directorIds, directorId) >= 0, order, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Collection<Film> getCommonFilms(int userId, int friendId) {
+        int[] userFilmIds = likedFilmIds(userId);
+        int[] friendFilmIds = likedFilmIds(friendId);
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (int i = 0, j = 0; i < userFilmIds.length && j < friendFilmIds.length; ) {
+            if (userFilmIds[i] < friendFilmIds[j]) {
+                i++;
+            } else if (userFilmIds[i] > friendFilmIds[j]) {
+                j++;
+            } else {
+                FilmRecord record = films.get(userFilmIds[i]);
+                if (record != null) {
+                    candidates.add(new Candidate(userFilmIds[i], record.data, record.likeCount));
+                }
+                i++;
+                j++;
+            }
+        }
+        candidates.sort(BY_LIKES_AND_NAME);
+
+        log.info("Получен список общих любимых фильмов пользователей с id: {} и {}", userId, friendId);
+        return toFilms(candidates, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Film> getSortedFilmByQuery(String query, String by) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        boolean byTitle = by.contains("title");
+        boolean byDirector = by.contains("director");
+
+        log.info("Получены фильмы, отсортированные по {}, имеющих подстроку {}", by, query);
+        return select(data -> byTitle && containsIgnoreCase(data.name, needle)
+                || byDirector && hasDirectorMatching(data, needle), BY_LIKES, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Film> getFilteredBestFilms(int count, Integer genreId, Integer year) {
+        log.info("Получен список топ {} фильмов из памяти, где id жанра = {} и год выпуска = {}", count, genreId, year);
+        return select(data -> (genreId == null || Arrays.binarySearch(data.genreIds, genreId) >= 0)
+                        && (year == null || data.releaseDate != null && data.releaseDate.getYear() == year),
+                BY_LIKES_AND_NAME, count);
+    }
+
+    @Override
+    public Collection<Film> getRecommendations(int userId) {
+        int[] userFilmIds = likedFilmIds(userId);
+
+        Map<Integer, Integer> overlaps = new HashMap<>();
+        for (int filmId : userFilmIds) {
+            for (int otherId : filmLikes(filmId)) {
+                if (otherId != userId) {
+                    overlaps.merge(otherId, 1, Integer::sum);
+                }
+            }
+        }
+        TreeSet<Integer> topOverlaps = new TreeSet<>(Comparator.reverseOrder());
+        for (int overlap : overlaps.values()) {
+            topOverlaps.add(overlap);
+            if (topOverlaps.size() > 2) {
+                topOverlaps.pollLast();
+            }
+        }
+
+        Map<Integer, int[]> scores = new HashMap<>();
+        overlaps.forEach((otherId, overlap) -> {
+            for (int filmId : likedFilmIds(otherId)) {
+                if (Arrays.binarySearch(userFilmIds, filmId) < 0) {
+                    int[] score = scores.computeIfAbsent(filmId, id -> new int[2]);
+                    score[0]++;
+                    score[1] += overlap;
+                }
+            }
+        });
+
+        List<Integer> filmIds = new ArrayList<>();
+        scores.entrySet().stream()
+                .filter(entry -> topOverlaps.contains(entry.getValue()[0]))
+                .sorted(Comparator.comparingInt((Map.Entry<Integer, int[]> entry) -> entry.getValue()[1]).reversed()
+                        .thenComparingInt(entry -> entry.getKey()))
+                .forEach(entry -> filmIds.add(entry.getKey()));
+
+        log.info("Получен список рекомендуемых фильмов для пользователя с id = {}", userId);
+        return getFilmsByIds(filmIds);
+    }
+
+    void addRemovalListener(IntConsumer listener) {
+        removalListeners.add(listener);
+    }
+
+    private int insert(Film film) {
+        FilmData data = toData(film);
+        int filmId = nextId.incrementAndGet();
+        List<Object> key = data.uniqueKey();
+        if (key != null && idsByUniqueKey.putIfAbsent(key, filmId) != null) {
+            throw new DuplicateKeyException("Фильм " + film.getName() + " уже существует");
+        }
+        films.put(filmId, new FilmRecord(data));
+        return filmId;
+    }
+
+    private FilmData toData(Film film) {
+        if (film.getMpa() == null || !referenceData.isRatingExists(film.getMpa().getId())) {
+            throw new DataIntegrityViolationException("Рейтинг фильма " + film.getName() + " не найден");
+        }
+        int[] genreIds = film.getGenres() == null ? new int[0] : film.getGenres().stream()
+                .mapToInt(Genre::getId)
+                .distinct()
+                .sorted()
+                .toArray();
+        for (int genreId : genreIds) {
+            if (!referenceData.isGenreExists(genreId)) {
+                throw new DataIntegrityViolationException("Жанр с id = " + genreId + " не найден");
+            }
+        }
+        long[] directorIds = film.getDirectors() == null ? new long[0] : film.getDirectors().stream()
+                .mapToLong(Director::getId)
+                .distinct()
+                .sorted()
+                .toArray();
+        for (long directorId : directorIds) {
+            if (!directorStorage.isDirectorExists(directorId)) {
+                throw new DataIntegrityViolationException("Режиссер с id = " + directorId + " не найден");
+            }
+        }
+        return new FilmData(film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(),
+                film.getMpa().getId(), genreIds, directorIds);
+    }
+
+    private void fillNames(Film film) {
+        if (film.getGenres() != null) {
+            for (Genre genre : film.getGenres()) {
+                genre.setName(referenceData.getGenreName(genre.getId()));
+            }
+        }
+        film.getMpa().setName(referenceData.getRatingName(film.getMpa().getId()));
+    }
+
+    private Film toFilm(int filmId, FilmRecord record) {
+        return toFilm(filmId, record.data, record.likeCount);
+    }
+
+    private Film toFilm(int filmId, FilmData data, int likeCount) {
+        Film film = new Film(filmId, data.name, data.description, data.releaseDate, data.duration,
+                new Mpa(data.mpaId, referenceData.getRatingName(data.mpaId)));
+        film.setLikesCount(likeCount);
+        for (int genreId : data.genreIds) {
+            film.addGenre(new Genre(genreId, referenceData.getGenreName(genreId)));
+        }
+        for (long directorId : data.directorIds) {
+            String name = directorStorage.getName(directorId);
+            if (name != null) {
+                film.addDirector(new Director(directorId, name));
+            }
+        }
+        return film;
+    }
+
+    private List<Film> select(Predicate<FilmData> filter, Comparator<Candidate> order, int limit) {
+        List<Candidate> candidates = new ArrayList<>();
+        films.forEach((filmId, record) -> {
+            FilmData data = record.data;
+            if (filter.test(data)) {
+                candidates.add(new Candidate(filmId, data, record.likeCount));
+            }
+        });
+        candidates.sort(order);
+        return toFilms(candidates, limit);
+    }
+
+    private List<Film> toFilms(List<Candidate> candidates, int limit) {
+        List<Film> result = new ArrayList<>(Math.min(limit, candidates.size()));
+        for (Candidate candidate : candidates) {
+            if (result.size() == limit) {
+                break;
+            }
+            result.add(toFilm(candidate.id, candidate.data, candidate.likes));
+        }
+        return result;
+    }
+
+    private boolean hasDirectorMatching(FilmData data, String needle) {
+        for (long directorId : data.directorIds) {
+            if (containsIgnoreCase(directorStorage.getName(directorId), needle)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsIgnoreCase(String value, String lowerCaseNeedle) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(lowerCaseNeedle);
+    }
+
+    private int[] filmLikes(int filmId) {
+        Lock lock = filmLocks.get(filmId).readLock();
+        lock.lock();
+        try {
+            FilmRecord record = films.get(filmId);
+            return record == null ? new int[0] : record.likes.toSortedArray();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int[] likedFilmIds(int userId) {
+        Lock lock = userLocks.get(userId).readLock();
+        lock.lock();
+        try {
+            IntHashSet filmIds = likedFilms.get(userId);
+            return filmIds == null ? new int[0] : filmIds.toSortedArray();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void removeLikedFilm(int userId, int filmId) {
+        Lock lock = userLocks.get(userId).writeLock();
+        lock.lock();
+        try {
+            IntHashSet filmIds = likedFilms.get(userId);
+            if (filmIds != null) {
+                filmIds.remove(filmId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void removeUserLikes(int userId) {
+        filmLocks.lockAll();
+        try {
+            IntHashSet filmIds = likedFilms.remove(userId);
+            if (filmIds == null) {
+                return;
+            }
+            for (int filmId : filmIds.toSortedArray()) {
+                FilmRecord record = films.get(filmId);
+                if (record != null && record.likes.remove(userId)) {
+                    record.likeCount--;
+                }
+            }
+        } finally {
+            filmLocks.unlockAll();
+        }
+        log.info("Из памяти удалены лайки пользователя с id = {}", userId);
+    }
+
+    private static final class FilmData {
+        private final String name;
+        private final String description;
+        private final LocalDate releaseDate;
+        private final int duration;
+        private final int mpaId;
+        private final int[] genreIds;
+        private final long[] directorIds;
+
+        private FilmData(String name, String description, LocalDate releaseDate, int duration, int mpaId,
+                         int[] genreIds, long[] directorIds) {
+            this.name = name;
+            this.description = description;
+            this.releaseDate = releaseDate;
+            this.duration = duration;
+            this.mpaId = mpaId;
+            this.genreIds = genreIds;
+            this.directorIds = directorIds;
+        }
+
+        private List<Object> uniqueKey() {
+            if (name == null || description == null || releaseDate == null) {
+                return null;
+            }
+            return List.of(name, description, releaseDate, duration);
+        }
+    }
+
+    private static final class FilmRecord {
+        private final IntHashSet likes = new IntHashSet();
+        private volatile FilmData data;
+        private volatile int likeCount;
+
+        private FilmRecord(FilmData data) {
+            this.data = data;
+        }
+    }
+
+    private static final class Candidate {
+        private final int id;
+        private final FilmData data;
+        private final int likes;
+
+        private Candidate(int id, FilmData data, int likes) {
+            this.id = id;
+            this.data = data;
+            this.likes = likes;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@Profile(StorageProfiles.MEMORY)
+@Slf4j
+public class InMemoryGenreStorage implements GenreStorage {
+    private static final List<Genre> GENRES = List.of(
+            new Genre(1, "Комедия"),
+            new Genre(2, "Драма"),
+            new Genre(3, "Мультфильм"),
+            new Genre(4, "Триллер"),
+            new Genre(5, "Документальный"),
+            new Genre(6, "Боевик"));
+
+    @Override
+    public Collection<Genre> getAll() {
+        List<Genre> genres = new ArrayList<>(GENRES.size());
+        for (Genre genre : GENRES) {
+            genres.add(new Genre(genre.getId(), genre.getName()));
+        }
+
+        log.info("Получен список всех жанров из памяти");
+        return genres;
+    }
+
+    @Override
+    public Genre getById(int genreId) {
+        for (Genre genre : GENRES) {
+            if (genre.getId() == genreId) {
+                log.info("Жанр с id = {} получен из памяти", genreId);
+                return new Genre(genre.getId(), genre.getName());
+            }
+        }
+        throw new EmptyResultDataAccessException(1);
+    }
+
+    @Override
+    public boolean isGenreExists(int genreId) {
+        return GENRES.stream().anyMatch(genre -> genre.getId() == genreId);
+    }
+}
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@Profile(StorageProfiles.MEMORY)
+@Slf4j
+public class InMemoryMpaStorage implements MpaStorage {
+    private static final List<Mpa> RATINGS = List.of(
+            new Mpa(1, "G"),
+            new Mpa(2, "PG"),
+            new Mpa(3, "PG-13"),
+            new Mpa(4, "R"),
+            new Mpa(5, "NC-17"));
+
+    @Override
+    public Collection<Mpa> getAll() {
+        List<Mpa> ratings = new ArrayList<>(RATINGS.size());
+        for (Mpa rating : RATINGS) {
+            ratings.add(new Mpa(rating.getId(), rating.getName()));
+        }
+
+        log.info("Получен список всех рейтингов из памяти");
+        return ratings;
+    }
+
+    @Override
+    public Mpa getById(int mpaId) {
+        for (Mpa rating : RATINGS) {
+            if (rating.getId() == mpaId) {
+                log.info("Рейтинг с id = {} получен из памяти", mpaId);
+                return new Mpa(rating.getId(), rating.getName());
+            }
+        }
+        throw new EmptyResultDataAccessException(1);
+    }
+
+    @Override
+    public boolean isRatingExists(int mpaId) {
+        return RATINGS.stream().anyMatch(rating -> rating.getId() == mpaId);
+    }
+}
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+@Repository
+@Profile(StorageProfiles.MEMORY)
+@Slf4j
+public class InMemoryRecommendationStorage implements RecommendationStorage {
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+    private volatile ConcurrentMap<Integer, int[]> recommendations = new ConcurrentHashMap<>();
+
+    public InMemoryRecommendationStorage(InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        userStorage.addRemovalListener(userId -> recommendations.remove(userId));
+    }
+
+    @Override
+    public List<Integer> getRecommendedFilmIds(int userId, int count) {
+        int[] filmIds = recommendations.getOrDefault(userId, new int[0]);
+        List<Integer> result = new ArrayList<>(Math.min(count, filmIds.length));
+        for (int filmId : filmIds) {
+            if (result.size() == count) {
+                break;
+            }
+            if (filmStorage.isFilmExists(filmId) && !filmStorage.isFilmContainsUserLike(filmId, userId)) {
+                result.add(filmId);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public long replaceAll(RecommendationSource source) {
+        ConcurrentMap<Integer, int[]> replacement = new ConcurrentHashMap<>();
+        long count = 0;
+        for (int row = 0; row < source.usersCount(); row++) {
+            int userId = source.userId(row);
+            int[] filmIds = source.filmIds(row);
+            count += filmIds.length;
+            if (userStorage.isUserExistsById(userId)) {
+                replacement.put(userId, Arrays.stream(filmIds).filter(filmStorage::isFilmExists).toArray());
+            }
+        }
+        recommendations = replacement;
+
+        log.info("В память записано рекомендаций: {} для пользователей: {}", count, source.usersCount());
+        return count;
+    }
+}
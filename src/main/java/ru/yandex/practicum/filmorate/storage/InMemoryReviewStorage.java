@@ -0,0 +1,247 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.Review;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Predicate;
+
+@Repository
+@Profile(StorageProfiles.MEMORY)
+@Slf4j
+public class InMemoryReviewStorage implements ReviewStorage {
+    private static final int LOCK_STRIPES = 64;
+    private static final Comparator<Review> BY_USEFUL =
+            Comparator.comparingInt(Review::getUseful).reversed().thenComparingInt(Review::getReviewId);
+
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+    private final ConcurrentSkipListMap<Integer, ReviewRecord> reviews = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<Long, Integer> idsByFilmAndUser = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final LockStripes locks = new LockStripes(LOCK_STRIPES);
+
+    public InMemoryReviewStorage(InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        filmStorage.addRemovalListener(filmId -> removeReviews(record -> record.filmId == filmId, -1));
+        userStorage.addRemovalListener(userId -> removeReviews(record -> record.userId == userId, userId));
+    }
+
+    @Override
+    public Optional<Review> create(Review review) {
+        int reviewId = nextId.incrementAndGet();
+        long key = key(review.getFilmId(), review.getUserId());
+        Lock lock = locks.get(reviewId).writeLock();
+        lock.lock();
+        try {
+            if (!filmStorage.isFilmExists(review.getFilmId()) || !userStorage.isUserExistsById(review.getUserId())
+                    || idsByFilmAndUser.putIfAbsent(key, reviewId) != null) {
+                return Optional.empty();
+            }
+            reviews.put(reviewId, new ReviewRecord(review));
+        } finally {
+            lock.unlock();
+        }
+
+        review.setReviewId(reviewId);
+        return Optional.of(review);
+    }
+
+    @Override
+    public Optional<Review> update(Review review) {
+        Lock lock = locks.get(review.getReviewId()).writeLock();
+        lock.lock();
+        try {
+            ReviewRecord record = reviews.get(review.getReviewId());
+            if (record == null) {
+                return Optional.empty();
+            }
+            record.content = review.getContent();
+            record.isPositive = review.getIsPositive();
+        } finally {
+            lock.unlock();
+        }
+        return findReviewById(review.getReviewId());
+    }
+
+    @Override
+    public int remove(Integer id) {
+        Lock lock = locks.get(id).writeLock();
+        lock.lock();
+        try {
+            ReviewRecord record = reviews.remove(id);
+            if (record == null) {
+                return 0;
+            }
+            idsByFilmAndUser.remove(key(record.filmId, record.userId));
+            return 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Review> findReviewById(Integer id) {
+        ReviewRecord record = reviews.get(id);
+        return record == null ? Optional.empty() : Optional.of(toReview(id, record));
+    }
+
+    @Override
+    public List<Review> findAll() {
+        return select(record -> true, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Review> findPage(int afterUseful, int afterId, int limit) {
+        List<Review> result = new ArrayList<>();
+        for (Review review : findAll()) {
+            if (result.size() == limit) {
+                break;
+            }
+            if (review.getUseful() < afterUseful || review.getUseful() == afterUseful && review.getReviewId() > afterId) {
+                result.add(review);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Review> findReviewsByFilmId(Integer filmId, Integer count) {
+        return select(record -> filmId != null && record.filmId == filmId,
+                count == null ? Integer.MAX_VALUE : count);
+    }
+
+    @Override
+    public boolean addLike(Integer reviewId, Integer userId) {
+        return addReaction(reviewId, userId, true);
+    }
+
+    @Override
+    public boolean addDislike(Integer reviewId, Integer userId) {
+        return addReaction(reviewId, userId, false);
+    }
+
+    @Override
+    public boolean removeLike(Integer reviewId, Integer userId) {
+        return removeReaction(reviewId, userId, true);
+    }
+
+    @Override
+    public boolean removeDislike(Integer reviewId, Integer userId) {
+        return removeReaction(reviewId, userId, false);
+    }
+
+    @Override
+    public boolean isReviewExists(Integer id) {
+        return reviews.containsKey(id);
+    }
+
+    private boolean addReaction(int reviewId, int userId, boolean positive) {
+        Lock lock = locks.get(reviewId).writeLock();
+        lock.lock();
+        try {
+            ReviewRecord record = reviews.get(reviewId);
+            if (record == null || !userStorage.isUserExistsById(userId)) {
+                throw new DataIntegrityViolationException("Отзыв с id = " + reviewId + " или пользователь с id = " +
+                        userId + " не найден");
+            }
+            IntHashSet reactions = positive ? record.likes : record.dislikes;
+            IntHashSet opposite = positive ? record.dislikes : record.likes;
+            if (!reactions.add(userId)) {
+                return false;
+            }
+            int usefulDelta = opposite.remove(userId) ? 2 : 1;
+            record.useful += positive ? usefulDelta : -usefulDelta;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean removeReaction(int reviewId, int userId, boolean positive) {
+        Lock lock = locks.get(reviewId).writeLock();
+        lock.lock();
+        try {
+            ReviewRecord record = reviews.get(reviewId);
+            if (record == null || !(positive ? record.likes : record.dislikes).remove(userId)) {
+                return false;
+            }
+            record.useful += positive ? -1 : 1;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Review> select(Predicate<ReviewRecord> filter, int limit) {
+        List<Review> result = new ArrayList<>();
+        reviews.forEach((reviewId, record) -> {
+            if (filter.test(record)) {
+                result.add(toReview(reviewId, record));
+            }
+        });
+        result.sort(BY_USEFUL);
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    private void removeReviews(Predicate<ReviewRecord> filter, int reactedUserId) {
+        int removed = 0;
+        locks.lockAll();
+        try {
+            Iterator<ReviewRecord> iterator = reviews.values().iterator();
+            while (iterator.hasNext()) {
+                ReviewRecord record = iterator.next();
+                if (filter.test(record)) {
+                    iterator.remove();
+                    idsByFilmAndUser.remove(key(record.filmId, record.userId));
+                    removed++;
+                } else if (record.likes.remove(reactedUserId)) {
+                    record.useful--;
+                } else if (record.dislikes.remove(reactedUserId)) {
+                    record.useful++;
+                }
+            }
+        } finally {
+            locks.unlockAll();
+        }
+        log.info("Из памяти удалено отзывов: {}", removed);
+    }
+
+    private static Review toReview(int reviewId, ReviewRecord record) {
+        return new Review(reviewId, record.content, record.isPositive, record.userId, record.filmId, record.useful);
+    }
+
+    private static long key(int filmId, int userId) {
+        return (long) filmId << 32 | userId & 0xFFFFFFFFL;
+    }
+
+    private static final class ReviewRecord {
+        private final int userId;
+        private final int filmId;
+        private final IntHashSet likes = new IntHashSet();
+        private final IntHashSet dislikes = new IntHashSet();
+        private volatile String content;
+        private volatile Boolean isPositive;
+        private volatile int useful;
+
+        private ReviewRecord(Review review) {
+            this.userId = review.getUserId();
+            this.filmId = review.getFilmId();
+            this.content = review.getContent();
+            this.isPositive = review.getIsPositive();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.Map;
+
+@Repository
+@Profile(StorageProfiles.MEMORY)
+public class InMemoryStatusStorage implements StatusStorage {
+    private static final Map<Integer, String> STATUSES = Map.of(
+            1, "Unconfirmed",
+            2, "Confirmed");
+
+    @Override
+    public Map<Integer, String> getAll() {
+        return STATUSES;
+    }
+}
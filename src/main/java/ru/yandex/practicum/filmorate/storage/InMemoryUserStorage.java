@@ -0,0 +1,352 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.Status;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.function.IntConsumer;
+
+@Repository
+@Profile(StorageProfiles.MEMORY)
+@Slf4j
+public class InMemoryUserStorage implements UserStorage {
+    private static final int LOCK_STRIPES = 64;
+
+    private final ConcurrentSkipListMap<Integer, User> users = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, Integer> idsByEmail = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, Friendships> friendships = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final LockStripes locks = new LockStripes(LOCK_STRIPES);
+    private final List<IntConsumer> removalListeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public Collection<User> getAll() {
+        List<User> result = new ArrayList<>(users.size());
+        users.values().forEach(user -> result.add(copy(user)));
+
+        log.info("Получен список всех пользователей из памяти");
+        return result;
+    }
+
+    @Override
+    public List<User> getPage(int afterId, int limit) {
+        List<User> result = new ArrayList<>(Math.min(limit, users.size()));
+        for (User user : users.tailMap(afterId, false).values()) {
+            if (result.size() == limit) {
+                break;
+            }
+            result.add(copy(user));
+        }
+
+        log.info("Получена страница пользователей из памяти после id = {}, limit = {}", afterId, limit);
+        return result;
+    }
+
+    @Override
+    public boolean isUserExistsByEmail(String email) {
+        return idsByEmail.containsKey(email);
+    }
+
+    @Override
+    public boolean isUserExistsById(int id) {
+        return users.containsKey(id);
+    }
+
+    @Override
+    public boolean isUserContainsFriend(int userId, int friendId) {
+        Lock lock = locks.get(userId).readLock();
+        lock.lock();
+        try {
+            Friendships userFriendships = friendships.get(userId);
+            return userFriendships != null && userFriendships.confirmed.contains(friendId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int add(User user) {
+        int userId = nextId.incrementAndGet();
+        if (idsByEmail.putIfAbsent(user.getEmail(), userId) != null) {
+            throw new DuplicateKeyException("Пользователь с email = " + user.getEmail() + " уже существует");
+        }
+        friendships.put(userId, new Friendships());
+        users.put(userId, copy(userId, user));
+
+        log.info("В память добавлен пользователь с id = {}", userId);
+        return userId;
+    }
+
+    @Override
+    public boolean update(User user) {
+        Lock lock = locks.get(user.getId()).writeLock();
+        lock.lock();
+        try {
+            User existing = users.get(user.getId());
+            if (existing == null) {
+                return false;
+            }
+            if (!existing.getEmail().equals(user.getEmail())) {
+                if (idsByEmail.putIfAbsent(user.getEmail(), user.getId()) != null) {
+                    throw new DuplicateKeyException("Пользователь с email = " + user.getEmail() + " уже существует");
+                }
+                idsByEmail.remove(existing.getEmail());
+            }
+            users.put(user.getId(), copy(user.getId(), user));
+        } finally {
+            lock.unlock();
+        }
+
+        log.info("Информация о пользователе с id = {} обновлена в памяти", user.getId());
+        return true;
+    }
+
+    @Override
+    public boolean delete(int userId) {
+        locks.lockAll();
+        try {
+            User removed = users.remove(userId);
+            if (removed == null) {
+                return false;
+            }
+            idsByEmail.remove(removed.getEmail());
+            friendships.remove(userId);
+            for (Friendships userFriendships : friendships.values()) {
+                userFriendships.confirmed.remove(userId);
+                userFriendships.unconfirmed.remove(userId);
+            }
+        } finally {
+            locks.unlockAll();
+        }
+        removalListeners.forEach(listener -> listener.accept(userId));
+
+        log.info("Пользователь с id {} удален", userId);
+        return true;
+    }
+
+    @Override
+    public User getUser(int userId) {
+        return findUser(userId).orElseThrow(() -> new EmptyResultDataAccessException(1));
+    }
+
+    @Override
+    public Optional<User> findUser(int userId) {
+        User user = users.get(userId);
+        if (user == null) {
+            return Optional.empty();
+        }
+
+        User result = copy(user);
+        Lock lock = locks.get(userId).readLock();
+        lock.lock();
+        try {
+            Friendships userFriendships = friendships.get(userId);
+            if (userFriendships != null) {
+                for (int friendId : userFriendships.confirmed.toSortedArray()) {
+                    result.addFriend(friendId, Status.CONFIRMED);
+                }
+                for (int friendId : userFriendships.unconfirmed.toSortedArray()) {
+                    result.addFriend(friendId, Status.UNCONFIRMED);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        log.info("Выполнен поиск пользователя с id = {} в памяти", userId);
+        return Optional.of(result);
+    }
+
+    @Override
+    public boolean addFriend(int userId, int friendId, Status status) {
+        if (status == null) {
+            return false;
+        }
+
+        Lock lock = locks.get(userId).writeLock();
+        lock.lock();
+        try {
+            Friendships userFriendships = friendships.get(userId);
+            if (userFriendships == null || !users.containsKey(friendId)) {
+                throw new DataIntegrityViolationException("Пользователь с id = " + userId + " или " + friendId +
+                        " не найден");
+            }
+
+            if (status == Status.CONFIRMED && userFriendships.unconfirmed.remove(friendId)) {
+                userFriendships.confirmed.add(friendId);
+                log.info("Пользователь с id = {} подтвердил дружбу с пользователем с id = {}", userId, friendId);
+                return true;
+            }
+            if (userFriendships.confirmed.contains(friendId) || userFriendships.unconfirmed.contains(friendId)) {
+                return false;
+            }
+            (status == Status.CONFIRMED ? userFriendships.confirmed : userFriendships.unconfirmed).add(friendId);
+        } finally {
+            lock.unlock();
+        }
+
+        log.info("Пользователю с id = {} добавлен в друзья пользователь с id = {} со статусом дружбы: {}",
+                userId, friendId, status);
+        return true;
+    }
+
+    @Override
+    public boolean deleteFriend(int userId, int friendId) {
+        Lock lock = locks.get(userId).writeLock();
+        lock.lock();
+        try {
+            Friendships userFriendships = friendships.get(userId);
+            if (userFriendships == null || !userFriendships.confirmed.remove(friendId)) {
+                return false;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        log.info("У пользователя с id = {} был удален из друзей пользователь с id = {}", userId, friendId);
+        return true;
+    }
+
+    @Override
+    public Collection<User> getFriends(int userId) {
+        log.info("Получен из памяти список друзей пользователя с id = {}", userId);
+        return getUsers(confirmedFriendIds(userId));
+    }
+
+    @Override
+    public List<Integer> getFriendIds(int userId) {
+        int[] friendIds = confirmedFriendIds(userId);
+        List<Integer> result = new ArrayList<>(friendIds.length);
+        for (int friendId : friendIds) {
+            result.add(friendId);
+        }
+        return result;
+    }
+
+    @Override
+    public Collection<User> getCommonFriends(int userId, int otherId) {
+        int[] userFriendIds = confirmedFriendIds(userId);
+        int[] otherFriendIds = confirmedFriendIds(otherId);
+
+        int[] commonIds = new int[Math.min(userFriendIds.length, otherFriendIds.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < userFriendIds.length && j < otherFriendIds.length; ) {
+            if (userFriendIds[i] < otherFriendIds[j]) {
+                i++;
+            } else if (userFriendIds[i] > otherFriendIds[j]) {
+                j++;
+            } else {
+                commonIds[count++] = userFriendIds[i];
+                i++;
+                j++;
+            }
+        }
+
+        log.info("Получен из памяти список общих друзей пользователей с id: {} и {}", userId, otherId);
+        return getUsers(Arrays.copyOf(commonIds, count));
+    }
+
+    @Override
+    public List<User> getUsers(Collection<Integer> ids) {
+        List<User> result = new ArrayList<>(ids.size());
+        ids.stream()
+                .distinct()
+                .sorted()
+                .map(users::get)
+                .forEach(user -> {
+                    if (user != null) {
+                        result.add(copy(user));
+                    }
+                });
+
+        log.info("Получено из памяти пользователей по списку id: {}", result.size());
+        return result;
+    }
+
+    @Override
+    public void forEachFriendship(FriendshipConsumer consumer) {
+        for (Integer userId : users.keySet()) {
+            int[] confirmed;
+            int[] unconfirmed;
+            Lock lock = locks.get(userId).readLock();
+            lock.lock();
+            try {
+                Friendships userFriendships = friendships.get(userId);
+                if (userFriendships == null) {
+                    continue;
+                }
+                confirmed = userFriendships.confirmed.toSortedArray();
+                unconfirmed = userFriendships.unconfirmed.toSortedArray();
+            } finally {
+                lock.unlock();
+            }
+
+            int i = 0;
+            int j = 0;
+            while (i < confirmed.length || j < unconfirmed.length) {
+                if (j == unconfirmed.length || i < confirmed.length && confirmed[i] < unconfirmed[j]) {
+                    consumer.accept(userId, confirmed[i++], Status.CONFIRMED);
+                } else {
+                    consumer.accept(userId, unconfirmed[j++], Status.UNCONFIRMED);
+                }
+            }
+        }
+
+        log.info("Из памяти последовательно прочитаны все связи дружбы");
+    }
+
+    void addRemovalListener(IntConsumer listener) {
+        removalListeners.add(listener);
+    }
+
+    private int[] confirmedFriendIds(int userId) {
+        Lock lock = locks.get(userId).readLock();
+        lock.lock();
+        try {
+            Friendships userFriendships = friendships.get(userId);
+            return userFriendships == null ? new int[0] : userFriendships.confirmed.toSortedArray();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<User> getUsers(int[] sortedIds) {
+        List<User> result = new ArrayList<>(sortedIds.length);
+        for (int id : sortedIds) {
+            User user = users.get(id);
+            if (user != null) {
+                result.add(copy(user));
+            }
+        }
+        return result;
+    }
+
+    private static User copy(User user) {
+        return copy(user.getId(), user);
+    }
+
+    private static User copy(int userId, User user) {
+        return new User(userId, user.getEmail(), user.getLogin(), user.getName(), user.getBirthday());
+    }
+
+    private static final class Friendships {
+        private final IntHashSet confirmed = new IntHashSet();
+        private final IntHashSet unconfirmed = new IntHashSet();
+    }
+}
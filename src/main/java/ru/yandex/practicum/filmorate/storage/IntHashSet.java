@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+
+final class IntHashSet {
+    private static final int FREE = 0;
+    private static final int MIN_CAPACITY = 4;
+
+    private int[] values = new int[MIN_CAPACITY];
+    private int size;
+
+    boolean add(int value) {
+        int mask = values.length - 1;
+        int slot = mix(value) & mask;
+        while (values[slot] != FREE) {
+            if (values[slot] == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        values[slot] = value;
+        if (++size * 2 > values.length) {
+            rehash(values.length * 2);
+        }
+        return true;
+    }
+
+    boolean remove(int value) {
+        int mask = values.length - 1;
+        int slot = mix(value) & mask;
+        while (values[slot] != FREE) {
+            if (values[slot] == value) {
+                closeGap(slot);
+                size--;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    boolean contains(int value) {
+        int mask = values.length - 1;
+        int slot = mix(value) & mask;
+        while (values[slot] != FREE) {
+            if (values[slot] == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int[] toSortedArray() {
+        int[] result = new int[size];
+        int count = 0;
+        for (int value : values) {
+            if (value != FREE) {
+                result[count++] = value;
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private void closeGap(int gap) {
+        int mask = values.length - 1;
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            int value = values[slot];
+            if (value == FREE) {
+                values[gap] = FREE;
+                return;
+            }
+            int home = mix(value) & mask;
+            boolean movable = gap <= slot ? home <= gap || home > slot : home <= gap && home > slot;
+            if (movable) {
+                values[gap] = value;
+                gap = slot;
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        int[] oldValues = values;
+        values = new int[capacity];
+        int mask = capacity - 1;
+        for (int value : oldValues) {
+            if (value != FREE) {
+                int slot = mix(value) & mask;
+                while (values[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                values[slot] = value;
+            }
+        }
+    }
+
+    private static int mix(int value) {
+        int hash = value * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+final class LockStripes {
+    private final ReentrantReadWriteLock[] locks;
+
+    LockStripes(int stripes) {
+        int count = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new ReentrantReadWriteLock[count];
+        for (int i = 0; i < count; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    ReentrantReadWriteLock get(long id) {
+        return locks[(int) (id ^ (id >>> 32)) & (locks.length - 1)];
+    }
+
+    void lockAll() {
+        for (ReentrantReadWriteLock lock : locks) {
+            lock.writeLock().lock();
+        }
+    }
+
+    void unlockAll() {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Repository
+@Profile(StorageProfiles.DATABASE)
+@Slf4j
+public class RecommendationDbStorage implements RecommendationStorage {
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final int USERS_PER_TRANSACTION = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public RecommendationDbStorage(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public List<Integer> getRecommendedFilmIds(int userId, int count) {
+        String sql =
+                "SELECT r.film_id " +
+                        "FROM recommendations AS r " +
+                        "WHERE r.user_id = ? " +
+                        "  AND NOT EXISTS (SELECT 1 FROM likes AS l WHERE l.user_id = r.user_id AND l.film_id = r.film_id) " +
+                        "ORDER BY r.position " +
+                        "LIMIT ?;";
+        return jdbcTemplate.queryForList(sql, Integer.class, userId, count);
+    }
+
+    @Override
+    public long replaceAll(RecommendationSource source) {
+        Set<Integer> staleUserIds = new HashSet<>(
+                jdbcTemplate.queryForList("SELECT DISTINCT user_id FROM recommendations;", Integer.class));
+
+        long count = 0;
+        for (int fromRow = 0; fromRow < source.usersCount(); fromRow += USERS_PER_TRANSACTION) {
+            int from = fromRow;
+            int to = Math.min(fromRow + USERS_PER_TRANSACTION, source.usersCount());
+            transactionTemplate.executeWithoutResult(status -> replaceUsers(source, from, to));
+            for (int row = from; row < to; row++) {
+                staleUserIds.remove(source.userId(row));
+                count += source.filmIds(row).length;
+            }
+        }
+        deleteUsers(new ArrayList<>(staleUserIds));
+
+        log.info("В базу записано рекомендаций: {} для пользователей: {}, удалены рекомендации пользователей: {}",
+                count, source.usersCount(), staleUserIds.size());
+        return count;
+    }
+
+    private void replaceUsers(RecommendationSource source, int fromRow, int toRow) {
+        List<Integer> userIds = new ArrayList<>(toRow - fromRow);
+        for (int row = fromRow; row < toRow; row++) {
+            userIds.add(source.userId(row));
+        }
+        deleteUsers(userIds);
+
+        RowsBatch batch = new RowsBatch();
+        for (int row = fromRow; row < toRow; row++) {
+            int userId = source.userId(row);
+            int[] filmIds = source.filmIds(row);
+            float[] scores = source.scores(row);
+            for (int position = 0; position < filmIds.length; position++) {
+                batch.add(userId, position, filmIds[position], scores[position]);
+                if (batch.size == INSERT_BATCH_SIZE) {
+                    batch.flush();
+                }
+            }
+        }
+        batch.flush();
+    }
+
+    private void deleteUsers(List<Integer> userIds) {
+        jdbcTemplate.batchUpdate("DELETE FROM recommendations WHERE user_id = ?;", userIds, INSERT_BATCH_SIZE,
+                (statement, userId) -> statement.setInt(1, userId));
+    }
+
+    private final class RowsBatch implements BatchPreparedStatementSetter {
+        private final int[] userIds = new int[INSERT_BATCH_SIZE];
+        private final int[] positions = new int[INSERT_BATCH_SIZE];
+        private final int[] filmIds = new int[INSERT_BATCH_SIZE];
+        private final float[] scores = new float[INSERT_BATCH_SIZE];
+        private int size;
+
+        private void add(int userId, int position, int filmId, float score) {
+            userIds[size] = userId;
+            positions[size] = position;
+            filmIds[size] = filmId;
+            scores[size] = score;
+            size++;
+        }
+
+        private void flush() {
+            if (size > 0) {
+                jdbcTemplate.batchUpdate(
+                        "INSERT INTO recommendations (user_id, position, film_id, score) " +
+                                "SELECT ?, ?, ?, ? " +
+                                "WHERE EXISTS (SELECT 1 FROM users WHERE id = ?) " +
+                                "  AND EXISTS (SELECT 1 FROM films WHERE id = ?);", this);
+                size = 0;
+            }
+        }
+
+        @Override
+        public void setValues(PreparedStatement statement, int i) throws SQLException {
+            statement.setInt(1, userIds[i]);
+            statement.setInt(2, positions[i]);
+            statement.setInt(3, filmIds[i]);
+            statement.setFloat(4, scores[i]);
+            statement.setInt(5, userIds[i]);
+            statement.setInt(6, filmIds[i]);
+        }
+
+        @Override
+        public int getBatchSize() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.List;
+
+public interface RecommendationStorage {
+
+    List<Integer> getRecommendedFilmIds(int userId, int count);
+
+    long replaceAll(RecommendationSource source);
+
+    interface RecommendationSource {
+        int usersCount();
+
+        int userId(int row);
+
+        int[] filmIds(int row);
+
+        float[] scores(int row);
+    }
+}
@@ -1,19 +1,23 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.mapper.ReviewMapper;
 import ru.yandex.practicum.filmorate.model.Review;
 
 import java.sql.PreparedStatement;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 
 @Component
+@Profile(StorageProfiles.DATABASE)
 @RequiredArgsConstructor
 public class ReviewDbStorage implements ReviewStorage {
     private final JdbcTemplate jdbcTemplate;
@@ -21,34 +25,49 @@ public class ReviewDbStorage implements ReviewStorage {
 
 
     @Override
-    public Review create(Review review) {
-        String sql = "INSERT INTO reviews(content, isPositive, user_id, film_id, useful) VALUES (?, ?, ?, ?, ?)";
+    public Optional<Review> create(Review review) {
+        String sql = "INSERT INTO reviews(content, isPositive, user_id, film_id, useful) " +
+                "SELECT ?, ?, ?, ?, ? " +
+                "WHERE EXISTS (SELECT 1 FROM films WHERE id = ?) " +
+                "  AND EXISTS (SELECT 1 FROM users WHERE id = ?) " +
+                "  AND NOT EXISTS (SELECT 1 FROM reviews WHERE film_id = ? AND user_id = ?)";
 
         KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(connection -> {
+        int created = jdbcTemplate.update(connection -> {
             PreparedStatement stmt = connection.prepareStatement(sql, new String[]{"id"});
             stmt.setString(1, review.getContent());
             stmt.setBoolean(2, review.getIsPositive());
             stmt.setInt(3, review.getUserId());
             stmt.setInt(4, review.getFilmId());
             stmt.setInt(5, 0);
+            stmt.setInt(6, review.getFilmId());
+            stmt.setInt(7, review.getUserId());
+            stmt.setInt(8, review.getFilmId());
+            stmt.setInt(9, review.getUserId());
             return stmt;
         }, keyHolder);
 
+        if (created == 0) {
+            return Optional.empty();
+        }
+
         int reviewId = Objects.requireNonNull(keyHolder.getKey()).intValue();
 
         review.setReviewId(reviewId);
-        return review;
+        return Optional.of(review);
     }
 
     @Override
-    public Review update(Review review) {
+    public Optional<Review> update(Review review) {
         String sql = "UPDATE reviews SET content = ?, isPositive = ? WHERE id = ?";
 
-        jdbcTemplate.update(sql,
+        int updated = jdbcTemplate.update(sql,
                 review.getContent(),
                 review.getIsPositive(),
                 review.getReviewId());
+        if (updated == 0) {
+            return Optional.empty();
+        }
         return findReviewById(review.getReviewId());
     }
 
@@ -59,9 +78,9 @@ public class ReviewDbStorage implements ReviewStorage {
     }
 
     @Override
-    public Review findReviewById(Integer id) {
+    public Optional<Review> findReviewById(Integer id) {
         String sql = "SELECT * FROM reviews WHERE id = ?";
-        return jdbcTemplate.queryForObject(sql, reviewMapper, id);
+        return jdbcTemplate.query(sql, reviewMapper, id).stream().findFirst();
     }
 
     @Override
@@ -70,6 +89,16 @@ public class ReviewDbStorage implements ReviewStorage {
         return jdbcTemplate.query(sql, reviewMapper);
     }
 
+    @Override
+    public List<Review> findPage(int afterUseful, int afterId, int limit) {
+        String sql = "SELECT * FROM reviews " +
+                "WHERE useful <= ? " +
+                "  AND (useful < ? OR id > ?) " +
+                "ORDER BY useful DESC, id " +
+                "LIMIT ?";
+        return jdbcTemplate.query(sql, reviewMapper, afterUseful, afterUseful, afterId, limit);
+    }
+
     @Override
     public List<Review> findReviewsByFilmId(Integer filmId, Integer count) {
         String sql = "SELECT * FROM reviews WHERE film_id = ? ORDER BY useful DESC LIMIT ?";
@@ -77,39 +106,27 @@ public class ReviewDbStorage implements ReviewStorage {
     }
 
     @Override
-    public void addLike(Integer reviewId, Integer userId) {
-        String sql = "INSERT INTO reviews_likes (review_id, user_id) VALUES (?, ?)";
-        jdbcTemplate.update(sql, reviewId, userId);
-
-        String sqlForReview = "UPDATE reviews SET useful = useful + 1 WHERE id = ?";
-        jdbcTemplate.update(sqlForReview, reviewId);
+    @Transactional
+    public boolean addLike(Integer reviewId, Integer userId) {
+        return addReaction("reviews_likes", "reviews_dislikes", 1, reviewId, userId);
     }
 
     @Override
-    public void addDislike(Integer reviewId, Integer userId) {
-        String sql = "INSERT INTO reviews_dislikes (review_id, user_id) VALUES (?, ?)";
-        jdbcTemplate.update(sql, reviewId, userId);
-
-        String sqlForReview = "UPDATE reviews SET useful = useful - 1 WHERE id = ?";
-        jdbcTemplate.update(sqlForReview, reviewId);
+    @Transactional
+    public boolean addDislike(Integer reviewId, Integer userId) {
+        return addReaction("reviews_dislikes", "reviews_likes", -1, reviewId, userId);
     }
 
     @Override
-    public void removeLike(Integer reviewId, Integer userId) {
-        String sql = "DELETE FROM reviews_likes WHERE review_id = ? AND user_id = ?";
-        jdbcTemplate.update(sql, reviewId, userId);
-
-        String sqlForReview = "UPDATE reviews SET useful = useful - 1 WHERE id = ?";
-        jdbcTemplate.update(sqlForReview, reviewId);
+    @Transactional
+    public boolean removeLike(Integer reviewId, Integer userId) {
+        return removeReaction("reviews_likes", -1, reviewId, userId);
     }
 
     @Override
-    public void removeDislike(Integer reviewId, Integer userId) {
-        String sql = "DELETE FROM reviews_dislikes WHERE review_id = ? AND user_id = ?";
-        jdbcTemplate.update(sql, reviewId, userId);
-
-        String sqlForReview = "UPDATE reviews SET useful = useful + 1 WHERE id = ?";
-        jdbcTemplate.update(sqlForReview, reviewId);
+    @Transactional
+    public boolean removeDislike(Integer reviewId, Integer userId) {
+        return removeReaction("reviews_dislikes", 1, reviewId, userId);
     }
 
     @Override
@@ -118,24 +135,31 @@ public class ReviewDbStorage implements ReviewStorage {
         return rowSet.next();
     }
 
-    @Override
-    public boolean hasUserAlreadyLeftLikeForReview(Integer reviewId, Integer userId) {
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet(
-                "SELECT * FROM reviews_likes WHERE review_id = ? AND user_id = ?", reviewId, userId);
-        return rowSet.next();
+    private boolean addReaction(String table, String oppositeTable, int usefulDelta, Integer reviewId,
+                                Integer userId) {
+        String sql = "INSERT INTO " + table + " (review_id, user_id) " +
+                "SELECT ?, ? " +
+                "WHERE NOT EXISTS (SELECT 1 FROM " + table + " WHERE review_id = ? AND user_id = ?)";
+        if (jdbcTemplate.update(sql, reviewId, userId, reviewId, userId) == 0) {
+            return false;
+        }
+
+        String sqlForOpposite = "DELETE FROM " + oppositeTable + " WHERE review_id = ? AND user_id = ?";
+        int removedOpposite = jdbcTemplate.update(sqlForOpposite, reviewId, userId);
+
+        String sqlForReview = "UPDATE reviews SET useful = useful + ? WHERE id = ?";
+        jdbcTemplate.update(sqlForReview, usefulDelta * (1 + removedOpposite), reviewId);
+        return true;
     }
 
-    @Override
-    public boolean hasUserAlreadyLeftDislikeForReview(Integer reviewId, Integer userId) {
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet(
-                "SELECT * FROM reviews_dislikes WHERE review_id = ? AND user_id = ?", reviewId, userId);
-        return rowSet.next();
-    }
+    private boolean removeReaction(String table, int usefulDelta, Integer reviewId, Integer userId) {
+        String sql = "DELETE FROM " + table + " WHERE review_id = ? AND user_id = ?";
+        if (jdbcTemplate.update(sql, reviewId, userId) == 0) {
+            return false;
+        }
 
-    @Override
-    public boolean hasUserAlreadyLeftReviewForFilm(Integer filmId, Integer userId) {
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet(
-                "SELECT * FROM reviews WHERE film_id = ? AND user_id = ?", filmId, userId);
-        return rowSet.next();
+        String sqlForReview = "UPDATE reviews SET useful = useful + ? WHERE id = ?";
+        jdbcTemplate.update(sqlForReview, usefulDelta, reviewId);
+        return true;
     }
 }
@@ -3,33 +3,30 @@ package ru.yandex.practicum.filmorate.storage;
 import ru.yandex.practicum.filmorate.model.Review;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface ReviewStorage {
-    Review create(Review review);
+    Optional<Review> create(Review review);
 
-    Review update(Review review);
+    Optional<Review> update(Review review);
 
     int remove(Integer id);
 
-    Review findReviewById(Integer id);
+    Optional<Review> findReviewById(Integer id);
 
     List<Review> findAll();
 
+    List<Review> findPage(int afterUseful, int afterId, int limit);
+
     List<Review> findReviewsByFilmId(Integer filmId, Integer count);
 
-    void addLike(Integer id, Integer userId);
+    boolean addLike(Integer id, Integer userId);
 
-    void addDislike(Integer id, Integer userId);
+    boolean addDislike(Integer id, Integer userId);
 
-    void removeLike(Integer id, Integer userId);
+    boolean removeLike(Integer id, Integer userId);
 
-    void removeDislike(Integer id, Integer userId);
+    boolean removeDislike(Integer id, Integer userId);
 
     boolean isReviewExists(Integer id);
-
-    boolean hasUserAlreadyLeftLikeForReview(Integer reviewId, Integer userId);
-
-    boolean hasUserAlreadyLeftDislikeForReview(Integer reviewId, Integer userId);
-
-    boolean hasUserAlreadyLeftReviewForFilm(Integer filmId, Integer userId);
 }
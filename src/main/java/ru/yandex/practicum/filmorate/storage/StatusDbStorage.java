@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Repository
+@Profile(StorageProfiles.DATABASE)
+@Slf4j
+public class StatusDbStorage implements StatusStorage {
+    private final JdbcTemplate jdbcTemplate;
+
+    public StatusDbStorage(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Map<Integer, String> getAll() {
+        Map<Integer, String> statuses = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name FROM statuses;",
+                (RowCallbackHandler) rs -> statuses.put(rs.getInt("id"), rs.getString("name")));
+
+        log.info("Получен список всех статусов дружбы из базы");
+        return statuses;
+    }
+}
@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Map;
+
+public interface StatusStorage {
+    Map<Integer, String> getAll();
+}
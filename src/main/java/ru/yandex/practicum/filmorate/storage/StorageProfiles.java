@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.storage;
+
+public final class StorageProfiles {
+    public static final String MEMORY = "memory";
+    public static final String DATABASE = "!" + MEMORY;
+
+    private StorageProfiles() {
+    }
+}
@@ -1,43 +1,74 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Status;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.reference.ReferenceDataRegistry;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Repository
+@Profile(StorageProfiles.DATABASE)
 @Slf4j
 public class UserDbStorage implements UserStorage {
+    private static final int IN_CLAUSE_BATCH_SIZE = 1000;
+    private static final int STREAM_CHUNK_SIZE = 500;
+    private static final String SELECT_USERS =
+            "SELECT u.id, " +
+                    "       u.email, " +
+                    "       u.login, " +
+                    "       u.name, " +
+                    "       u.birthday " +
+                    "FROM users AS u ";
+
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
     private final RowMapper<User> userMapper;
+    private final ReferenceDataRegistry referenceData;
 
-    public UserDbStorage(JdbcTemplate jdbcTemplate, RowMapper<User> userMapper) {
+    public UserDbStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                         RowMapper<User> userMapper, ReferenceDataRegistry referenceData) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
         this.userMapper = userMapper;
+        this.referenceData = referenceData;
     }
 
     @Override
     public Collection<User> getAll() {
-        String sql =
-                "SELECT u.id, " +
-                        "       u.email, " +
-                        "       u.login, " +
-                        "       u.name, " +
-                        "       u.birthday, " +
-                        "       array_agg(f.friend_2_id || ' ' || s.name) AS friends_data " +
-                        "FROM users AS u " +
-                        "LEFT JOIN friends AS f ON f.friend_1_id = u.id " +
-                        "LEFT JOIN statuses AS s ON s.id = f.status_id " +
-                        "GROUP BY u.id;";
+        String sql = SELECT_USERS + "ORDER BY u.id;";
 
         log.info("Получен список всех пользователей из базы");
-        return jdbcTemplate.query(sql, userMapper);
+        return queryUsers(sql);
+    }
+
+    @Override
+    public List<User> getPage(int afterId, int limit) {
+        String sql =
+                SELECT_USERS +
+                        "WHERE u.id > ? " +
+                        "ORDER BY u.id " +
+                        "LIMIT ?;";
+
+        log.info("Получена страница пользователей из базы после id = {}, limit = {}", afterId, limit);
+        return queryUsers(sql, afterId, limit);
     }
 
     @Override
@@ -60,11 +91,10 @@ public class UserDbStorage implements UserStorage {
     public boolean isUserContainsFriend(int userId, int friendId) {
         SqlRowSet rowSet = jdbcTemplate.queryForRowSet(
                 "SELECT * " +
-                        "FROM friends AS f " +
-                        "LEFT JOIN statuses AS s ON f.status_id = s.id " +
-                        "WHERE f.friend_1_id = ? " +
-                        "  AND f.friend_2_id = ? " +
-                        "  AND s.name = 'Confirmed';", userId, friendId);
+                        "FROM friends " +
+                        "WHERE friend_1_id = ? " +
+                        "  AND friend_2_id = ? " +
+                        "  AND status_id = ?;", userId, friendId, referenceData.getStatusId(Status.CONFIRMED));
 
         log.info("Получена информация находится ли пользоавтель с id = {} в друзьях у пользователя с id = {}",
                 friendId, userId);
@@ -84,7 +114,7 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
-    public void update(User user) {
+    public boolean update(User user) {
         String sql =
                 "UPDATE users " +
                         "SET email = ?, " +
@@ -93,128 +123,202 @@ public class UserDbStorage implements UserStorage {
                         "    birthday = ? " +
                         "WHERE id = ?;";
 
-        jdbcTemplate.update(sql,
+        int updated = jdbcTemplate.update(sql,
                 user.getEmail(),
                 user.getLogin(),
                 user.getName(),
                 user.getBirthday(),
                 user.getId());
         log.info("Информация о пользователе с id = {} обновлена в базе", user.getId());
+        return updated > 0;
     }
 
     @Override
     public User getUser(int userId) {
-        String sql =
-                "SELECT u.id, " +
-                        "       u.email, " +
-                        "       u.login, " +
-                        "       u.name, " +
-                        "       u.birthday, " +
-                        "       array_agg(f.friend_2_id || ' ' || s.name) AS friends_data " +
-                        "FROM users AS u " +
-                        "LEFT JOIN friends AS f ON f.friend_1_id = u.id " +
-                        "LEFT JOIN statuses AS s ON s.id = f.status_id " +
-                        "WHERE u.id = ? " +
-                        "GROUP BY u.id;";
+        String sql = SELECT_USERS + "WHERE u.id = ?;";
+
+        User user = jdbcTemplate.queryForObject(sql, userMapper, userId);
+        loadFriends(List.of(user));
 
         log.info("Пользователь с id = {} получен из базы", userId);
-        return jdbcTemplate.queryForObject(sql, userMapper, userId);
+        return user;
+    }
+
+    @Override
+    public Optional<User> findUser(int userId) {
+        String sql = SELECT_USERS + "WHERE u.id = ?;";
+
+        List<User> users = queryUsers(sql, userId);
+        loadFriends(users);
+
+        log.info("Выполнен поиск пользователя с id = {} в базе", userId);
+        return users.stream().findFirst();
     }
 
     @Override
-    public void delete(int userId) {
+    @Transactional
+    public boolean delete(int userId) {
+        jdbcTemplate.update(
+                "UPDATE films " +
+                        "SET like_count = like_count - 1 " +
+                        "WHERE id IN (SELECT film_id FROM likes WHERE user_id = ?);", userId);
+
         final String sqlQuery = "DELETE FROM users WHERE id = ?";
-        jdbcTemplate.update(sqlQuery, userId);
+        int deleted = jdbcTemplate.update(sqlQuery, userId);
         log.info("Пользователь с id {} удален", userId);
+        return deleted > 0;
     }
 
     @Override
-    public void addFriend(int userId, int friendId, Status status) {
+    @Transactional
+    public boolean addFriend(int userId, int friendId, Status status) {
         if (status == null) {
-            return;
+            return false;
         }
-        String statusName = (status.equals(Status.CONFIRMED) ? "Confirmed" : "Unconfirmed");
+        int statusId = referenceData.getStatusId(status);
 
         if (status == Status.CONFIRMED) {
-            deleteFriend(userId, friendId);
-        }
+            String sql =
+                    "UPDATE friends " +
+                            "SET status_id = ? " +
+                            "WHERE friend_1_id = ? " +
+                            "  AND friend_2_id = ? " +
+                            "  AND status_id <> ?;";
 
-        if (status == Status.UNCONFIRMED && isUserContainsFriend(userId, friendId)) {
-            return;
+            if (jdbcTemplate.update(sql, statusId, userId, friendId, statusId) > 0) {
+                log.info("Пользователь с id = {} подтвердил дружбу с пользователем с id = {}", userId, friendId);
+                return true;
+            }
         }
 
         String sql =
-                "INSERT INTO friends (friend_1_id, friend_2_id, status_id)" +
-                        "VALUES (?, ?, (SELECT id FROM statuses WHERE name = ?));";
+                "INSERT INTO friends (friend_1_id, friend_2_id, status_id) " +
+                        "SELECT ?, ?, ? " +
+                        "WHERE NOT EXISTS (SELECT 1 FROM friends WHERE friend_1_id = ? AND friend_2_id = ?);";
 
-        jdbcTemplate.update(sql, userId, friendId, statusName);
+        if (jdbcTemplate.update(sql, userId, friendId, statusId, userId, friendId) == 0) {
+            return false;
+        }
         log.info("Пользователю с id = {} добавлен в друзья пользователь с id = {} со статусом дружбы: {}",
-                userId, friendId, statusName);
+                userId, friendId, status);
+        return true;
     }
 
     @Override
-    public void deleteFriend(int userId, int friendId) {
+    public boolean deleteFriend(int userId, int friendId) {
         String sql =
                 "DELETE " +
                         "FROM friends " +
                         "WHERE friend_1_id = ?" +
-                        "  AND friend_2_id = ?;";
+                        "  AND friend_2_id = ?" +
+                        "  AND status_id = ?;";
 
-        jdbcTemplate.update(sql, userId, friendId);
+        if (jdbcTemplate.update(sql, userId, friendId, referenceData.getStatusId(Status.CONFIRMED)) == 0) {
+            return false;
+        }
         log.info("У пользователя с id = {} был удален из друзей пользователь с id = {}", userId, friendId);
+        return true;
     }
 
     @Override
     public Collection<User> getFriends(int userId) {
         String sql =
-                "SELECT u.id, " +
-                        "       u.name, " +
-                        "       u.login, " +
-                        "       u.email, " +
-                        "       u.birthday, " +
-                        "       array_agg(f.friend_2_id || ' ' || s.name) AS friends_data " +
-                        "FROM users AS u " +
-                        "LEFT JOIN friends AS f ON f.friend_1_id = u.id " +
-                        "LEFT JOIN statuses AS s ON s.id = f.status_id " +
+                SELECT_USERS +
                         "WHERE u.id in " +
-                        "    (SELECT f.friend_2_id " +
-                        "     FROM friends AS f " +
-                        "     LEFT JOIN statuses AS s ON s.id = f.status_id " +
-                        "     WHERE f.friend_1_id = ? " +
-                        "       AND s.name = 'Confirmed') " +
-                        "GROUP BY u.id;";
+                        "    (SELECT friend_2_id " +
+                        "     FROM friends " +
+                        "     WHERE friend_1_id = ? " +
+                        "       AND status_id = ?) " +
+                        "ORDER BY u.id;";
 
         log.info("Получен из базы список друзей пользователя с id = {}", userId);
-        return jdbcTemplate.query(sql, userMapper, userId);
+        return queryUsers(sql, userId, referenceData.getStatusId(Status.CONFIRMED));
+    }
+
+    @Override
+    public List<Integer> getFriendIds(int userId) {
+        String sql =
+                "SELECT friend_2_id " +
+                        "FROM friends " +
+                        "WHERE friend_1_id = ? " +
+                        "  AND status_id = ? " +
+                        "ORDER BY friend_2_id;";
+
+        return jdbcTemplate.queryForList(sql, Integer.class, userId, referenceData.getStatusId(Status.CONFIRMED));
     }
 
     @Override
     public Collection<User> getCommonFriends(int userId, int otherId) {
         String sql =
-                "SELECT u.id, " +
-                        "       u.name, " +
-                        "       u.login, " +
-                        "       u.email, " +
-                        "       u.birthday, " +
-                        "       array_agg(f.friend_2_id || ' ' || s.name) AS friends_data " +
-                        "FROM users AS u " +
-                        "LEFT JOIN friends AS f ON f.friend_1_id = u.id " +
-                        "LEFT JOIN statuses AS s ON s.id = f.status_id " +
+                SELECT_USERS +
                         "WHERE u.id in " +
                         "    (SELECT f_1.friend_2_id " +
                         "     FROM friends AS f_1 " +
-                        "     LEFT JOIN statuses AS s ON s.id = f_1.status_id " +
-                        "     INNER JOIN " +
-                        "       (SELECT friend_2_id " +
-                        "        FROM friends AS f " +
-                        "        LEFT JOIN statuses AS s ON s.id = f.status_id " +
-                        "        WHERE friend_1_id = ? " +
-                        "          AND s.name = 'Confirmed' ) AS f_2 ON f_2.friend_2_id = f_1.friend_2_id " +
+                        "     INNER JOIN friends AS f_2 ON f_2.friend_2_id = f_1.friend_2_id " +
                         "     WHERE f_1.friend_1_id = ? " +
-                        "       AND s.name = 'Confirmed') " +
-                        "GROUP BY u.id;";
+                        "       AND f_1.status_id = ? " +
+                        "       AND f_2.friend_1_id = ? " +
+                        "       AND f_2.status_id = ?) " +
+                        "ORDER BY u.id;";
 
+        int confirmedId = referenceData.getStatusId(Status.CONFIRMED);
         log.info("Получен из базы список общих друзей пользователей с id: {} и {}", userId, otherId);
-        return jdbcTemplate.query(sql, userMapper, userId, otherId);
+        return queryUsers(sql, otherId, confirmedId, userId, confirmedId);
+    }
+
+    @Override
+    public List<User> getUsers(Collection<Integer> ids) {
+        List<Integer> idList = new ArrayList<>(ids);
+        List<User> users = new ArrayList<>(idList.size());
+        for (int i = 0; i < idList.size(); i += IN_CLAUSE_BATCH_SIZE) {
+            users.addAll(namedJdbcTemplate.query(SELECT_USERS + "WHERE u.id IN (:ids);",
+                    Map.of("ids", idList.subList(i, Math.min(i + IN_CLAUSE_BATCH_SIZE, idList.size()))),
+                    userMapper));
+        }
+        users.sort(Comparator.comparingInt(User::getId));
+
+        log.info("Получено из базы пользователей по списку id: {}", users.size());
+        return users;
+    }
+
+    @Override
+    public void forEachFriendship(FriendshipConsumer consumer) {
+        String sql = "SELECT friend_1_id, friend_2_id, status_id FROM friends ORDER BY friend_1_id, friend_2_id;";
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(STREAM_CHUNK_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getInt(1), rs.getInt(2),
+                referenceData.getStatus(rs.getInt(3))));
+
+        log.info("Из базы последовательно прочитаны все связи дружбы");
+    }
+
+    private List<User> queryUsers(String sql, Object... args) {
+        return jdbcTemplate.query(sql, userMapper, args);
+    }
+
+    private void loadFriends(List<User> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, User> usersById = new HashMap<>();
+        for (User user : users) {
+            usersById.put(user.getId(), user);
+        }
+
+        List<Integer> ids = new ArrayList<>(usersById.keySet());
+        for (int i = 0; i < ids.size(); i += IN_CLAUSE_BATCH_SIZE) {
+            namedJdbcTemplate.query(
+                    "SELECT friend_1_id, friend_2_id, status_id " +
+                            "FROM friends " +
+                            "WHERE friend_1_id IN (:ids);",
+                    Map.of("ids", ids.subList(i, Math.min(i + IN_CLAUSE_BATCH_SIZE, ids.size()))),
+                    (RowCallbackHandler) rs -> usersById.get(rs.getInt("friend_1_id"))
+                            .addFriend(rs.getInt("friend_2_id"), referenceData.getStatus(rs.getInt("status_id"))));
+        }
     }
 }
@@ -4,10 +4,14 @@ import ru.yandex.practicum.filmorate.model.Status;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 public interface UserStorage {
     Collection<User> getAll();
 
+    List<User> getPage(int afterId, int limit);
+
     boolean isUserExistsByEmail(String email);
 
     boolean isUserExistsById(int id);
@@ -16,17 +20,29 @@ public interface UserStorage {
 
     int add(User user);
 
-    void update(User user);
+    boolean update(User user);
 
-    void delete(int userId);
+    boolean delete(int userId);
 
     User getUser(int userId);
 
-    void addFriend(int userId, int friendId, Status status);
+    Optional<User> findUser(int userId);
+
+    boolean addFriend(int userId, int friendId, Status status);
 
-    void deleteFriend(int userId, int friendId);
+    boolean deleteFriend(int userId, int friendId);
 
     Collection<User> getFriends(int userId);
 
+    List<Integer> getFriendIds(int userId);
+
     Collection<User> getCommonFriends(int userId, int otherId);
+
+    List<User> getUsers(Collection<Integer> ids);
+
+    void forEachFriendship(FriendshipConsumer consumer);
+
+    interface FriendshipConsumer {
+        void accept(int userId, int friendId, Status status);
+    }
 }
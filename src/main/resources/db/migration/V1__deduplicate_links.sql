@@ -0,0 +1,15 @@
+delete FROM likes AS l
+WHERE EXISTS (SELECT 1 FROM likes AS d WHERE d.film_id = l.film_id AND d.user_id = l.user_id AND d.id < l.id);
+
+delete FROM film_genre AS f_g
+WHERE EXISTS (SELECT 1 FROM film_genre AS d WHERE d.film_id = f_g.film_id AND d.genre_id = f_g.genre_id AND d.id < f_g.id);
+
+delete FROM friends AS f
+WHERE EXISTS (SELECT 1 FROM friends AS d WHERE d.friend_1_id = f.friend_1_id AND d.friend_2_id = f.friend_2_id
+              AND d.id < f.id);
+
+create UNIQUE INDEX IF NOT EXISTS uq_likes_film_user ON likes (film_id, user_id);
+
+create UNIQUE INDEX IF NOT EXISTS uq_film_genre_film_genre ON film_genre (film_id, genre_id);
+
+create UNIQUE INDEX IF NOT EXISTS uq_friends_friend_1_friend_2 ON friends (friend_1_id, friend_2_id);
@@ -4,11 +4,16 @@ create TABLE IF NOT EXISTS films(
   description varchar(200),
   release_date date,
   duration int NOT NULL,
-  rating_id int NOT NULL
+  rating_id int NOT NULL,
+  like_count int NOT NULL DEFAULT 0
   CONSTRAINT positive_duration CHECK (duration > 0),
   CONSTRAINT fields_uniqueness UNIQUE (name, description, release_date, duration)
 );
 
+alter table films add COLUMN IF NOT EXISTS like_count int NOT NULL DEFAULT 0;
+
+create INDEX IF NOT EXISTS idx_films_like_count_name ON films (like_count DESC, name);
+
 create TABLE IF NOT EXISTS genres (
   id INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
   name varchar UNIQUE NOT NULL
@@ -142,4 +147,46 @@ event_type VARCHAR NOT NULL,
 operation VARCHAR NOT NULL
 );
 
+create TABLE IF NOT EXISTS events_archive (
+    id INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id INT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    first_event_id INT NOT NULL,
+    last_event_id INT NOT NULL,
+    first_timestamp LONG NOT NULL,
+    last_timestamp LONG NOT NULL,
+    events_count INT NOT NULL,
+    payload BLOB NOT NULL
+);
+
+create TABLE IF NOT EXISTS recommendations (
+    user_id INT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    position INT NOT NULL,
+    film_id INT NOT NULL REFERENCES films(id) ON DELETE CASCADE,
+    score REAL NOT NULL,
+    PRIMARY KEY (user_id, position)
+);
+
+create TABLE IF NOT EXISTS schema_migrations (
+    version INT PRIMARY KEY,
+    applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+create INDEX IF NOT EXISTS idx_likes_user ON likes (user_id, film_id);
+
+create INDEX IF NOT EXISTS idx_film_genre_genre ON film_genre (genre_id, film_id);
+
+create INDEX IF NOT EXISTS idx_film_director_film ON film_director (film_id, director_id);
+
+create INDEX IF NOT EXISTS idx_friends_friend_2 ON friends (friend_2_id, friend_1_id);
+
+create INDEX IF NOT EXISTS idx_events_user_event ON events (user_id, event_id);
+
+create INDEX IF NOT EXISTS idx_events_timestamp ON events (timestamp);
+
+create INDEX IF NOT EXISTS idx_events_user_timestamp ON events (user_id, timestamp, event_id);
+
+create INDEX IF NOT EXISTS idx_events_archive_user_event ON events_archive (user_id, last_event_id);
+
+create INDEX IF NOT EXISTS idx_reviews_film_useful ON reviews (film_id, useful DESC);
 
+create INDEX IF NOT EXISTS idx_reviews_useful_id ON reviews (useful DESC, id);
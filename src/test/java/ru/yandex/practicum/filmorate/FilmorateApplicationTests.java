@@ -9,16 +9,54 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.cache.CacheStats;
+import ru.yandex.practicum.filmorate.config.SchemaMigrator;
+import ru.yandex.practicum.filmorate.controller.ErrorHandler;
+import ru.yandex.practicum.filmorate.event.EventWriter;
+import ru.yandex.practicum.filmorate.event.OverflowPolicy;
+import ru.yandex.practicum.filmorate.exception.AlreadyExistException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.index.FilmSuggestionIndex;
+import ru.yandex.practicum.filmorate.index.FriendsFeedIndex;
+import ru.yandex.practicum.filmorate.index.FriendshipGraph;
 import ru.yandex.practicum.filmorate.model.*;
+import ru.yandex.practicum.filmorate.reference.ReferenceDataRegistry;
+import ru.yandex.practicum.filmorate.service.DirectorService;
+import ru.yandex.practicum.filmorate.service.EventService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.DirectorDbStorage;
+import ru.yandex.practicum.filmorate.storage.EventDbStorage;
+import ru.yandex.practicum.filmorate.storage.EventStorage;
 import ru.yandex.practicum.filmorate.storage.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryDirectorStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryGenreStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryMpaStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryReviewStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryStatusStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
 import ru.yandex.practicum.filmorate.storage.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.ReviewDbStorage;
 import ru.yandex.practicum.filmorate.storage.UserDbStorage;
 
+import javax.validation.ValidationException;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.AssertionsForClassTypes.*;
@@ -31,6 +69,24 @@ class FilmorateApplicationTests {
     private final FilmDbStorage filmStorage;
     private final GenreDbStorage genreStorage;
     private final MpaDbStorage mpaStorage;
+    private final DirectorDbStorage directorStorage;
+    private final JdbcTemplate jdbcTemplate;
+    private final CachingFilmStorage cachingFilmStorage;
+    private final DirectorService directorService;
+    private final ReviewDbStorage reviewStorage;
+    private final ReferenceDataRegistry referenceData;
+    private final FilmSimilarityIndex similarityIndex;
+    private final RecommendationService recommendationService;
+    private final FilmSearchIndex searchIndex;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmSuggestionIndex suggestionIndex;
+    private final EventService eventService;
+    private final EventDbStorage eventStorage;
+    private final EventWriter eventWriter;
+    private final UserService userService;
+    private final FilmService filmService;
+    private final FriendshipGraph friendshipGraph;
+    private final SchemaMigrator schemaMigrator;
 
     private int createUserInDb(String email, String login, String name, LocalDate birthday) {
         User correctAddUserRequest = new User(
@@ -410,6 +466,42 @@ class FilmorateApplicationTests {
 
     }
 
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void testGettingUsersWithFriendshipStatuses() {
+        assertThatCode(() -> {
+            int user1Id = createUserInDb("email1@mail.ru", "login1", "name1", LocalDate.now());
+            int user2Id = createUserInDb("email2@mail.ru", "login2", "name2", LocalDate.now());
+            int user3Id = createUserInDb("email3@mail.ru", "login3", "name3", LocalDate.now());
+
+            userStorage.addFriend(user1Id, user2Id, Status.CONFIRMED);
+            userStorage.addFriend(user1Id, user3Id, Status.UNCONFIRMED);
+            userStorage.addFriend(user2Id, user1Id, Status.CONFIRMED);
+
+            assertThat(userStorage.getUser(user1Id).getFriends())
+                    .as("Проверка получения друзей пользователя со статусами дружбы")
+                    .isEqualTo(Map.of(user2Id, Status.CONFIRMED, user3Id, Status.UNCONFIRMED));
+
+            Map<Integer, Map<Integer, Status>> friendsByUserId = new HashMap<>();
+            for (User user : userStorage.getAll()) {
+                friendsByUserId.put(user.getId(), user.getFriends());
+            }
+
+            assertThat(friendsByUserId)
+                    .as("Проверка отсутствия друзей в списке всех пользователей")
+                    .isEqualTo(Map.of(
+                            user1Id, Map.of(),
+                            user2Id, Map.of(),
+                            user3Id, Map.of()));
+
+            assertThat(userStorage.getUsers(List.of(user3Id, user1Id)))
+                    .as("Проверка пакетного получения пользователей по списку id")
+                    .asList()
+                    .containsExactly(new User(user1Id, "email1@mail.ru", "login1", "name1", LocalDate.now()),
+                            new User(user3Id, "email3@mail.ru", "login3", "name3", LocalDate.now()));
+        }).doesNotThrowAnyException();
+    }
+
     @Test
     @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
     void testNotExistingFriendAdding() {
@@ -601,6 +693,14 @@ class FilmorateApplicationTests {
         return filmStorage.add(addFilmRequest);
     }
 
+    private List<Integer> getIds(Collection<Film> films) {
+        List<Integer> ids = new ArrayList<>();
+        for (Film film : films) {
+            ids.add(film.getId());
+        }
+        return ids;
+    }
+
     @Test
     void testGettingAllFilmsOfEmptyDb() {
         assertThatCode(() -> {
@@ -931,6 +1031,70 @@ class FilmorateApplicationTests {
                 .withMessageContaining("Referential integrity constraint violation");
     }
 
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void testDuplicateKeyHandling() {
+        Mpa mpa = new Mpa(1, "G");
+
+        assertThatCode(() -> {
+            int filmId = filmService.createFilm(
+                    new Film("name", "description", LocalDate.of(2000, 1, 1), 120, mpa)).getId();
+            int userId = createUserInDb("email@mail.ru", "login", "name", LocalDate.now());
+
+            assertThatExceptionOfType(AlreadyExistException.class)
+                    .as("Проверка ошибки при повторном создании фильма")
+                    .isThrownBy(() -> filmService.createFilm(
+                            new Film("name", "description", LocalDate.of(2000, 1, 1), 120, mpa)))
+                    .withMessage(Constants.FILM_ALREADY_EXISTS_MESSAGE);
+
+            FilmDbStorage dbStorage = filmStorage;
+            FilmStorage racingStorage = new CachingFilmStorage(dbStorage, 100, Duration.ofMinutes(1)) {
+                @Override
+                public boolean addLike(int likedFilmId, int likingUserId) {
+                    dbStorage.addLike(likedFilmId, likingUserId);
+                    throw new DuplicateKeyException("uq_likes_film_user");
+                }
+            };
+            FilmService racingService = new FilmService(racingStorage, userStorage, referenceData, directorStorage,
+                    eventService, popularityIndex, similarityIndex, searchIndex, suggestionIndex);
+            racingService.addLike(filmId, userId);
+
+            assertThat(popularityIndex.getLikes(filmId))
+                    .as("Проверка обработки одновременного лайка как повторного")
+                    .isEqualTo(0);
+
+            assertThat(new ErrorHandler().handleValidationException(new DuplicateKeyException("uq_friends"))
+                    .getErrorMessage())
+                    .as("Проверка общего сообщения о нарушении уникальности вне создания фильма")
+                    .isEqualTo(Constants.DUPLICATE_ENTRY_MESSAGE);
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void testSchemaMigration() {
+        Mpa mpa = new Mpa(1, "G");
+
+        assertThatCode(() -> {
+            schemaMigrator.migrate();
+
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM schema_migrations WHERE version = 1",
+                    Integer.class))
+                    .as("Проверка однократного применения миграции схемы")
+                    .isEqualTo(1);
+
+            int filmId = filmService.createFilm(
+                    new Film("name", "description", LocalDate.of(2000, 1, 1), 120, mpa)).getId();
+            int userId = createUserInDb("email@mail.ru", "login", "name", LocalDate.now());
+            jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", filmId, userId);
+
+            assertThatExceptionOfType(DuplicateKeyException.class)
+                    .as("Проверка уникального индекса лайков после миграции")
+                    .isThrownBy(() -> jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (?, ?)",
+                            filmId, userId));
+        }).doesNotThrowAnyException();
+    }
+
     @Test
     @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
     void testExistingLikeDeletion() {
@@ -982,6 +1146,354 @@ class FilmorateApplicationTests {
         }).doesNotThrowAnyException();
     }
 
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void testGettingFilmLikesPage() {
+        Mpa mpa = new Mpa(1, "G");
+        Set<Genre> genres = new LinkedHashSet<>(List.of(new Genre(1, "Комедия")));
+
+        assertThatCode(() -> {
+            int filmId = createFilmInDb("name", "description", LocalDate.now(), 120, mpa, genres);
+            int user1Id = createUserInDb("email1@mail.ru", "login1", "name1", LocalDate.now());
+            int user2Id = createUserInDb("email2@mail.ru", "login2", "name2", LocalDate.now());
+            int user3Id = createUserInDb("email3@mail.ru", "login3", "name3", LocalDate.now());
+
+            filmStorage.addLike(filmId, user1Id);
+            filmStorage.addLike(filmId, user2Id);
+            filmStorage.addLike(filmId, user3Id);
+
+            assertThat(filmStorage.getFilm(filmId).getLikesCount())
+                    .as("Проверка получения количества лайков фильма")
+                    .isEqualTo(3);
+
+            assertThat(filmStorage.getLikes(filmId, 0, 2))
+                    .as("Проверка получения первой страницы лайков фильма")
+                    .asList()
+                    .containsExactly(user1Id, user2Id);
+
+            assertThat(filmStorage.getLikes(filmId, 2, 2))
+                    .as("Проверка получения второй страницы лайков фильма")
+                    .asList()
+                    .containsExactly(user3Id);
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void testLikeCountReconciliation() {
+        Mpa mpa = new Mpa(1, "G");
+        Set<Genre> genres = new LinkedHashSet<>(List.of(new Genre(1, "Комедия")));
+
+        assertThatCode(() -> {
+            int filmId = createFilmInDb("name", "description", LocalDate.now(), 120, mpa, genres);
+            int user1Id = createUserInDb("email1@mail.ru", "login1", "name1", LocalDate.now());
+            int user2Id = createUserInDb("email2@mail.ru", "login2", "name2", LocalDate.now());
+
+            filmStorage.addLike(filmId, user1Id);
+            filmStorage.addLike(filmId, user2Id);
+            userStorage.delete(user2Id);
+
+            assertThat(filmStorage.getFilm(filmId).getLikesCount())
+                    .as("Проверка уменьшения счетчика лайков при удалении пользователя")
+                    .isEqualTo(1);
+
+            assertThat(filmStorage.reconcileLikeCounts())
+                    .as("Проверка отсутствия расхождений счетчика лайков")
+                    .isEqualTo(0);
+
+            jdbcTemplate.update("UPDATE films SET like_count = 10 WHERE id = ?", filmId);
+
+            assertThat(filmStorage.reconcileLikeCounts())
+                    .as("Проверка обнаружения расхождения счетчика лайков")
+                    .isEqualTo(1);
+            assertThat(filmStorage.getFilm(filmId).getLikesCount())
+                    .as("Проверка пересчета счетчика лайков")
+                    .isEqualTo(1);
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void testFilmCacheInvalidation() {
+        Mpa mpa = new Mpa(1, "G");
+
+        assertThatCode(() -> {
+            Director director = directorStorage.addDirector(new Director(0, "Director Name"));
+            Film film = new Film("name", "description", LocalDate.of(2000, 1, 1), 120, mpa);
+            film.addDirector(director);
+            int filmId = cachingFilmStorage.add(film);
+            int userId = createUserInDb("email@mail.ru", "login", "name", LocalDate.now());
+
+            Film cachedFilm = cachingFilmStorage.getFilm(filmId);
+            long hits = cachingFilmStorage.getStats().getHits();
+
+            assertThat(cachingFilmStorage.getFilm(filmId))
+                    .as("Проверка получения фильма из кэша")
+                    .isEqualTo(cachedFilm);
+            assertThat(cachingFilmStorage.getStats().getHits())
+                    .as("Проверка подсчета попаданий в кэш")
+                    .isEqualTo(hits + 1);
+
+            CacheStats statsBeforeCheck = cachingFilmStorage.getStats();
+            assertThat(cachingFilmStorage.isFilmExists(filmId) && !cachingFilmStorage.isFilmExists(filmId + 1000))
+                    .as("Проверка существования фильма через кэш")
+                    .isTrue();
+            assertThat(cachingFilmStorage.getStats())
+                    .as("Проверка неизменности статистики кэша при проверке существования фильма")
+                    .extracting(CacheStats::getHits, CacheStats::getMisses)
+                    .containsExactly(statsBeforeCheck.getHits(), statsBeforeCheck.getMisses());
+
+            cachingFilmStorage.addLike(filmId, userId);
+
+            assertThat(cachingFilmStorage.getFilm(filmId).getLikesCount())
+                    .as("Проверка сброса кэша при добавлении лайка")
+                    .isEqualTo(1);
+
+            directorService.updateDirector(new Director(director.getId(), "New Name"));
+
+            assertThat(cachingFilmStorage.getFilm(filmId).getDirectors())
+                    .as("Проверка сброса кэша при изменении режиссера")
+                    .isEqualTo(Set.of(new Director(director.getId(), "New Name")));
+
+            film.setId(filmId);
+            film.setName("new name");
+            cachingFilmStorage.update(film);
+
+            assertThat(cachingFilmStorage.getFilmsByIds(List.of(filmId)).get(0).getName())
+                    .as("Проверка сброса кэша при обновлении фильма")
+                    .isEqualTo("new name");
+
+            cachingFilmStorage.delete(filmId);
+
+            assertThat(cachingFilmStorage.isFilmExists(filmId))
+                    .as("Проверка сброса кэша при удалении фильма")
+                    .isFalse();
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void testCachedFilmMutationIsolation() {
+        Mpa mpa = new Mpa(1, "G");
+
+        assertThatCode(() -> {
+            Director director = directorStorage.addDirector(new Director(0, "Director Name"));
+            Film film = new Film("name", "description", LocalDate.of(2000, 1, 1), 120, mpa);
+            film.addGenre(new Genre(1, "Комедия"));
+            film.addDirector(director);
+            int filmId = cachingFilmStorage.add(film);
+            Film expectedFilm = cachingFilmStorage.getFilm(filmId);
+
+            Film returnedFilm = cachingFilmStorage.getFilm(filmId);
+            returnedFilm.setName("changed name");
+            returnedFilm.setLikesCount(100);
+            returnedFilm.getMpa().setName("changed mpa");
+            returnedFilm.getGenres().clear();
+            returnedFilm.getDirectors().iterator().next().setName("Changed Name");
+
+            assertThat(cachingFilmStorage.getFilm(filmId))
+                    .as("Проверка неизменности фильма в кэше после изменения полученного экземпляра")
+                    .isEqualTo(expectedFilm);
+
+            cachingFilmStorage.getFilmsByIds(List.of(filmId)).get(0).setName("changed name");
+            cachingFilmStorage.findFilm(filmId).orElseThrow().addGenre(new Genre(2, "Драма"));
+
+            assertThat(cachingFilmStorage.getFilmsByIds(List.of(filmId)).get(0))
+                    .as("Проверка неизменности фильма в кэше после изменения фильмов из пакетного и поискового чтения")
+                    .isEqualTo(expectedFilm);
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void testSingleQueryStorageOperations() {
+        Mpa mpa = new Mpa(1, "G");
+        Set<Genre> genres = new LinkedHashSet<>(List.of(new Genre(1, "Комедия")));
+
+        assertThatCode(() -> {
+            int filmId = createFilmInDb("name", "description", LocalDate.now(), 120, mpa, genres);
+            int user1Id = createUserInDb("email1@mail.ru", "login1", "name1", LocalDate.now());
+            int user2Id = createUserInDb("email2@mail.ru", "login2", "name2", LocalDate.now());
+
+            assertThat(filmStorage.findFilm(filmId).isPresent())
+                    .as("Проверка поиска существующего фильма")
+                    .isTrue();
+            assertThat(filmStorage.findFilm(filmId + 1).isEmpty())
+                    .as("Проверка поиска несуществующего фильма")
+                    .isTrue();
+            assertThat(userStorage.findUser(user1Id).isPresent())
+                    .as("Проверка поиска существующего пользователя")
+                    .isTrue();
+            assertThat(userStorage.findUser(user2Id + 1).isEmpty())
+                    .as("Проверка поиска несуществующего пользователя")
+                    .isTrue();
+
+            assertThat(filmStorage.addLike(filmId, user1Id))
+                    .as("Проверка результата добавления лайка")
+                    .isTrue();
+            assertThat(filmStorage.addLike(filmId, user1Id))
+                    .as("Проверка результата повторного добавления лайка")
+                    .isFalse();
+            assertThat(filmStorage.deleteLike(filmId, user2Id))
+                    .as("Проверка результата удаления несуществующего лайка")
+                    .isFalse();
+
+            assertThat(userStorage.addFriend(user2Id, user1Id, Status.UNCONFIRMED))
+                    .as("Проверка результата добавления неподтвержденной дружбы")
+                    .isTrue();
+            assertThat(userStorage.deleteFriend(user2Id, user1Id))
+                    .as("Проверка результата удаления неподтвержденной дружбы")
+                    .isFalse();
+            assertThat(userStorage.addFriend(user2Id, user1Id, Status.CONFIRMED))
+                    .as("Проверка результата подтверждения дружбы")
+                    .isTrue();
+            assertThat(userStorage.addFriend(user2Id, user1Id, Status.CONFIRMED))
+                    .as("Проверка результата повторного добавления в друзья")
+                    .isFalse();
+            assertThat(userStorage.deleteFriend(user2Id, user1Id))
+                    .as("Проверка результата удаления из друзей")
+                    .isTrue();
+
+            assertThat(userStorage.delete(user2Id + 1))
+                    .as("Проверка результата удаления несуществующего пользователя")
+                    .isFalse();
+            assertThat(filmStorage.delete(filmId))
+                    .as("Проверка результата удаления фильма")
+                    .isTrue();
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void testAddingFilmsInBatch() {
+        assertThatCode(() -> {
+            Director director = directorStorage.addDirector(new Director(0, "director"));
+            Film film1 = new Film("name1", "description1", LocalDate.of(2000, 1, 1), 120, new Mpa(1, null));
+            film1.addGenre(new Genre(1, null));
+            film1.addGenre(new Genre(1, "Комедия"));
+            film1.addGenre(new Genre(2, null));
+            film1.addDirector(director);
+            Film film2 = new Film("name2", "description2", LocalDate.of(2001, 1, 1), 90, new Mpa(2, null));
+
+            List<Integer> filmIds = filmStorage.addAll(List.of(film1, film2));
+
+            assertThat(filmIds)
+                    .as("Проверка получения id добавленных фильмов в порядке добавления")
+                    .isEqualTo(List.of(film1.getId(), film2.getId()));
+
+            Film expectedFilm1 = new Film(film1.getId(), "name1", "description1", LocalDate.of(2000, 1, 1), 120,
+                    new Mpa(1, "G"));
+            expectedFilm1.addGenre(new Genre(1, "Комедия"));
+            expectedFilm1.addGenre(new Genre(2, "Драма"));
+            expectedFilm1.addDirector(director);
+            assertThat(filmStorage.getFilm(film1.getId()))
+                    .as("Проверка добавления фильма с жанрами и режиссером")
+                    .isEqualTo(expectedFilm1);
+            assertThat(filmStorage.getFilm(film2.getId()))
+                    .as("Проверка добавления фильма без жанров")
+                    .isEqualTo(new Film(film2.getId(), "name2", "description2", LocalDate.of(2001, 1, 1), 90,
+                            new Mpa(2, "PG")));
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void testIndexingFilmsAddedInBatch() {
+        assertThatCode(() -> {
+            Film film = new Film("name", "description", LocalDate.of(2000, 1, 1), 120, new Mpa(1, null));
+            film.setLikesCount(100000);
+
+            int filmId = filmService.createFilms(List.of(film)).get(0);
+            try {
+                assertThat(popularityIndex.getLikes(filmId))
+                        .as("Проверка игнорирования числа лайков из тела запроса при пакетном добавлении")
+                        .isEqualTo(0);
+            } finally {
+                popularityIndex.remove(filmId);
+                searchIndex.remove(filmId);
+                suggestionIndex.remove(filmId);
+            }
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void testStreamingAllFilms() {
+        Mpa mpa = new Mpa(1, "G");
+        Set<Genre> genres = new LinkedHashSet<>(List.of(new Genre(1, "Комедия"), new Genre(2, "Драма")));
+
+        assertThatCode(() -> {
+            List<Integer> filmIds = new ArrayList<>();
+            for (int i = 0; i < 1200; i++) {
+                filmIds.add(createFilmInDb("name" + i, "description", LocalDate.now(), 120, mpa,
+                        i % 2 == 0 ? genres : Set.of()));
+            }
+
+            List<Film> streamedFilms = new ArrayList<>();
+            filmStorage.forEachFilm(streamedFilms::add);
+
+            assertThat(getIds(streamedFilms))
+                    .as("Проверка последовательного получения всех фильмов по порядку id")
+                    .isEqualTo(filmIds);
+            assertThat(streamedFilms.get(1100))
+                    .as("Проверка загрузки жанров фильма из последней порции")
+                    .isEqualTo(filmStorage.getFilm(filmIds.get(1100)));
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void testGettingPagesByKeyset() {
+        Mpa mpa = new Mpa(1, "G");
+
+        assertThatCode(() -> {
+            int film1Id = createFilmInDb("name1", "description", LocalDate.now(), 120, mpa, Set.of());
+            int film2Id = createFilmInDb("name2", "description", LocalDate.now(), 120, mpa, Set.of());
+            int film3Id = createFilmInDb("name3", "description", LocalDate.now(), 120, mpa, Set.of());
+            int user1Id = createUserInDb("email1@mail.ru", "login1", "name1", LocalDate.now());
+            int user2Id = createUserInDb("email2@mail.ru", "login2", "name2", LocalDate.now());
+            int user3Id = createUserInDb("email3@mail.ru", "login3", "name3", LocalDate.now());
+
+            assertThat(getIds(filmStorage.getPage(0, 2)))
+                    .as("Проверка получения первой страницы фильмов")
+                    .isEqualTo(List.of(film1Id, film2Id));
+            assertThat(getIds(filmStorage.getPage(film2Id, 2)))
+                    .as("Проверка получения последней страницы фильмов")
+                    .isEqualTo(List.of(film3Id));
+
+            List<Integer> userIds = new ArrayList<>();
+            for (User user : userStorage.getPage(user1Id, 2)) {
+                userIds.add(user.getId());
+            }
+            assertThat(userIds)
+                    .as("Проверка получения страницы пользователей после курсора")
+                    .isEqualTo(List.of(user2Id, user3Id));
+
+            int review1Id = reviewStorage.create(new Review(0, "content1", true, user1Id, film1Id, 0))
+                    .orElseThrow().getReviewId();
+            int review2Id = reviewStorage.create(new Review(0, "content2", true, user2Id, film1Id, 0))
+                    .orElseThrow().getReviewId();
+            int review3Id = reviewStorage.create(new Review(0, "content3", true, user3Id, film1Id, 0))
+                    .orElseThrow().getReviewId();
+            reviewStorage.addLike(review3Id, user1Id);
+
+            List<Review> firstPage = reviewStorage.findPage(Integer.MAX_VALUE, 0, 2);
+            Review lastReview = firstPage.get(firstPage.size() - 1);
+            List<Review> secondPage = reviewStorage.findPage(lastReview.getUseful(), lastReview.getReviewId(), 2);
+
+            List<Integer> reviewIds = new ArrayList<>();
+            for (Review review : firstPage) {
+                reviewIds.add(review.getReviewId());
+            }
+            for (Review review : secondPage) {
+                reviewIds.add(review.getReviewId());
+            }
+            assertThat(reviewIds)
+                    .as("Проверка постраничного получения отзывов по полезности")
+                    .isEqualTo(List.of(review3Id, review1Id, review2Id));
+        }).doesNotThrowAnyException();
+    }
+
     @Test
     void testGettingBestFilmsOfEmptyDb() {
         assertThatCode(() -> {
@@ -1033,7 +1545,7 @@ class FilmorateApplicationTests {
 
             Film expectedFilm2 = new Film(film2IdAdded, name2, description2, releaseDate2, duration2, mpa2);
             expectedFilm2.setGenres(genres2);
-            expectedFilm2.addLike(userId);
+            expectedFilm2.setLikesCount(1);
 
             assertThat(allFilmsFromDb)
                     .as("Проверка получения непустого списка лучших фильмов отсортированного по количеству" +
@@ -1045,7 +1557,7 @@ class FilmorateApplicationTests {
                     .contains(expectedFilm2, Index.atIndex(0));
 
             filmStorage.deleteLike(film2IdAdded, userId);
-            expectedFilm2.deleteLike(userId);
+            expectedFilm2.setLikesCount(0);
 
             allFilmsFromDb = filmStorage.getBestFilms(10);
 
@@ -1100,6 +1612,129 @@ class FilmorateApplicationTests {
         }).doesNotThrowAnyException();
     }
 
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void testGettingFilteredBestFilms() {
+        Mpa mpa = new Mpa(1, "G");
+        Set<Genre> comedy = new LinkedHashSet<>(List.of(new Genre(1, "Комедия")));
+        Set<Genre> drama = new LinkedHashSet<>(List.of(new Genre(2, "Драма")));
+
+        assertThatCode(() -> {
+            int film1Id = createFilmInDb("name1", "description1", LocalDate.of(2000, 1, 1), 120, mpa, comedy);
+            int film2Id = createFilmInDb("name2", "description2", LocalDate.of(2000, 1, 1), 120, mpa, drama);
+            int film3Id = createFilmInDb("name3", "description3", LocalDate.of(2010, 1, 1), 120, mpa, comedy);
+            int userId = createUserInDb("email@mail.ru", "login", "name", LocalDate.now());
+
+            filmStorage.addLike(film3Id, userId);
+
+            assertThat(getIds(filmStorage.getFilteredBestFilms(10, 1, null)))
+                    .as("Проверка получения топа фильмов по жанру")
+                    .asList()
+                    .containsExactly(film3Id, film1Id);
+
+            assertThat(getIds(filmStorage.getFilteredBestFilms(10, null, 2000)))
+                    .as("Проверка получения топа фильмов по году выпуска с упорядочиванием равных по лайкам по названию")
+                    .asList()
+                    .containsExactly(film1Id, film2Id);
+
+            assertThat(getIds(filmStorage.getFilteredBestFilms(10, 1, 2000)))
+                    .as("Проверка получения топа фильмов по жанру и году выпуска")
+                    .asList()
+                    .containsExactly(film1Id);
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void testLoadingPopularityIndexWhileLikesAreAdded() {
+        Mpa mpa = new Mpa(1, "G");
+
+        assertThatCode(() -> {
+            int likedBeforeReadId = createFilmInDb("name1", "description1", LocalDate.of(2000, 1, 1), 120, mpa,
+                    new LinkedHashSet<>());
+            int likedAfterReadId = createFilmInDb("name2", "description2", LocalDate.of(2000, 1, 1), 120, mpa,
+                    new LinkedHashSet<>());
+            int userId = createUserInDb("email@mail.ru", "login", "name", LocalDate.now());
+
+            FilmDbStorage dbStorage = filmStorage;
+            FilmPopularityIndex[] loadingIndex = new FilmPopularityIndex[1];
+            FilmStorage loadingStorage = new CachingFilmStorage(dbStorage, 100, Duration.ofMinutes(1)) {
+                @Override
+                public List<Film> getPage(int afterId, int limit) {
+                    dbStorage.addLike(likedBeforeReadId, userId);
+                    List<Film> page = super.getPage(afterId, limit);
+                    CompletableFuture.runAsync(() -> {
+                        loadingIndex[0].changeLikes(likedBeforeReadId, 1);
+                        dbStorage.addLike(likedAfterReadId, userId);
+                        loadingIndex[0].changeLikes(likedAfterReadId, 1);
+                    }).join();
+                    return page;
+                }
+            };
+            loadingIndex[0] = new FilmPopularityIndex(loadingStorage);
+            loadingIndex[0].load();
+
+            assertThat(loadingIndex[0].getLikes(likedBeforeReadId))
+                    .as("Проверка отсутствия двойного учета лайка, прочитанного вместе со страницей фильмов")
+                    .isEqualTo(1);
+            assertThat(loadingIndex[0].getLikes(likedAfterReadId))
+                    .as("Проверка учета лайка, поставленного до добавления фильма в рейтинг")
+                    .isEqualTo(1);
+
+            Film staleFilm = filmStorage.getFilm(likedAfterReadId);
+            staleFilm.setLikesCount(0);
+            loadingIndex[0].put(staleFilm);
+            assertThat(loadingIndex[0].getLikes(likedAfterReadId))
+                    .as("Проверка сохранения счетчика лайков при обновлении фильма в рейтинге")
+                    .isEqualTo(1);
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void testGettingFilmsByQueryAndDirector() {
+        Mpa mpa = new Mpa(1, "G");
+        Set<Genre> genres = new LinkedHashSet<>(List.of(new Genre(1, "Комедия")));
+
+        assertThatCode(() -> {
+            Director director = directorStorage.addDirector(new Director(0, "Director Name"));
+
+            Film filmWithDirector = new Film("Some Film", "description1", LocalDate.of(2000, 1, 1), 120, mpa);
+            filmWithDirector.setGenres(new HashSet<>(genres));
+            filmWithDirector.addDirector(director);
+            int film1Id = filmStorage.add(filmWithDirector);
+            int film2Id = createFilmInDb("Another film", "description2", LocalDate.of(2010, 1, 1), 120, mpa, genres);
+            int userId = createUserInDb("email@mail.ru", "login", "name", LocalDate.now());
+
+            filmStorage.addLike(film2Id, userId);
+
+            assertThat(getIds(filmStorage.getSortedFilmByQuery("FILM", "title")))
+                    .as("Проверка поиска фильмов по названию")
+                    .asList()
+                    .containsExactly(film2Id, film1Id);
+
+            assertThat(getIds(filmStorage.getSortedFilmByQuery("name", "director")))
+                    .as("Проверка поиска фильмов по режиссеру")
+                    .asList()
+                    .containsExactly(film1Id);
+
+            assertThat(getIds(filmStorage.getSortedFilmByQuery("name", "title,director")))
+                    .as("Проверка поиска фильмов по названию и режиссеру")
+                    .asList()
+                    .containsExactly(film1Id);
+
+            List<Film> directorFilms = filmStorage.getSortedFilmsByDirId(director.getId(), "year");
+
+            assertThat(directorFilms)
+                    .as("Проверка получения фильмов режиссера")
+                    .asList()
+                    .hasSize(1);
+            assertThat(directorFilms.get(0).getDirectors())
+                    .as("Проверка получения режиссеров фильма")
+                    .isEqualTo(Set.of(director));
+        }).doesNotThrowAnyException();
+    }
+
     @Test
     void testGettingAllGenres() {
         assertThatCode(() -> {
@@ -1162,6 +1797,39 @@ class FilmorateApplicationTests {
         }).doesNotThrowAnyException();
     }
 
+    @Test
+    void testReferenceDataRegistry() {
+        assertThatCode(() -> {
+            assertThat(referenceData.getGenres())
+                    .as("Проверка получения жанров из справочника")
+                    .isEqualTo(new ArrayList<>(genreStorage.getAll()));
+            assertThat(referenceData.getRatings())
+                    .as("Проверка получения рейтингов из справочника")
+                    .isEqualTo(new ArrayList<>(mpaStorage.getAll()));
+            assertThat(referenceData.getStatus(referenceData.getStatusId(Status.CONFIRMED)))
+                    .as("Проверка соответствия статусов дружбы и их id")
+                    .isEqualTo(Status.CONFIRMED);
+            assertThat(referenceData.findGenre(7).isEmpty())
+                    .as("Проверка отсутствия несуществующего жанра в справочнике")
+                    .isTrue();
+
+            jdbcTemplate.update("INSERT INTO genres (id, name) VALUES (7, 'Ужасы');");
+            try {
+                assertThat(referenceData.isGenreExists(7))
+                        .as("Проверка неизменности справочника до обновления")
+                        .isFalse();
+
+                referenceData.refresh();
+                assertThat(referenceData.findGenre(7).orElseThrow())
+                        .as("Проверка появления жанра в справочнике после обновления")
+                        .isEqualTo(new Genre(7, "Ужасы"));
+            } finally {
+                jdbcTemplate.update("DELETE FROM genres WHERE id = 7;");
+                referenceData.refresh();
+            }
+        }).doesNotThrowAnyException();
+    }
+
     @Test
     void testGettingAllRatings() {
         assertThatCode(() -> {
@@ -1256,8 +1924,7 @@ class FilmorateApplicationTests {
 
             Film expectedFilm = new Film(filmId, name, description, releaseDate, duration, mpa);
             expectedFilm.setGenres(genres);
-            expectedFilm.addLike(user1IdAdded);
-            expectedFilm.addLike(user2IdAdded);
+            expectedFilm.setLikesCount(2);
 
             assertThat(commonFilms)
                     .as("Проверка получения непустого списка общих любимых фильмов существующих пользователей")
@@ -1458,7 +2125,7 @@ class FilmorateApplicationTests {
             Film expectedFilm = new Film(filmName2, description2, releaseDate2, duration2, mpa2);
             expectedFilm.setGenres(genres2);
             expectedFilm.setId(filmId2);
-            expectedFilm.addLike(userId2);
+            expectedFilm.setLikesCount(1);
 
             Collection<Film> recommendations = filmStorage.getRecommendations(userId1);
 
@@ -1470,4 +2137,907 @@ class FilmorateApplicationTests {
                     .contains(expectedFilm);
         }).doesNotThrowAnyException();
     }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void testGettingRecommendationsFromSimilarityIndex() {
+        Mpa mpa = new Mpa(1, "G");
+        Set<Genre> genres = new LinkedHashSet<>(List.of(new Genre(1, "Комедия")));
+
+        assertThatCode(() -> {
+            int filmId1 = createFilmInDb("Film1", "description1", LocalDate.now(), 120, mpa, genres);
+            int filmId2 = createFilmInDb("Film2", "description2", LocalDate.now(), 120, mpa, genres);
+            int filmId3 = createFilmInDb("Film3", "description3", LocalDate.now(), 120, mpa, genres);
+            int filmId4 = createFilmInDb("Film4", "description4", LocalDate.now(), 120, mpa, genres);
+            int userId1 = createUserInDb("email1@mail.ru", "login1", "name1", LocalDate.now());
+            int userId2 = createUserInDb("email2@mail.ru", "login2", "name2", LocalDate.now());
+            int userId3 = createUserInDb("email3@mail.ru", "login3", "name3", LocalDate.now());
+
+            filmStorage.addLike(filmId1, userId1);
+            filmStorage.addLike(filmId2, userId1);
+            filmStorage.addLike(filmId1, userId2);
+            filmStorage.addLike(filmId2, userId2);
+            filmStorage.addLike(filmId3, userId2);
+            filmStorage.addLike(filmId4, userId3);
+            similarityIndex.rebuild();
+
+            assertThat(similarityIndex.getRecommendedFilmIds(userId1, 10))
+                    .as("Проверка получения рекомендаций из индекса похожих фильмов")
+                    .asList()
+                    .containsExactly(filmId3);
+
+            similarityIndex.addLike(userId1, filmId3);
+            assertThat(similarityIndex.getRecommendedFilmIds(userId1, 10))
+                    .as("Проверка исключения фильма из рекомендаций после лайка")
+                    .asList()
+                    .isEmpty();
+
+            similarityIndex.addLike(userId3, filmId1);
+            assertThat(similarityIndex.getRecommendedFilmIds(userId3, 10))
+                    .as("Проверка порядка рекомендаций по степени похожести фильмов")
+                    .asList()
+                    .containsExactly(filmId2, filmId3);
+
+            similarityIndex.removeUser(userId3);
+            assertThat(similarityIndex.getRecommendedFilmIds(userId3, 10))
+                    .as("Проверка получения рекомендаций для удалённого пользователя")
+                    .asList()
+                    .isEmpty();
+
+            FilmSimilarityIndex cappedIndex = new FilmSimilarityIndex(filmStorage, 50, 1, Duration.ZERO);
+            cappedIndex.rebuild();
+            assertThat(cappedIndex.getRecommendedFilmIds(userId1, 10))
+                    .as("Проверка пропуска соседей фильмов с числом лайков выше порога")
+                    .asList()
+                    .isEmpty();
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void testGettingPrecomputedUserBasedRecommendations() {
+        Mpa mpa = new Mpa(1, "G");
+        Set<Genre> genres = new LinkedHashSet<>(List.of(new Genre(1, "Комедия")));
+
+        assertThatCode(() -> {
+            int filmId1 = createFilmInDb("Film1", "description1", LocalDate.now(), 120, mpa, genres);
+            int filmId2 = createFilmInDb("Film2", "description2", LocalDate.now(), 120, mpa, genres);
+            int filmId3 = createFilmInDb("Film3", "description3", LocalDate.now(), 120, mpa, genres);
+            int filmId4 = createFilmInDb("Film4", "description4", LocalDate.now(), 120, mpa, genres);
+            int userId1 = createUserInDb("email1@mail.ru", "login1", "name1", LocalDate.now());
+            int userId2 = createUserInDb("email2@mail.ru", "login2", "name2", LocalDate.now());
+            int userId3 = createUserInDb("email3@mail.ru", "login3", "name3", LocalDate.now());
+
+            filmStorage.addLike(filmId1, userId1);
+            filmStorage.addLike(filmId2, userId1);
+            filmStorage.addLike(filmId1, userId2);
+            filmStorage.addLike(filmId2, userId2);
+            filmStorage.addLike(filmId3, userId2);
+            filmStorage.addLike(filmId2, userId3);
+            filmStorage.addLike(filmId4, userId3);
+            int userId4 = createUserInDb("email4@mail.ru", "login4", "name4", LocalDate.now());
+            jdbcTemplate.update("INSERT INTO recommendations (user_id, position, film_id, score) VALUES (?, 0, ?, 1)",
+                    userId4, filmId1);
+            recommendationService.refreshRecommendations();
+
+            assertThat(jdbcTemplate.queryForList("SELECT film_id FROM recommendations WHERE user_id = ? " +
+                    "ORDER BY position", Integer.class, userId1))
+                    .as("Проверка сохранения рекомендаций, посчитанных по похожим пользователям")
+                    .asList()
+                    .containsExactly(filmId3, filmId4);
+
+            assertThat(jdbcTemplate.queryForList("SELECT film_id FROM recommendations WHERE user_id = ?",
+                    Integer.class, userId4))
+                    .as("Проверка удаления рекомендаций пользователя, не попавшего в пересчёт")
+                    .asList()
+                    .isEmpty();
+
+            similarityIndex.rebuild();
+            assertThat(recommendationService.getRecommendations(userId1).stream().map(Film::getId)
+                    .collect(Collectors.toList()))
+                    .as("Проверка получения заранее посчитанных рекомендаций при загруженном индексе похожих фильмов")
+                    .asList()
+                    .containsExactly(filmId3, filmId4);
+
+            filmStorage.addLike(filmId3, userId1);
+            assertThat(recommendationService.getRecommendations(userId1).stream().map(Film::getId)
+                    .collect(Collectors.toList()))
+                    .as("Проверка исключения из рекомендаций фильма, которому пользователь уже поставил лайк")
+                    .asList()
+                    .containsExactly(filmId4);
+
+            jdbcTemplate.update("DELETE FROM recommendations WHERE user_id = ?", userId1);
+            similarityIndex.addLike(userId1, filmId3);
+            assertThat(recommendationService.getRecommendations(userId1).stream().map(Film::getId)
+                    .collect(Collectors.toList()))
+                    .as("Проверка получения рекомендаций из индекса для пользователя без строк в таблице")
+                    .asList()
+                    .isEqualTo(similarityIndex.getRecommendedFilmIds(userId1, 20));
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void testLoadingSearchIndexWhileFilmsAreChanged() {
+        Mpa mpa = new Mpa(1, "G");
+
+        assertThatCode(() -> {
+            int renamedId = createFilmInDb("Old Title", "description1", LocalDate.of(2000, 1, 1), 120, mpa,
+                    new LinkedHashSet<>());
+            int deletedId = createFilmInDb("Deleted Title", "description2", LocalDate.of(2000, 1, 1), 120, mpa,
+                    new LinkedHashSet<>());
+
+            FilmDbStorage dbStorage = filmStorage;
+            FilmSearchIndex[] loadingIndex = new FilmSearchIndex[1];
+            FilmStorage loadingStorage = new CachingFilmStorage(dbStorage, 100, Duration.ofMinutes(1)) {
+                @Override
+                public List<Film> getPage(int afterId, int limit) {
+                    List<Film> page = super.getPage(afterId, limit);
+                    CompletableFuture.runAsync(() -> {
+                        Film renamedFilm = new Film(renamedId, "New Title", "description1",
+                                LocalDate.of(2000, 1, 1), 120, mpa);
+                        dbStorage.update(renamedFilm);
+                        loadingIndex[0].put(dbStorage.getFilm(renamedId));
+                        dbStorage.delete(deletedId);
+                        loadingIndex[0].remove(deletedId);
+                    }).join();
+                    return page;
+                }
+            };
+            loadingIndex[0] = new FilmSearchIndex(loadingStorage, directorStorage, popularityIndex);
+            loadingIndex[0].load();
+
+            assertThat(loadingIndex[0].search("old title", true, false, 10))
+                    .as("Проверка отсутствия устаревшего названия после загрузки поискового индекса")
+                    .asList()
+                    .isEmpty();
+            assertThat(loadingIndex[0].search("new title", true, false, 10))
+                    .as("Проверка учета переименования фильма во время загрузки поискового индекса")
+                    .asList()
+                    .containsExactly(renamedId);
+            assertThat(loadingIndex[0].search("deleted", true, false, 10))
+                    .as("Проверка учета удаления фильма во время загрузки поискового индекса")
+                    .asList()
+                    .isEmpty();
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    void testSearchingFilmsWithoutQuery() {
+        assertThatExceptionOfType(ValidationException.class)
+                .as("Проверка поиска фильмов без строки запроса")
+                .isThrownBy(() -> filmService.getSortedFilmByQuery(null, "title", 10))
+                .withMessage(Constants.EMPTY_SEARCH_QUERY_MESSAGE);
+
+        assertThatExceptionOfType(ValidationException.class)
+                .as("Проверка поиска фильмов по пустой строке запроса")
+                .isThrownBy(() -> filmService.getSortedFilmByQuery(" ", "title,director", 10))
+                .withMessage(Constants.EMPTY_SEARCH_QUERY_MESSAGE);
+    }
+
+    @Test
+    void testSearchingFilmsByInvertedIndex() {
+        Mpa mpa = new Mpa(1, "G");
+        Director director = new Director(1001, "Christopher Nolan");
+        Film substringMatch = new Film("Interstellar", "description", LocalDate.of(2014, 1, 1), 169, mpa);
+        substringMatch.setId(1001);
+        substringMatch.addDirector(director);
+        Film prefixMatch = new Film("Stellar Night", "description", LocalDate.of(2000, 1, 1), 90, mpa);
+        prefixMatch.setId(1002);
+        Film wordMatch = new Film("The Stellar Story", "description", LocalDate.of(2000, 1, 1), 90, mpa);
+        wordMatch.setId(1003);
+        Film exactMatch = new Film("STELLAR", "description", LocalDate.of(2000, 1, 1), 90, mpa);
+        exactMatch.setId(1004);
+        Film popularPrefixMatch = new Film("Stellar Dawn", "description", LocalDate.of(2000, 1, 1), 90, mpa);
+        popularPrefixMatch.setId(1005);
+        popularPrefixMatch.setLikesCount(5);
+        List<Film> films = List.of(substringMatch, prefixMatch, wordMatch, exactMatch, popularPrefixMatch);
+
+        assertThatCode(() -> {
+            try {
+                searchIndex.putDirector(director);
+                for (Film film : films) {
+                    popularityIndex.put(film);
+                    searchIndex.put(film);
+                }
+
+                assertThat(searchIndex.search("Stellar", true, false, 10))
+                        .as("Проверка ранжирования результатов поиска по качеству совпадения и лайкам")
+                        .asList()
+                        .containsExactly(1004, 1005, 1002, 1003, 1001);
+
+                assertThat(searchIndex.search("stellar", true, false, 2))
+                        .as("Проверка ограничения количества результатов поиска")
+                        .asList()
+                        .containsExactly(1004, 1005);
+
+                assertThat(searchIndex.search("NOLAN", false, true, 10))
+                        .as("Проверка поиска фильмов по имени режиссера")
+                        .asList()
+                        .containsExactly(1001);
+
+                assertThat(searchIndex.search("no", true, true, 10))
+                        .as("Проверка поиска по запросу короче n-граммы")
+                        .asList()
+                        .containsExactly(1001);
+
+                assertThat(searchIndex.search(null, true, true, 10))
+                        .as("Проверка поиска без строки запроса")
+                        .asList()
+                        .isEmpty();
+
+                assertThat(searchIndex.search("  ", true, true, 10))
+                        .as("Проверка поиска по пустой строке запроса")
+                        .asList()
+                        .isEmpty();
+
+                Film renamedFilm = new Film("Memento", "description", LocalDate.of(2000, 1, 1), 113, mpa);
+                renamedFilm.setId(1001);
+                renamedFilm.addDirector(director);
+                searchIndex.put(renamedFilm);
+                searchIndex.putDirector(new Director(1001, "Nolan Brothers"));
+
+                assertThat(searchIndex.search("stellar", true, true, 10))
+                        .as("Проверка поиска после изменения названия фильма")
+                        .asList()
+                        .containsExactly(1004, 1005, 1002, 1003);
+
+                assertThat(searchIndex.search("nolan", false, true, 10))
+                        .as("Проверка поиска после изменения имени режиссера")
+                        .asList()
+                        .containsExactly(1001);
+
+                searchIndex.removeDirector(1001);
+                searchIndex.remove(1004);
+
+                assertThat(searchIndex.search("nolan", false, true, 10))
+                        .as("Проверка поиска после удаления режиссера")
+                        .asList()
+                        .isEmpty();
+
+                assertThat(searchIndex.search("stellar", true, false, 10))
+                        .as("Проверка поиска после удаления фильма")
+                        .asList()
+                        .containsExactly(1005, 1002, 1003);
+            } finally {
+                for (Film film : films) {
+                    popularityIndex.remove(film.getId());
+                    searchIndex.remove(film.getId());
+                }
+            }
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    void testGettingSuggestionsFromPrefixTrie() {
+        Mpa mpa = new Mpa(1, "G");
+        Director director = new Director(2001, "Steven Spielberg");
+        Film jaws = new Film("Jaws", "description", LocalDate.of(1975, 1, 1), 124, mpa);
+        jaws.setId(2001);
+        jaws.addDirector(director);
+        jaws.setLikesCount(3);
+        Film jurassicPark = new Film("Jurassic Park", "description", LocalDate.of(1993, 1, 1), 127, mpa);
+        jurassicPark.setId(2002);
+        jurassicPark.addDirector(director);
+        jurassicPark.setLikesCount(5);
+        Film parkLife = new Film("Park Life: Extended Director's Cut", "description", LocalDate.of(2000, 1, 1), 90, mpa);
+        parkLife.setId(2003);
+        List<Film> films = List.of(jaws, jurassicPark, parkLife);
+
+        assertThatCode(() -> {
+            try {
+                suggestionIndex.putDirector(director);
+                films.forEach(suggestionIndex::put);
+
+                assertThat(suggestionIndex.suggest("J"))
+                        .as("Проверка ранжирования подсказок по количеству лайков")
+                        .asList()
+                        .containsExactly(new Suggestion(SuggestionType.FILM, 2002, "Jurassic Park"),
+                                new Suggestion(SuggestionType.FILM, 2001, "Jaws"));
+
+                assertThat(suggestionIndex.suggest("park"))
+                        .as("Проверка подсказок по началу слова в названии")
+                        .asList()
+                        .containsExactly(new Suggestion(SuggestionType.FILM, 2002, "Jurassic Park"),
+                                new Suggestion(SuggestionType.FILM, 2003, "Park Life: Extended Director's Cut"));
+
+                assertThat(suggestionIndex.suggest("SPIEL"))
+                        .as("Проверка подсказок по имени режиссера")
+                        .asList()
+                        .containsExactly(new Suggestion(SuggestionType.DIRECTOR, 2001, "Steven Spielberg"));
+
+                assertThat(suggestionIndex.suggest("park life: extended dir"))
+                        .as("Проверка подсказок по префиксу длиннее глубины дерева")
+                        .asList()
+                        .containsExactly(new Suggestion(SuggestionType.FILM, 2003, "Park Life: Extended Director's Cut"));
+
+                suggestionIndex.changeLikes(2001, 3);
+                suggestionIndex.changeLikes(2003, 9);
+
+                assertThat(suggestionIndex.suggest("j"))
+                        .as("Проверка подсказок после изменения количества лайков")
+                        .asList()
+                        .containsExactly(new Suggestion(SuggestionType.FILM, 2001, "Jaws"),
+                                new Suggestion(SuggestionType.FILM, 2002, "Jurassic Park"));
+
+                Film renamedFilm = new Film("Duel", "description", LocalDate.of(1971, 1, 1), 90, mpa);
+                renamedFilm.setId(2001);
+                renamedFilm.setLikesCount(6);
+                suggestionIndex.put(renamedFilm);
+                suggestionIndex.remove(2003);
+                suggestionIndex.removeDirector(2001);
+
+                assertThat(suggestionIndex.suggest("j"))
+                        .as("Проверка подсказок после изменения названия фильма")
+                        .asList()
+                        .containsExactly(new Suggestion(SuggestionType.FILM, 2002, "Jurassic Park"));
+
+                assertThat(suggestionIndex.suggest("park"))
+                        .as("Проверка подсказок после удаления фильма")
+                        .asList()
+                        .containsExactly(new Suggestion(SuggestionType.FILM, 2002, "Jurassic Park"));
+
+                assertThat(suggestionIndex.suggest("spielberg"))
+                        .as("Проверка подсказок после удаления режиссера")
+                        .asList()
+                        .isEmpty();
+            } finally {
+                films.forEach(film -> suggestionIndex.remove(film.getId()));
+                suggestionIndex.removeDirector(2001);
+            }
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void testWritingEventsInBatches() {
+        assertThatCode(() -> {
+            int userId = createUserInDb("events@mail.ru", "events", "Events", LocalDate.of(1990, 1, 1));
+            eventService.createEvent(userId, OperationStatus.ADD, EventTypeStatus.FRIEND, 1);
+            eventService.createEvent(userId, OperationStatus.ADD, EventTypeStatus.LIKE, 2);
+            eventService.createEvent(userId, OperationStatus.REMOVE, EventTypeStatus.LIKE, 2);
+
+            List<Event> events = eventService.getEvents(userId, null, null, null, 1000);
+            assertThat(events.stream().map(Event::getOperation).collect(Collectors.toList()))
+                    .as("Проверка порядка событий после записи пакетом")
+                    .asList()
+                    .containsExactly(OperationStatus.ADD, OperationStatus.ADD, OperationStatus.REMOVE);
+            assertThat(events.stream().map(Event::getEntityId).collect(Collectors.toList()))
+                    .as("Проверка сохранения событий пакетом")
+                    .asList()
+                    .containsExactly(1, 2, 2);
+            assertThat(events.get(0).getEventId())
+                    .as("Проверка возрастания идентификаторов событий")
+                    .isLessThan(events.get(1).getEventId());
+
+            List<Event> stored = new ArrayList<>();
+            boolean[] failBatches = {false};
+            EventStorage storage = new EventStorage() {
+                @Override
+                public List<Event> findLatestEventsByUserId(int userId, int beforeEventId, long since, int limit) {
+                    return List.of();
+                }
+
+                @Override
+                public List<Event> findLatestEventsByUserIds(Collection<Integer> userIds, int limit) {
+                    return List.of();
+                }
+
+                @Override
+                public List<Event> findLatestArchivedEventsByUserId(int userId, int beforeEventId, long since,
+                                                                    int limit) {
+                    return List.of();
+                }
+
+                @Override
+                public List<Event> findEventsByUserIdSince(int userId, long since, int afterEventId,
+                                                           int beforeEventId, int limit) {
+                    return List.of();
+                }
+
+                @Override
+                public List<Event> findArchivedEventsByUserIdSince(int userId, long since, int afterEventId,
+                                                                   int beforeEventId, int limit) {
+                    return List.of();
+                }
+
+                @Override
+                public void add(Event event) {
+                    if (failBatches[0] && event.getUserId() == 9999) {
+                        throw new DataIntegrityViolationException("Пользователь с id = 9999 не найден");
+                    }
+                    stored.add(event);
+                }
+
+                @Override
+                public void addAll(List<Event> events) {
+                    if (failBatches[0]) {
+                        throw new DataIntegrityViolationException("Пакет событий не записан");
+                    }
+                    stored.addAll(events);
+                }
+
+                @Override
+                public int getMaxEventId() {
+                    return 100;
+                }
+
+                @Override
+                public int archiveEventsBefore(long timestamp, int limit) {
+                    return 0;
+                }
+            };
+
+            EventWriter droppingWriter = new EventWriter(storage, 1, 10, Duration.ofHours(1), OverflowPolicy.DROP, 1);
+            droppingWriter.start();
+            try {
+                List<Boolean> accepted = new ArrayList<>();
+                for (int i = 0; i < 3; i++) {
+                    accepted.add(droppingWriter.write(Event.builder().userId(userId).build()));
+                }
+                assertThat(accepted)
+                        .as("Проверка признака принятия события в очередь")
+                        .asList()
+                        .containsExactly(true, false, false);
+                assertThat(droppingWriter.getStats().getDropped())
+                        .as("Проверка отбрасывания событий при переполнении очереди")
+                        .isEqualTo(2);
+            } finally {
+                droppingWriter.shutdown();
+            }
+            assertThat(stored.stream().map(Event::getEventId).collect(Collectors.toList()))
+                    .as("Проверка записи очереди при остановке")
+                    .asList()
+                    .containsExactly(101);
+
+            stored.clear();
+            EventWriter syncWriter = new EventWriter(storage, 1, 10, Duration.ofHours(1), OverflowPolicy.SYNC, 1);
+            syncWriter.start();
+            try {
+                syncWriter.write(Event.builder().userId(userId).build());
+                syncWriter.write(Event.builder().userId(userId).build());
+                assertThat(syncWriter.getStats().getWrittenSynchronously())
+                        .as("Проверка синхронной записи при переполнении очереди")
+                        .isEqualTo(1);
+                syncWriter.flush();
+            } finally {
+                syncWriter.shutdown();
+            }
+            assertThat(stored.stream().map(Event::getEventId).collect(Collectors.toList()))
+                    .as("Проверка записи всех событий при синхронной записи")
+                    .asList()
+                    .containsExactlyInAnyOrder(101, 102);
+
+            stored.clear();
+            failBatches[0] = true;
+            EventWriter fallbackWriter = new EventWriter(storage, 10, 10, Duration.ofHours(1), OverflowPolicy.BLOCK,
+                    1);
+            fallbackWriter.start();
+            try {
+                fallbackWriter.write(Event.builder().userId(userId).build());
+                fallbackWriter.write(Event.builder().userId(9999).build());
+                fallbackWriter.write(Event.builder().userId(userId).build());
+                fallbackWriter.flush();
+                assertThat(fallbackWriter.getStats().getFailed())
+                        .as("Проверка учета только тех событий, которые не удалось записать по одному")
+                        .isEqualTo(1);
+            } finally {
+                fallbackWriter.shutdown();
+            }
+            assertThat(stored.stream().map(Event::getEventId).collect(Collectors.toList()))
+                    .as("Проверка записи событий по одному после ошибки записи пакета")
+                    .asList()
+                    .containsExactly(101, 103);
+
+            stored.clear();
+            failBatches[0] = false;
+            EventWriter readerWriter = new EventWriter(storage, 10, 10, Duration.ofHours(1), OverflowPolicy.BLOCK, 1);
+            readerWriter.start();
+            try {
+                readerWriter.write(Event.builder().userId(userId).build());
+                readerWriter.flushPending(userId + 1);
+                assertThat(readerWriter.getStats().getQueued())
+                        .as("Проверка отсутствия записи очереди при чтении ленты пользователя без новых событий")
+                        .isEqualTo(1);
+
+                readerWriter.flushPending(userId);
+                assertThat(readerWriter.getStats().getQueued())
+                        .as("Проверка записи очереди при чтении ленты пользователя с новыми событиями")
+                        .isEqualTo(0);
+            } finally {
+                readerWriter.shutdown();
+            }
+            assertThat(stored.size())
+                    .as("Проверка записи события пользователя перед чтением его ленты")
+                    .isEqualTo(1);
+
+            EventWriter clusteredWriter = new EventWriter(storage, 10, 10, Duration.ofHours(1), OverflowPolicy.BLOCK,
+                    2);
+            assertThatThrownBy(clusteredWriter::start)
+                    .as("Проверка запрета записи событий из нескольких экземпляров приложения")
+                    .isInstanceOf(IllegalStateException.class);
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void testPagingAndArchivingFeed() {
+        assertThatCode(() -> {
+            int userId = createUserInDb("feed@mail.ru", "feed", "Feed", LocalDate.of(1990, 1, 1));
+            int otherUserId = createUserInDb("other@mail.ru", "other", "Other", LocalDate.of(1990, 1, 1));
+            for (int i = 1; i <= 5; i++) {
+                jdbcTemplate.update("INSERT INTO events(event_id,timestamp,user_id,entity_id,event_type,operation) " +
+                        "VALUES (?, ?, ?, ?, 'LIKE', 'ADD')", 9000 + i, 1000L * i, userId, i);
+            }
+            jdbcTemplate.update("INSERT INTO events(event_id,timestamp,user_id,entity_id,event_type,operation) " +
+                    "VALUES (9100, 1500, ?, 100, 'FRIEND', 'ADD')", otherUserId);
+
+            assertThat(eventService.getEvents(userId, null, null, null, 2).stream()
+                    .map(Event::getEventId).collect(Collectors.toList()))
+                    .as("Проверка получения последних событий ленты")
+                    .asList()
+                    .containsExactly(9004, 9005);
+
+            assertThat(eventService.getEvents(userId, 9004, null, null, 2).stream()
+                    .map(Event::getEventId).collect(Collectors.toList()))
+                    .as("Проверка получения предыдущей страницы ленты")
+                    .asList()
+                    .containsExactly(9002, 9003);
+
+            assertThat(eventService.getEvents(userId, null, 4000L, null, 10).stream()
+                    .map(Event::getEventId).collect(Collectors.toList()))
+                    .as("Проверка получения событий начиная с момента времени")
+                    .asList()
+                    .containsExactly(9004, 9005);
+
+            assertThat(eventService.getEvents(userId, null, 2000L, null, 2).stream()
+                    .map(Event::getEventId).collect(Collectors.toList()))
+                    .as("Проверка получения первых событий после момента времени, когда их больше limit")
+                    .asList()
+                    .containsExactly(9002, 9003);
+
+            assertThat(eventService.getEvents(userId, null, 3000L, 9003, 2).stream()
+                    .map(Event::getEventId).collect(Collectors.toList()))
+                    .as("Проверка получения следующей страницы событий после момента времени")
+                    .asList()
+                    .containsExactly(9004, 9005);
+
+            assertThatThrownBy(() -> eventService.getEvents(userId, null, null, 9003, 2))
+                    .as("Проверка запрета параметра after без since")
+                    .isInstanceOf(ValidationException.class);
+
+            assertThat(eventStorage.archiveEventsBefore(3500, 10))
+                    .as("Проверка переноса старых событий в архив")
+                    .isEqualTo(4);
+
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM events WHERE event_id > 9000", Integer.class))
+                    .as("Проверка удаления перенесенных событий")
+                    .isEqualTo(2);
+
+            List<Event> events = eventService.getEvents(userId, null, null, null, 10);
+            assertThat(events.stream().map(Event::getEventId).collect(Collectors.toList()))
+                    .as("Проверка получения ленты вместе с архивом")
+                    .asList()
+                    .containsExactly(9001, 9002, 9003, 9004, 9005);
+            assertThat(events.get(1))
+                    .as("Проверка восстановления события из архива")
+                    .usingRecursiveComparison()
+                    .isEqualTo(new Event(9002, 2000L, userId, 2, EventTypeStatus.LIKE, OperationStatus.ADD));
+
+            assertThat(eventService.getEvents(userId, 9005, null, null, 2).stream()
+                    .map(Event::getEventId).collect(Collectors.toList()))
+                    .as("Проверка получения страницы на границе архива")
+                    .asList()
+                    .containsExactly(9003, 9004);
+
+            assertThat(eventService.getEvents(userId, null, 1000L, null, 3).stream()
+                    .map(Event::getEventId).collect(Collectors.toList()))
+                    .as("Проверка получения событий после момента времени из архива")
+                    .asList()
+                    .containsExactly(9001, 9002, 9003);
+
+            assertThat(eventService.getEvents(userId, null, 3000L, 9003, 3).stream()
+                    .map(Event::getEventId).collect(Collectors.toList()))
+                    .as("Проверка получения событий после момента времени на границе архива")
+                    .asList()
+                    .containsExactly(9004, 9005);
+
+            assertThat(eventService.getEvents(otherUserId, null, 1000L, null, 10).stream()
+                    .map(Event::getEventId).collect(Collectors.toList()))
+                    .as("Проверка получения архивных событий другого пользователя")
+                    .asList()
+                    .containsExactly(9100);
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void testGettingFriendsFeedFromRingBuffers() {
+        assertThatCode(() -> {
+            int userId = createUserInDb("reader@mail.ru", "reader", "Reader", LocalDate.of(1990, 1, 1));
+            int firstFriendId = createUserInDb("first@mail.ru", "first", "First", LocalDate.of(1990, 1, 1));
+            int secondFriendId = createUserInDb("second@mail.ru", "second", "Second", LocalDate.of(1990, 1, 1));
+            userService.addFriend(userId, firstFriendId);
+            userService.addFriend(userId, secondFriendId);
+            eventService.createEvent(firstFriendId, OperationStatus.ADD, EventTypeStatus.LIKE, 10);
+            eventService.createEvent(secondFriendId, OperationStatus.ADD, EventTypeStatus.LIKE, 11);
+
+            assertThat(eventService.getFriendsEvents(userId, 10).stream()
+                    .map(Event::getEntityId).collect(Collectors.toList()))
+                    .as("Проверка восстановления ленты друзей из базы")
+                    .asList()
+                    .containsExactly(10, 11);
+
+            eventService.createEvent(firstFriendId, OperationStatus.REMOVE, EventTypeStatus.LIKE, 10);
+            eventService.createEvent(userId, OperationStatus.ADD, EventTypeStatus.LIKE, 12);
+
+            assertThat(eventService.getFriendsEvents(userId, 2).stream()
+                    .map(Event::getOperation).collect(Collectors.toList()))
+                    .as("Проверка добавления событий друзей в ленту при записи")
+                    .asList()
+                    .containsExactly(OperationStatus.ADD, OperationStatus.REMOVE);
+
+            assertThat(eventService.getFriendsEvents(firstFriendId, 10))
+                    .as("Проверка ленты пользователя без подтвержденных друзей")
+                    .asList()
+                    .isEmpty();
+
+            userService.deleteFriend(userId, secondFriendId);
+
+            assertThat(eventService.getFriendsEvents(userId, 10).stream()
+                    .map(Event::getUserId).collect(Collectors.toList()))
+                    .as("Проверка ленты друзей после удаления друга")
+                    .asList()
+                    .containsExactly(firstFriendId, firstFriendId);
+
+            FriendsFeedIndex smallIndex = new FriendsFeedIndex(userStorage, eventStorage, eventWriter, 2);
+            eventService.createEvent(firstFriendId, OperationStatus.ADD, EventTypeStatus.LIKE, 13);
+
+            assertThat(smallIndex.getLatestEvents(userId, 10).stream()
+                    .map(Event::getEntityId).collect(Collectors.toList()))
+                    .as("Проверка ограничения размера буфера ленты")
+                    .asList()
+                    .containsExactly(10, 13);
+
+            userService.deleteUser(firstFriendId);
+
+            assertThat(eventService.getFriendsEvents(userId, 10))
+                    .as("Проверка ленты друзей после удаления пользователя")
+                    .asList()
+                    .isEmpty();
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void testGettingFriendsFromFriendshipGraph() {
+        assertThatCode(() -> {
+            int userId = createUserInDb("graph1@mail.ru", "graph1", "Graph1", LocalDate.of(1990, 1, 1));
+            int otherId = createUserInDb("graph2@mail.ru", "graph2", "Graph2", LocalDate.of(1990, 1, 1));
+            int commonId = createUserInDb("graph3@mail.ru", "graph3", "Graph3", LocalDate.of(1990, 1, 1));
+            userService.addFriend(userId, otherId);
+            userService.addFriend(userId, commonId);
+            userService.addFriend(otherId, commonId);
+            userService.addFriend(commonId, userId);
+
+            assertThat(friendshipGraph.isLoaded())
+                    .as("Проверка загрузки графа дружбы")
+                    .isTrue();
+
+            assertThat(userService.getFriendsList(userId))
+                    .as("Проверка списка друзей из графа дружбы")
+                    .asList()
+                    .containsExactlyElementsOf(userStorage.getFriends(userId));
+
+            assertThat(userService.getSameFriendsList(userId, otherId))
+                    .as("Проверка списка общих друзей из графа дружбы")
+                    .asList()
+                    .containsExactlyElementsOf(userStorage.getCommonFriends(userId, otherId));
+
+            assertThat(friendshipGraph.getCommonFriendIds(userId, otherId))
+                    .as("Проверка пересечения списков друзей")
+                    .containsExactly(commonId);
+
+            userService.deleteFriend(userId, commonId);
+            friendshipGraph.load();
+
+            assertThat(userService.getFriendsList(userId))
+                    .as("Проверка списка друзей после удаления друга и перезагрузки графа")
+                    .asList()
+                    .containsExactlyElementsOf(userStorage.getFriends(userId));
+
+            assertThat(userService.getFriendsList(commonId))
+                    .as("Проверка подтверждения дружбы в графе")
+                    .asList()
+                    .containsExactlyElementsOf(userStorage.getFriends(commonId));
+
+            userService.deleteUser(otherId);
+
+            assertThat(userService.getFriendsList(userId))
+                    .as("Проверка списка друзей после удаления пользователя")
+                    .asList()
+                    .isEmpty();
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void testGettingFriendSuggestions() {
+        assertThatCode(() -> {
+            int userId = createUserInDb("suggest1@mail.ru", "suggest1", "Suggest1", LocalDate.of(1990, 1, 1));
+            int firstFriendId = createUserInDb("suggest2@mail.ru", "suggest2", "Suggest2", LocalDate.of(1990, 1, 1));
+            int secondFriendId = createUserInDb("suggest3@mail.ru", "suggest3", "Suggest3", LocalDate.of(1990, 1, 1));
+            int popularId = createUserInDb("suggest4@mail.ru", "suggest4", "Suggest4", LocalDate.of(1990, 1, 1));
+            int otherId = createUserInDb("suggest5@mail.ru", "suggest5", "Suggest5", LocalDate.of(1990, 1, 1));
+            userService.addFriend(userId, firstFriendId);
+            userService.addFriend(userId, secondFriendId);
+            userService.addFriend(firstFriendId, popularId);
+            userService.addFriend(secondFriendId, popularId);
+            userService.addFriend(secondFriendId, otherId);
+
+            assertThat(userService.getFriendSuggestions(userId, 10).stream().map(User::getId)
+                    .collect(Collectors.toList()))
+                    .as("Проверка ранжирования рекомендаций друзей по числу общих друзей")
+                    .asList()
+                    .containsExactly(popularId, otherId);
+
+            assertThat(userService.getFriendSuggestions(userId, 1).stream().map(User::getId)
+                    .collect(Collectors.toList()))
+                    .as("Проверка ограничения числа рекомендаций друзей")
+                    .asList()
+                    .containsExactly(popularId);
+
+            userService.addFriend(userId, popularId);
+
+            assertThat(userService.getFriendSuggestions(userId, 10).stream().map(User::getId)
+                    .collect(Collectors.toList()))
+                    .as("Проверка рекомендаций после добавления друга")
+                    .asList()
+                    .containsExactly(otherId);
+
+            userService.deleteFriend(secondFriendId, otherId);
+
+            assertThat(userService.getFriendSuggestions(userId, 10))
+                    .as("Проверка рекомендаций после изменения дружбы у друга")
+                    .asList()
+                    .isEmpty();
+
+            assertThatThrownBy(() -> userService.getFriendSuggestions(9999, 10))
+                    .as("Проверка рекомендаций друзей для несуществующего пользователя")
+                    .isInstanceOf(NotFoundException.class);
+        }).doesNotThrowAnyException();
+    }
+
+    @Test
+    void testInMemoryStorages() {
+        assertThatCode(() -> {
+            ReferenceDataRegistry memoryReferenceData = new ReferenceDataRegistry(new InMemoryGenreStorage(),
+                    new InMemoryMpaStorage(), new InMemoryStatusStorage());
+            memoryReferenceData.refresh();
+            InMemoryUserStorage memoryUsers = new InMemoryUserStorage();
+            InMemoryDirectorStorage memoryDirectors = new InMemoryDirectorStorage();
+            InMemoryFilmStorage memoryFilms = new InMemoryFilmStorage(memoryUsers, memoryDirectors,
+                    memoryReferenceData);
+            InMemoryReviewStorage memoryReviews = new InMemoryReviewStorage(memoryFilms, memoryUsers);
+
+            assertThat(memoryReferenceData.getGenres())
+                    .as("Проверка совпадения жанров в памяти с жанрами в бд")
+                    .isEqualTo(new ArrayList<>(genreStorage.getAll()));
+            assertThat(memoryReferenceData.getRatings())
+                    .as("Проверка совпадения рейтингов в памяти с рейтингами в бд")
+                    .isEqualTo(new ArrayList<>(mpaStorage.getAll()));
+
+            int userId = memoryUsers.add(new User("memory1@mail.ru", "memory1", "Memory1", LocalDate.of(1990, 1, 1)));
+            int friendId = memoryUsers.add(new User("memory2@mail.ru", "memory2", "Memory2", LocalDate.of(1990, 1, 1)));
+            assertThatThrownBy(() -> memoryUsers.add(new User("memory1@mail.ru", "memory3", "Memory3",
+                    LocalDate.of(1990, 1, 1))))
+                    .as("Проверка уникальности email в памяти")
+                    .isInstanceOf(DuplicateKeyException.class);
+
+            assertThat(memoryUsers.addFriend(userId, friendId, Status.UNCONFIRMED))
+                    .as("Проверка добавления неподтвержденной дружбы в памяти")
+                    .isTrue();
+            assertThat(memoryUsers.addFriend(userId, friendId, Status.UNCONFIRMED))
+                    .as("Проверка повторного добавления дружбы в памяти")
+                    .isFalse();
+            assertThat(memoryUsers.addFriend(userId, friendId, Status.CONFIRMED))
+                    .as("Проверка подтверждения дружбы в памяти")
+                    .isTrue();
+            assertThat(memoryUsers.getFriendIds(userId))
+                    .as("Проверка списка друзей в памяти")
+                    .asList()
+                    .containsExactly(friendId);
+            assertThatThrownBy(() -> memoryUsers.addFriend(userId, 9999, Status.CONFIRMED))
+                    .as("Проверка добавления в друзья несуществующего пользователя в памяти")
+                    .isInstanceOf(DataIntegrityViolationException.class);
+
+            Director director = memoryDirectors.addDirector(new Director(0, "Memory director"));
+            Film film = new Film("Memory film", "description", LocalDate.of(2000, 1, 1), 100, new Mpa(1, null));
+            film.addGenre(new Genre(2, null));
+            film.addDirector(director);
+            int filmId = memoryFilms.add(film);
+            int otherFilmId = memoryFilms.add(new Film("Other film", "description", LocalDate.of(2001, 1, 1), 90,
+                    new Mpa(2, null)));
+
+            Film expectedFilm = new Film(filmId, "Memory film", "description", LocalDate.of(2000, 1, 1), 100,
+                    new Mpa(1, "G"));
+            expectedFilm.addGenre(new Genre(2, "Драма"));
+            expectedFilm.addDirector(new Director(director.getId(), "Memory director"));
+            assertThat(memoryFilms.getFilm(filmId))
+                    .as("Проверка получения фильма из памяти с жанрами и режиссерами")
+                    .isEqualTo(expectedFilm);
+            assertThatThrownBy(() -> memoryFilms.add(new Film("Memory film", "description",
+                    LocalDate.of(2000, 1, 1), 100, new Mpa(1, null))))
+                    .as("Проверка уникальности фильма в памяти")
+                    .isInstanceOf(DuplicateKeyException.class);
+
+            assertThat(memoryFilms.addLike(filmId, userId))
+                    .as("Проверка добавления лайка в памяти")
+                    .isTrue();
+            assertThat(memoryFilms.addLike(filmId, userId))
+                    .as("Проверка повторного добавления лайка в памяти")
+                    .isFalse();
+            memoryFilms.addLike(filmId, friendId);
+            memoryFilms.addLike(otherFilmId, friendId);
+            assertThatThrownBy(() -> memoryFilms.addLike(filmId, 9999))
+                    .as("Проверка лайка несуществующего пользователя в памяти")
+                    .isInstanceOf(DataIntegrityViolationException.class);
+
+            assertThat(memoryFilms.getBestFilms(10).stream().map(Film::getId).collect(Collectors.toList()))
+                    .as("Проверка топа фильмов в памяти")
+                    .asList()
+                    .containsExactly(filmId, otherFilmId);
+            assertThat(memoryFilms.getCommonFilms(userId, friendId).stream().map(Film::getId)
+                    .collect(Collectors.toList()))
+                    .as("Проверка общих фильмов в памяти")
+                    .asList()
+                    .containsExactly(filmId);
+            assertThat(memoryFilms.getRecommendations(userId).stream().map(Film::getId).collect(Collectors.toList()))
+                    .as("Проверка рекомендаций фильмов в памяти")
+                    .asList()
+                    .containsExactly(otherFilmId);
+            assertThat(memoryFilms.getSortedFilmByQuery("DIRECTOR", "director").stream().map(Film::getId)
+                    .collect(Collectors.toList()))
+                    .as("Проверка поиска фильмов по режиссеру в памяти")
+                    .asList()
+                    .containsExactly(filmId);
+
+            int reviewId = memoryReviews.create(new Review(0, "Хороший фильм", true, userId, filmId, 0))
+                    .orElseThrow()
+                    .getReviewId();
+            assertThat(memoryReviews.create(new Review(0, "Повторный отзыв", true, userId, filmId, 0)).isEmpty())
+                    .as("Проверка повторного отзыва в памяти")
+                    .isTrue();
+            memoryReviews.addLike(reviewId, friendId);
+            memoryReviews.addDislike(reviewId, friendId);
+            assertThat(memoryReviews.findReviewById(reviewId).orElseThrow().getUseful())
+                    .as("Проверка рейтинга отзыва после замены лайка дизлайком в памяти")
+                    .isEqualTo(-1);
+
+            memoryUsers.delete(friendId);
+            assertThat(memoryUsers.getFriendIds(userId))
+                    .as("Проверка удаления друга вместе с пользователем в памяти")
+                    .asList()
+                    .isEmpty();
+            assertThat(memoryFilms.getLikes(filmId, 0, 10))
+                    .as("Проверка удаления лайков вместе с пользователем в памяти")
+                    .asList()
+                    .containsExactly(userId);
+            assertThat(memoryFilms.getFilm(otherFilmId).getLikesCount())
+                    .as("Проверка счетчика лайков после удаления пользователя в памяти")
+                    .isEqualTo(0);
+            assertThat(memoryReviews.findReviewById(reviewId).orElseThrow().getUseful())
+                    .as("Проверка рейтинга отзыва после удаления пользователя в памяти")
+                    .isEqualTo(0);
+
+            memoryFilms.delete(filmId);
+            assertThat(memoryReviews.isReviewExists(reviewId))
+                    .as("Проверка удаления отзывов вместе с фильмом в памяти")
+                    .isFalse();
+            assertThat(memoryFilms.getUserLikedFilmIds(userId))
+                    .as("Проверка удаления лайков вместе с фильмом в памяти")
+                    .asList()
+                    .isEmpty();
+        }).doesNotThrowAnyException();
+    }
 }
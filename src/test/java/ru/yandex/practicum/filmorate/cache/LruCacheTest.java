@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LruCacheTest {
+    private final AtomicLong clock = new AtomicLong();
+    private final LruCache<Integer, String> cache = new LruCache<>(2, 100, clock::get);
+
+    @Test
+    void testEvictionOfLeastRecentlyUsedEntry() {
+        cache.put(1, "a");
+        cache.put(2, "b");
+        cache.get(1);
+        cache.put(3, "c");
+
+        assertEquals("a", cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals("c", cache.get(3));
+
+        CacheStats stats = cache.getStats();
+        assertEquals(2, stats.getSize());
+        assertEquals(3, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(1, stats.getEvictions());
+    }
+
+    @Test
+    void testExpirationAfterTtl() {
+        cache.put(1, "a");
+        clock.addAndGet(99);
+        assertEquals("a", cache.get(1));
+
+        clock.addAndGet(1);
+        assertNull(cache.get(1));
+        assertEquals(1, cache.getStats().getExpirations());
+        assertEquals(0, cache.getStats().getSize());
+    }
+
+    @Test
+    void testInvalidationRejectsStalePut() {
+        long version = cache.getVersion();
+        cache.invalidate(1);
+
+        assertFalse(cache.putIfVersion(1, "stale", version));
+        assertNull(cache.get(1));
+        assertTrue(cache.putIfVersion(1, "fresh", cache.getVersion()));
+
+        cache.put(2, "b");
+        assertEquals(1, cache.invalidateIf("b"::equals));
+        assertNull(cache.get(2));
+        assertEquals("fresh", cache.get(1));
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FilmPopularityIndexTest {
+    private final FilmPopularityIndex index = new FilmPopularityIndex(null);
+
+    private Film createFilm(int id, String name, int year, int likes, int... genreIds) {
+        Film film = new Film(id, name, "description", LocalDate.of(year, 1, 1), 120, new Mpa(1, "G"));
+        film.setLikesCount(likes);
+        for (int genreId : genreIds) {
+            film.addGenre(new Genre(genreId, null));
+        }
+        return film;
+    }
+
+    @Test
+    void testRankingOrderByLikesThenName() {
+        index.put(createFilm(1, "B", 2000, 0));
+        index.put(createFilm(2, "A", 2000, 0));
+        index.put(createFilm(3, "C", 2000, 5));
+
+        assertEquals(List.of(3, 2, 1), index.getBestFilmIds(10, null, null));
+        assertEquals(List.of(3, 2), index.getBestFilmIds(2, null, null));
+    }
+
+    @Test
+    void testRankingUpdatesOnLikes() {
+        index.put(createFilm(1, "A", 2000, 1));
+        index.put(createFilm(2, "B", 2000, 0));
+
+        index.changeLikes(2, 1);
+        index.changeLikes(2, 1);
+        assertEquals(List.of(2, 1), index.getBestFilmIds(10, null, null));
+
+        index.changeLikes(2, -2);
+        assertEquals(List.of(1, 2), index.getBestFilmIds(10, null, null));
+
+        index.remove(1);
+        assertEquals(List.of(2), index.getBestFilmIds(10, null, null));
+    }
+
+    @Test
+    void testRankingByGenreAndYear() {
+        index.put(createFilm(1, "A", 2000, 1, 1));
+        index.put(createFilm(2, "B", 2000, 2, 2));
+        index.put(createFilm(3, "C", 2010, 3, 1, 2));
+
+        assertEquals(List.of(3, 1), index.getBestFilmIds(10, 1, null));
+        assertEquals(List.of(2, 1), index.getBestFilmIds(10, null, 2000));
+        assertEquals(List.of(2), index.getBestFilmIds(10, 2, 2000));
+        assertEquals(List.of(), index.getBestFilmIds(10, 5, null));
+
+        index.put(createFilm(3, "C", 2000, 3, 1));
+        assertEquals(List.of(3, 1), index.getBestFilmIds(10, 1, 2000));
+        assertEquals(List.of(2), index.getBestFilmIds(10, 2, null));
+        assertEquals(List.of(3, 2, 1), index.getBestFilmIds(10, null, 2000));
+    }
+}
@@ -1,5 +1,9 @@
+delete from EVENTS_ARCHIVE;
+delete from RECOMMENDATIONS;
+delete from REVIEWS;
 delete from FRIENDS;
 delete from LIKES;
 delete from FILM_GENRE;
 delete from FILMS;
-delete from USERS;
\ No newline at end of file
+delete from USERS;
+delete from DIRECTOR;
\ No newline at end of file